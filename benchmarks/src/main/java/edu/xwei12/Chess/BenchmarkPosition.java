@@ -0,0 +1,51 @@
+package edu.xwei12.chess;
+
+/**
+ * Positions the benchmarks run on
+ * @author Xinran Wei
+ */
+public enum BenchmarkPosition {
+
+    /** Initial position **/
+    OPENING {
+        @Override
+        public StandardGame newGame() {
+            return PerftPosition.START.newGame();
+        }
+    },
+
+    /** After an opening with a pawn exchange and knights developed **/
+    MIDDLEGAME {
+        @Override
+        public StandardGame newGame() {
+            return PerftPosition.MIDDLEGAME.newGame();
+        }
+    },
+
+    /** Kings, a rook each and a few pawns **/
+    ENDGAME {
+        @Override
+        public StandardGame newGame() {
+            StandardGame game = new StandardGame();
+            RectangleBoard board = game.getBoard();
+            board.removeAllPieces();
+            board.addPiece(DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(0, 6));
+            board.addPiece(DefaultPiece.ROOK.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(0, 3));
+            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(1, 5));
+            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(1, 6));
+            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(2, 7));
+            board.addPiece(DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(7, 1));
+            board.addPiece(DefaultPiece.ROOK.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(7, 4));
+            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(6, 0));
+            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(6, 1));
+            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(5, 2));
+            return game;
+        }
+    };
+
+    /**
+     * Set up a new game at this position
+     * @return game
+     */
+    public abstract StandardGame newGame();
+}
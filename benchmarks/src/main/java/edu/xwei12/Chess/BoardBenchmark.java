@@ -0,0 +1,100 @@
+package edu.xwei12.chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation and validation benchmarks
+ * @author Xinran Wei
+ *
+ * Each invocation covers every piece on the board, so scores compare per position.
+ * Positions are allocated in setup; run with "-prof gc" for allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /** Position **/
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public BenchmarkPosition position;
+
+    /** Board **/
+    private RectangleBoard board;
+
+    /** Positions of all pieces **/
+    private RectanglePosition[] pieces;
+
+    /** All squares of the board **/
+    private RectanglePosition[] squares;
+
+    /** Reusable buffer for packed moves **/
+    private MoveBuffer buffer = new MoveBuffer();
+
+    @Setup
+    public void setUp() {
+        board = position.newGame().getBoard();
+        List<RectanglePosition> list = new ArrayList<>();
+        squares = new RectanglePosition[board.getRanks() * board.getFiles()];
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = new RectanglePosition(board.getRank(i), board.getFile(i));
+            if (board.pieceExists(squares[i])) list.add(squares[i]);
+        }
+        pieces = list.toArray(new RectanglePosition[0]);
+    }
+
+    /**
+     * RectangleBoard.getPossibleMoves of every piece at every distance
+     * @return number of moves
+     */
+    @Benchmark
+    public int getPossibleMoves() {
+        int count = 0;
+        for (RectanglePosition piece : pieces)
+            for (int distance = 1; distance < 8; distance++)
+                count += board.getPossibleMoves(piece, distance).size();
+        return count;
+    }
+
+    /**
+     * RectangleBoard.generateMoves of every piece at every distance
+     * @return number of moves
+     */
+    @Benchmark
+    public int generateMoves() {
+        buffer.clear();
+        for (RectanglePosition piece : pieces)
+            for (int distance = 1; distance < 8; distance++)
+                board.generateMoves(piece, distance, buffer);
+        return buffer.size();
+    }
+
+    /**
+     * RectangleBoard.canMovePiece of every piece onto every square
+     * @return number of valid moves
+     */
+    @Benchmark
+    public int canMovePiece() {
+        int count = 0;
+        for (RectanglePosition piece : pieces)
+            for (RectanglePosition square : squares)
+                if (board.canMovePiece(piece, square)) count++;
+        return count;
+    }
+}
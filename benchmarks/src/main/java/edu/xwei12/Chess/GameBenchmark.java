@@ -0,0 +1,167 @@
+package edu.xwei12.chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Make/unmake and game state benchmarks
+ * @author Xinran Wei
+ *
+ * Run with "-prof gc" for allocation rates.
+ *
+ * updateState and undo change the game, so each has its own state (Replay, Unmake)
+ * that puts the game back between invocations, at Level.Invocation and untimed.
+ * The history keeps a fixed length, so no history growth is measured; "-prof gc"
+ * still counts what the fixtures allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    /** Position **/
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public BenchmarkPosition position;
+
+    /** Game **/
+    private StandardGame game;
+
+    /** Moves of the player in turn: player, source, destination **/
+    private int[] players;
+    private RectanglePosition[] sources;
+    private RectanglePosition[] destinations;
+
+    @Setup(Level.Trial)
+    public void setUpMoves() {
+        game = position.newGame();
+        RectangleBoard board = game.getBoard();
+        Perft perft = new Perft(game);
+        MoveBuffer moves = new MoveBuffer();
+        perft.generateMoves(perft.getPlayerToMove(), moves);
+
+        players = new int[moves.size()];
+        sources = new RectanglePosition[moves.size()];
+        destinations = new RectanglePosition[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            int source = PackedMove.getSource(moves.get(i)), destination = PackedMove.getDestination(moves.get(i));
+            players[i] = perft.getPlayerToMove();
+            sources[i] = new RectanglePosition(board.getRank(source), board.getFile(source));
+            destinations[i] = new RectanglePosition(board.getRank(destination), board.getFile(destination));
+        }
+    }
+
+    /**
+     * Start every iteration from a fresh game
+     */
+    @Setup(Level.Iteration)
+    public void setUpGame() {
+        game = position.newGame();
+    }
+
+    /**
+     * Game whose last move is on the board, replayed by updateState
+     */
+    @State(Scope.Thread)
+    public static class Replay {
+
+        /** Game and the last move made in it **/
+        private StandardGame game;
+        private Game<RectangleBoard, RectanglePosition>.Move lastMove;
+
+        @Setup(Level.Iteration)
+        public void setUp(GameBenchmark benchmark) {
+            game = benchmark.position.newGame();
+            lastMove = game.getLastMove();
+            if (lastMove == null) {
+                // No move yet: make the first one, to be the last move
+                lastMove = game.new Move(benchmark.players[0], benchmark.sources[0], benchmark.destinations[0]);
+                game.stepWithMove(lastMove);
+            }
+        }
+
+        /**
+         * Take back the history entry and turn change of updateState: undo it,
+         * then make the last move again, leaving board and history as before
+         */
+        @TearDown(Level.Invocation)
+        public void restore() {
+            game.undo();
+            game.stepWithMove(lastMove);
+        }
+    }
+
+    /**
+     * Game in which a move is made before each undo
+     */
+    @State(Scope.Thread)
+    public static class Unmake {
+
+        /** Game and the move to take back **/
+        private StandardGame game;
+        private Game<RectangleBoard, RectanglePosition>.Move move;
+
+        @Setup(Level.Iteration)
+        public void setUp(GameBenchmark benchmark) {
+            game = benchmark.position.newGame();
+            move = game.new Move(benchmark.players[0], benchmark.sources[0], benchmark.destinations[0]);
+        }
+
+        @Setup(Level.Invocation)
+        public void makeMove() {
+            game.stepWithMove(move);
+        }
+    }
+
+    /**
+     * Game.stepWithMove and Game.undo of every move of the player in turn
+     * @return number of moves made
+     */
+    @Benchmark
+    public int stepWithMoveAndUndo() {
+        int count = 0;
+        for (int i = 0; i < sources.length; i++) {
+            if (game.stepWithMove(players[i], sources[i], destinations[i])) {
+                game.undo();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Game.updateState (history push, turn update, check detection) on an unchanged position
+     * @param replay game to update
+     * @return game state
+     */
+    @Benchmark
+    public Game.State updateState(Replay replay) {
+        replay.game.updateState(replay.lastMove);
+        return replay.game.getState();
+    }
+
+    /**
+     * Game.undo (history pop, unmake, turn and state reset) of a move
+     * @param unmake game to undo the move in
+     * @return whether the move was taken back
+     */
+    @Benchmark
+    public boolean undo(Unmake unmake) {
+        return unmake.game.undo();
+    }
+}
@@ -0,0 +1,244 @@
+package edu.xwei12.chess;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed attack and ray tables for a rectangle board size
+ * @author Xinran Wei
+ *
+ * Tables are built once per (ranks, files) and shared by all boards of that size.
+ * Squares are indexed as rank * files + file; getPosition maps them back to
+ * canonical positions.
+ *
+ * Leap paths hold, for every (source, destination) pair, the squares that
+ * RectangleBoard.findNearestLeap scans, as bit masks. The first leap is then the
+ * lowest set bit of (path AND occupancy), since the scan always visits squares in
+ * increasing order. Leap paths are only built for boards of up to
+ * MAX_LEAP_PATH_SQUARES squares; larger boards fall back to scanning.
+ */
+public final class AttackTables {
+
+    /** Largest board (in squares) that gets leap path masks **/
+    public static final int MAX_LEAP_PATH_SQUARES = 256;
+
+    /** Ray directions as (rank, file) steps: 4 straight, then 4 diagonal **/
+    public static final int[][] DIRECTIONS = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1},
+            {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+    };
+
+    /** Knight steps **/
+    private static final int[][] KNIGHT_STEPS = {
+            {1, 2}, {2, 1}, {1, -2}, {2, -1}, {-1, 2}, {-2, 1}, {-1, -2}, {-2, -1}
+    };
+
+    /** King steps **/
+    private static final int[][] KING_STEPS = {
+            {0, 1}, {0, -1}, {-1, 0}, {1, 0}, {-1, 1}, {1, 1}, {-1, -1}, {1, -1}
+    };
+
+    /** Shared tables keyed by board size **/
+    private static final ConcurrentHashMap<Long, AttackTables> tables = new ConcurrentHashMap<>();
+
+    /** Board size **/
+    private final int ranks, files, squares;
+
+    /** Number of 64-bit words per square mask **/
+    private final int words;
+
+    /** Position of each square **/
+    private final RectanglePosition[] positions;
+
+    /** Knight destinations per square **/
+    private final int[][] knightTargets;
+
+    /** King destinations per square **/
+    private final int[][] kingTargets;
+
+    /** Rays per square and direction, nearest square first **/
+    private final int[][][] rays;
+
+    /** Leap path masks, (source * squares + destination) * words + word; null for large boards **/
+    private final long[] leapPaths;
+
+    /**
+     * Get the shared tables for a board size
+     * @param ranks number of ranks
+     * @param files number of files
+     * @return tables
+     */
+    public static AttackTables forSize(int ranks, int files) {
+        return tables.computeIfAbsent(((long) ranks << 32) | files, k -> new AttackTables(ranks, files));
+    }
+
+    /**
+     * Build tables for a board size
+     * @param ranks number of ranks
+     * @param files number of files
+     */
+    private AttackTables(int ranks, int files) {
+        this.ranks = ranks;
+        this.files = files;
+        this.squares = ranks * files;
+        this.words = (squares + 63) >>> 6;
+
+        positions = new RectanglePosition[squares];
+        knightTargets = new int[squares][];
+        kingTargets = new int[squares][];
+        rays = new int[squares][DIRECTIONS.length][];
+        for (int square = 0; square < squares; square++) {
+            positions[square] = RectanglePosition.of(square / files, square % files);
+            knightTargets[square] = steps(square, KNIGHT_STEPS);
+            kingTargets[square] = steps(square, KING_STEPS);
+            for (int d = 0; d < DIRECTIONS.length; d++)
+                rays[square][d] = ray(square, DIRECTIONS[d]);
+        }
+
+        leapPaths = squares <= MAX_LEAP_PATH_SQUARES ? buildLeapPaths() : null;
+    }
+
+    /**
+     * Destinations of single steps from a square
+     * @param square source square
+     * @param steps (rank, file) steps
+     * @return on-board destinations
+     */
+    private int[] steps(int square, int[][] steps) {
+        int x = square / files, y = square % files;
+        int[] targets = new int[steps.length];
+        int count = 0;
+        for (int[] step : steps)
+            if (isValid(x + step[0], y + step[1]))
+                targets[count++] = (x + step[0]) * files + y + step[1];
+        return Arrays.copyOf(targets, count);
+    }
+
+    /**
+     * Squares along a direction from a square
+     * @param square source square
+     * @param step (rank, file) step
+     * @return squares, nearest first
+     */
+    private int[] ray(int square, int[] step) {
+        int x = square / files, y = square % files;
+        int[] targets = new int[Math.max(ranks, files)];
+        int count = 0;
+        for (int i = x + step[0], j = y + step[1]; isValid(i, j); i += step[0], j += step[1])
+            targets[count++] = i * files + j;
+        return Arrays.copyOf(targets, count);
+    }
+
+    /**
+     * Build leap path masks by replaying the scan of RectangleBoard.findNearestLeap
+     * @return masks
+     */
+    private long[] buildLeapPaths() {
+        long[] paths = new long[squares * squares * words];
+        for (int from = 0; from < squares; from++) {
+            int x1 = from / files, y1 = from % files;
+            for (int to = 0; to < squares; to++) {
+                int x2 = to / files, y2 = to % files;
+                int base = (from * squares + to) * words;
+                // Vertical path
+                if (x1 == x2)
+                    for (int y = y1 + 1; y < y2 && y < files; y++)
+                        set(paths, base, x1 * files + y);
+                // Horizontal path
+                if (y1 == y2)
+                    for (int x = x1 + 1; x < x2 && x < ranks; x++)
+                        set(paths, base, x * files + y1);
+                // Diagonal path
+                if (Math.abs(x2 - x1) == Math.abs(y2 - y1) && x1 != x2 && y1 != y2)
+                    for (int x = x1 + 1, y = y1 + 1; x < x2 && x < files && y < ranks; x++, y++)
+                        if (isValid(x, y))
+                            set(paths, base, x * files + y);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Set a square in a mask
+     * @param masks mask array
+     * @param base offset of the mask
+     * @param square square
+     */
+    private static void set(long[] masks, int base, int square) {
+        masks[base + (square >>> 6)] |= 1L << square;
+    }
+
+    /**
+     * Determines if (rank, file) is on the board
+     * @param rank rank-coordinate
+     * @param file file-coordinate
+     * @return valid or not
+     */
+    private boolean isValid(int rank, int file) {
+        return rank >= 0 && file >= 0 && rank < ranks && file < files;
+    }
+
+    /**
+     * Get number of 64-bit words per square mask
+     * @return words
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * Get the position of a square
+     * @param square square index
+     * @return position, canonical for boards within RectanglePosition.CANONICAL_SIZE
+     */
+    public RectanglePosition getPosition(int square) {
+        return positions[square];
+    }
+
+    /**
+     * Get knight destinations of a square
+     * @param square source square
+     * @return destinations (do not modify)
+     */
+    public int[] getKnightTargets(int square) {
+        return knightTargets[square];
+    }
+
+    /**
+     * Get king destinations of a square
+     * @param square source square
+     * @return destinations (do not modify)
+     */
+    public int[] getKingTargets(int square) {
+        return kingTargets[square];
+    }
+
+    /**
+     * Get the ray from a square along a direction
+     * @param square source square
+     * @param direction index into DIRECTIONS
+     * @return squares, nearest first (do not modify)
+     */
+    public int[] getRay(int square, int direction) {
+        return rays[square][direction];
+    }
+
+    /**
+     * Determine whether leap path masks are available for this size
+     * @return available or not
+     */
+    public boolean hasLeapPaths() {
+        return leapPaths != null;
+    }
+
+    /**
+     * Get a word of the leap path mask from source to destination
+     * @param from source square
+     * @param to destination square
+     * @param word word index
+     * @return mask word
+     */
+    public long getLeapPath(int from, int to, int word) {
+        return leapPaths[(from * squares + to) * words + word];
+    }
+}
@@ -0,0 +1,295 @@
+package edu.xwei12.chess;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Bitboard-backed rectangle board
+ * @author Xinran Wei
+ *
+ * Pieces are stored as one 64-bit mask per (kind, player) slot plus an occupancy mask,
+ * so the board holds at most 64 squares. Square index is rank * files + file.
+ * Unlike RectangleBoard, the board does not keep the piece objects placed on it:
+ * getPiece returns the first piece placed of the same (kind, player), so pieces on
+ * different squares may be the same object and only kind and tag survive a move.
+ * Being a RectangleBoard, it is a drop-in replacement under StandardGame and
+ * works with all DefaultPiece and ExtendedPiece movers.
+ */
+public class BitboardBoard extends RectangleBoard {
+
+    /** Maximum number of squares a bitboard can hold **/
+    public static final int MAX_SQUARES = 64;
+
+    /** Piece masks, one per (kind, player) slot **/
+    private long[] bitboards;
+
+    /** Representative piece of each slot **/
+    private Piece<RectangleBoard, RectanglePosition>[] slotPieces;
+
+    /** Number of slots in use **/
+    private int slotCount;
+
+    /** Union of all piece masks **/
+    private long occupancy;
+
+    /** Kinds seen on this board **/
+    private Set<String> kinds;
+
+    /**
+     * Construct a standard 8x8 bitboard
+     */
+    public BitboardBoard() {
+        this(8, 8);
+    }
+
+    /**
+     * Construct a bitboard with dimensions
+     * @param ranks number of ranks
+     * @param files number of files
+     */
+    @SuppressWarnings("unchecked")
+    public BitboardBoard(int ranks, int files) {
+        super(ranks, files, false);
+        if (ranks <= 0 || files <= 0 || ranks * files > MAX_SQUARES)
+            throw new IllegalArgumentException("Bitboard supports at most " + MAX_SQUARES + " squares");
+
+        bitboards = new long[16];
+        slotPieces = (Piece<RectangleBoard, RectanglePosition>[]) new Piece<?, ?>[16];
+        kinds = new LinkedHashSet<>();
+    }
+
+    /**
+     * Find the slot holding the piece at a square
+     * @param square square index
+     * @return slot or -1
+     */
+    private int slotAt(int square) {
+        long bit = 1L << square;
+        if ((occupancy & bit) == 0) return -1;
+        for (int i = 0; i < slotCount; i++)
+            if ((bitboards[i] & bit) != 0) return i;
+        return -1;
+    }
+
+    /**
+     * Find or register the slot for a piece's (kind, player)
+     * @param piece piece
+     * @return slot
+     */
+    private int slotFor(Piece<RectangleBoard, RectanglePosition> piece) {
+        for (int i = 0; i < slotCount; i++)
+            if (slotPieces[i].getKind().equals(piece.getKind()) && slotPieces[i].getTag().equals(piece.getTag()))
+                return i;
+
+        // New slot
+        if (slotCount == bitboards.length) {
+            bitboards = Arrays.copyOf(bitboards, slotCount * 2);
+            slotPieces = Arrays.copyOf(slotPieces, slotCount * 2);
+        }
+        slotPieces[slotCount] = piece;
+        kinds.add(piece.getKind());
+        return slotCount++;
+    }
+
+    /**
+     * Clear a square
+     * @param square square index
+     */
+    private void clear(int square) {
+        int slot = slotAt(square);
+        if (slot < 0) return;
+        bitboards[slot] &= ~(1L << square);
+        occupancy &= ~(1L << square);
+        positionHash ^= Zobrist.pieceKey(slotPieces[slot], square);
+        updateEvaluationScore(slotPieces[slot], square, -1);
+    }
+
+    /**
+     * Get the mask of a (kind, player) slot
+     * @param kind name of kind
+     * @param player player tag
+     * @return piece mask, 0 if none
+     */
+    public long getBitboard(String kind, int player) {
+        for (int i = 0; i < slotCount; i++)
+            if (slotPieces[i].getKind().equals(kind) && slotPieces[i].getTag() == player)
+                return bitboards[i];
+        return 0L;
+    }
+
+    /**
+     * Get the occupancy mask
+     * @return mask of all occupied squares
+     */
+    public long getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Get piece at (rank, file)
+     * @param rank rank-coordinate
+     * @param file file-coordinate
+     * @return piece or null
+     */
+    @Override
+    protected Piece<RectangleBoard, RectanglePosition> getPiece(int rank, int file) {
+        if (rank < 0 || file < 0 || rank >= getRanks() || file >= getFiles()) return null;
+        int slot = slotAt(getSquare(rank, file));
+        return slot < 0 ? null : slotPieces[slot];
+    }
+
+    /**
+     * Get a word of the occupancy mask
+     * @param word word index, always 0 on a bitboard
+     * @return occupancy mask
+     */
+    @Override
+    protected long getOccupancy(int word) {
+        return occupancy;
+    }
+
+    /**
+     * Get locations of pieces of a kind
+     * @param kind name of the kind
+     * @return piece set, or null if the kind was never placed
+     */
+    @Override
+    public Set<RectanglePosition> getPiecesByKind(String kind) {
+        if (!kinds.contains(kind)) return null;
+
+        long mask = 0L;
+        for (int i = 0; i < slotCount; i++)
+            if (slotPieces[i].getKind().equals(kind))
+                mask |= bitboards[i];
+
+        Set<RectanglePosition> set = new HashSet<>(Long.bitCount(mask) * 2);
+        for (; mask != 0; mask &= mask - 1) {
+            int square = Long.numberOfTrailingZeros(mask);
+            set.add(positionAt(square));
+        }
+        return set;
+    }
+
+    /**
+     * Get all piece locations
+     * @return all piece locations
+     */
+    @Override
+    public Set<RectanglePosition> getAllPieces() {
+        Set<RectanglePosition> set = new HashSet<>(Long.bitCount(occupancy) * 2);
+        for (long mask = occupancy; mask != 0; mask &= mask - 1)
+            set.add(positionAt(Long.numberOfTrailingZeros(mask)));
+        return set;
+    }
+
+    /**
+     * Get all piece names
+     * @return unmodifiable set of kinds of pieces, such as {"pawn", "king", ...}
+     */
+    @Override
+    public Set<String> getAllPieceKinds() {
+        return Collections.unmodifiableSet(kinds);
+    }
+
+    /**
+     * Piece at position
+     * @param position position of the piece
+     * @return piece or null
+     */
+    @Override
+    public Piece<RectangleBoard, RectanglePosition> getPiece(RectanglePosition position) {
+        int slot = slotAt(getSquare(position.rank, position.file));
+        return slot < 0 ? null : slotPieces[slot];
+    }
+
+    /**
+     * Remove all pieces
+     */
+    @Override
+    public void removeAllPieces() {
+        Arrays.fill(bitboards, 0L);
+        occupancy = 0L;
+        positionHash = 0L;
+        evaluationScore = 0;
+        modCount++;
+    }
+
+    /**
+     * Add a piece
+     * @param piece a chess piece
+     * @param position position that the piece will be placed at
+     */
+    @Override
+    public void addPiece(Piece<RectangleBoard, RectanglePosition> piece, RectanglePosition position) {
+        int square = getSquare(position.rank, position.file);
+        int slot = slotFor(piece);
+        clear(square);
+        bitboards[slot] |= 1L << square;
+        occupancy |= 1L << square;
+        positionHash ^= Zobrist.pieceKey(piece, square);
+        updateEvaluationScore(piece, square, 1);
+        modCount++;
+    }
+
+    /**
+     * Move a piece from one position to another, and also attacks
+     * @param fromPosition current position of piece
+     * @param toPosition of movement; the board is left as it is if it is the source
+     */
+    @Override
+    public void movePiece(RectanglePosition fromPosition, RectanglePosition toPosition) {
+        int from = getSquare(fromPosition.rank, fromPosition.file);
+        int to = getSquare(toPosition.rank, toPosition.file);
+        if (from == to) return;
+        int slot = slotAt(from);
+
+        // Remove victim, then move the piece
+        clear(to);
+        bitboards[slot] ^= (1L << from) | (1L << to);
+        occupancy = (occupancy & ~(1L << from)) | (1L << to);
+        positionHash ^= Zobrist.pieceKey(slotPieces[slot], from) ^ Zobrist.pieceKey(slotPieces[slot], to);
+        updateEvaluationScore(slotPieces[slot], from, -1);
+        updateEvaluationScore(slotPieces[slot], to, 1);
+        modCount++;
+    }
+
+    /**
+     * Make an independent copy of the board
+     * @return copy
+     */
+    @Override
+    public BitboardBoard copy() {
+        BitboardBoard copy = new BitboardBoard(getRanks(), getFiles());
+        copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Overwrite a bitboard of the same size with the pieces of this board
+     * @param target board to overwrite
+     */
+    @Override
+    public void copyInto(RectangleBoard target) {
+        checkCopyTarget(target);
+        BitboardBoard board = (BitboardBoard) target;
+        if (board == this) return;
+
+        if (board.bitboards.length < bitboards.length) {
+            board.bitboards = new long[bitboards.length];
+            board.slotPieces = Arrays.copyOf(slotPieces, bitboards.length);
+        }
+        System.arraycopy(bitboards, 0, board.bitboards, 0, slotCount);
+        System.arraycopy(slotPieces, 0, board.slotPieces, 0, slotCount);
+        Arrays.fill(board.bitboards, slotCount, board.bitboards.length, 0L);
+        board.slotCount = slotCount;
+        board.occupancy = occupancy;
+        board.kinds.clear();
+        board.kinds.addAll(kinds);
+        board.positionHash = positionHash;
+        board.setEvaluationFrom(this);
+        board.modCount++;
+    }
+}
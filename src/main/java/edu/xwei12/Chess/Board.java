@@ -12,7 +12,8 @@ import java.util.stream.Collectors;
 public interface Board<B extends Board<B, C>, C extends Coordinates<C>> {
 
     /**
-     * Get locations of pieces of a kind
+     * Get locations of pieces of a kind. The set may be a live view of the board
+     * (RectangleBoard): copy it to change the board while iterating.
      * @param kind name of kind
      * @return piece set
      */
@@ -25,7 +26,8 @@ public interface Board<B extends Board<B, C>, C extends Coordinates<C>> {
     Set<String> getAllPieceKinds();
 
     /**
-     * Get all piece locations
+     * Get all piece locations. The set may be a live view of the board
+     * (RectangleBoard): copy it to change the board while iterating.
      * @return all piece locations
      */
     default Set<C> getAllPieces() {
@@ -92,4 +94,61 @@ public interface Board<B extends Board<B, C>, C extends Coordinates<C>> {
      */
     void movePiece(C fromPosition, C toPosition);
 
+    /**
+     * Make an independent copy of the board with the same pieces
+     * @return copy
+     */
+    default B copy() {
+        throw new UnsupportedOperationException("Board cannot be copied: " + getClass().getName());
+    }
+
+    /**
+     * Overwrite a board of the same class and size with the pieces of this board
+     * @param target board to overwrite
+     */
+    default void copyInto(B target) {
+        throw new UnsupportedOperationException("Board cannot be copied: " + getClass().getName());
+    }
+
+    /**
+     * Get the Zobrist hash of the pieces on the board, which is maintained incrementally
+     * as pieces are added, moved or removed. Equal placements have equal hashes.
+     * @return position hash
+     */
+    long getPositionHash();
+
+    /**
+     * Get the index of a position, for compact move encodings
+     * @param position valid position
+     * @return index in [0, PackedMove.MAX_SQUARES)
+     */
+    int indexOf(C position);
+
+    /**
+     * Get the position at an index (inverse of indexOf)
+     * @param index index
+     * @return position
+     */
+    C positionAt(int index);
+
+    /**
+     * Determine whether the outcome of canMovePiece(fromPosition, toPosition) may change
+     * when the content at a position changes
+     * @param fromPosition source position
+     * @param toPosition destination position
+     * @param position changed position
+     * @return may be affected or not (conservatively true)
+     */
+    default boolean isMoveAffectedBy(C fromPosition, C toPosition, C position) {
+        return true;
+    }
+
+    /**
+     * Get the modification count, which changes whenever pieces are added, moved or removed
+     * @return modification count, or -1 if not tracked
+     */
+    default long getModificationCount() {
+        return -1;
+    }
+
 }
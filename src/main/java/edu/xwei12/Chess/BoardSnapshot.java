@@ -0,0 +1,122 @@
+package edu.xwei12.chess;
+
+/**
+ * Immutable snapshot of a rectangle board
+ * @author Xinran Wei
+ *
+ * Holds the piece on every square, the position hash and the modification count
+ * at the time it was taken. Pieces carry no per-board state, so the snapshot shares
+ * them with the board. Snapshots are safe to read from any thread while the board
+ * goes on changing; RectangleBoard.getSnapshot() hands out the same snapshot until
+ * the next modification.
+ */
+public final class BoardSnapshot {
+
+    /** Number of ranks and files **/
+    private final int ranks, files;
+
+    /** Piece by square index, null if empty **/
+    private final Piece<RectangleBoard, RectanglePosition>[] pieces;
+
+    /** Number of pieces **/
+    private final int pieceCount;
+
+    /** Zobrist hash of the pieces **/
+    private final long positionHash;
+
+    /** Modification count of the board **/
+    private final long modificationCount;
+
+    /**
+     * Take a snapshot of a board
+     * @param board board
+     */
+    @SuppressWarnings("unchecked")
+    BoardSnapshot(RectangleBoard board) {
+        ranks = board.getRanks();
+        files = board.getFiles();
+        pieces = (Piece<RectangleBoard, RectanglePosition>[]) new Piece<?, ?>[ranks * files];
+        int count = 0;
+        for (int square = 0; square < pieces.length; square++) {
+            if (!board.isOccupied(square)) continue;
+            pieces[square] = board.getPiece(board.getRank(square), board.getFile(square));
+            count++;
+        }
+        pieceCount = count;
+        positionHash = board.getPositionHash();
+        modificationCount = board.getModificationCount();
+    }
+
+    public int getRanks() {
+        return ranks;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * Piece at a square
+     * @param square square index, rank * files + file
+     * @return piece or null
+     */
+    public Piece<RectangleBoard, RectanglePosition> getPiece(int square) {
+        return pieces[square];
+    }
+
+    /**
+     * Piece at (rank, file)
+     * @param rank rank-coordinate
+     * @param file file-coordinate
+     * @return piece or null, also off the board
+     */
+    public Piece<RectangleBoard, RectanglePosition> getPiece(int rank, int file) {
+        if (rank < 0 || file < 0 || rank >= ranks || file >= files) return null;
+        return pieces[rank * files + file];
+    }
+
+    /**
+     * Piece at position
+     * @param position position
+     * @return piece or null, also off the board
+     */
+    public Piece<RectangleBoard, RectanglePosition> getPiece(RectanglePosition position) {
+        return getPiece(position.rank, position.file);
+    }
+
+    /**
+     * Get number of pieces
+     * @return pieces
+     */
+    public int getPieceCount() {
+        return pieceCount;
+    }
+
+    /**
+     * Get the Zobrist hash of the pieces, as Board.getPositionHash()
+     * @return position hash
+     */
+    public long getPositionHash() {
+        return positionHash;
+    }
+
+    /**
+     * Get the modification count of the board when the snapshot was taken
+     * @return modification count
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Make a new mutable board with the snapshot's pieces, e.g. for analysis
+     * @return board
+     */
+    public RectangleBoard toBoard() {
+        RectangleBoard board = new RectangleBoard(ranks, files);
+        for (int square = 0; square < pieces.length; square++)
+            if (pieces[square] != null)
+                board.addPiece(pieces[square], RectanglePosition.of(square / files, square % files));
+        return board;
+    }
+}
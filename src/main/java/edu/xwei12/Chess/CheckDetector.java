@@ -0,0 +1,187 @@
+package edu.xwei12.chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incremental check detector
+ * @author Xinran Wei
+ *
+ * Keeps the attackers of every critical piece (e.g., king). After a change at a few
+ * positions, only pieces whose moves onto a critical piece may be affected by those
+ * positions (Board.isMoveAffectedBy) are re-evaluated with canMovePiece.
+ * Changes the detector was not told about are caught through
+ * Board.getModificationCount and trigger a full rebuild.
+ */
+class CheckDetector<B extends Board<B, C>, C extends Coordinates<C>> {
+
+    /** Board **/
+    private final B board;
+
+    /** Kind of the critical piece **/
+    private final String criticalPieceKind;
+
+    /** Positions of critical pieces **/
+    private List<C> criticals = new ArrayList<>();
+
+    /** Attackers of each critical piece, parallel to criticals **/
+    private List<List<C>> attackers = new ArrayList<>();
+
+    /** Whether the detector is synchronized with the board **/
+    private boolean valid = false;
+
+    /** Board modification count at the last synchronization **/
+    private long modificationCount;
+
+    /**
+     * Constructor
+     * @param board board
+     * @param criticalPieceKind kind of the critical piece
+     */
+    CheckDetector(B board, String criticalPieceKind) {
+        this.board = board;
+        this.criticalPieceKind = criticalPieceKind;
+    }
+
+    /**
+     * Mark the detector as out of date
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Bring the detector up to date after the board changed only at some positions
+     * @param countBefore board modification count before the change
+     * @param changed changed positions
+     */
+    void update(long countBefore, List<C> changed) {
+        if (!valid || countBefore < 0 || countBefore != modificationCount)
+            rebuild();
+        else
+            refresh(changed);
+    }
+
+    /**
+     * Rebuild the detector if the board changed behind its back
+     */
+    void ensureValid() {
+        long count = board.getModificationCount();
+        if (!valid || count < 0 || count != modificationCount)
+            rebuild();
+    }
+
+    /**
+     * Get positions of critical pieces
+     * @return positions
+     */
+    List<C> getCriticalPositions() {
+        ensureValid();
+        return criticals;
+    }
+
+    /**
+     * Get attackers of the critical piece at a position
+     * @param position position of a critical piece
+     * @return attacker positions, or null if no critical piece is there
+     */
+    List<C> getAttackers(C position) {
+        ensureValid();
+        int index = indexOf(criticals, position);
+        return index < 0 ? null : attackers.get(index);
+    }
+
+    /**
+     * Re-evaluate every piece against every critical piece
+     */
+    private void rebuild() {
+        criticals = new ArrayList<>();
+        attackers = new ArrayList<>();
+
+        Set<C> kings = board.getPiecesByKind(criticalPieceKind);
+        Set<C> pieces = board.getAllPieces();
+        if (kings != null) {
+            for (C king : kings) {
+                List<C> list = new ArrayList<>();
+                for (C piece : pieces)
+                    if (board.canMovePiece(piece, king))
+                        list.add(piece);
+                criticals.add(king);
+                attackers.add(list);
+            }
+        }
+
+        synchronize();
+    }
+
+    /**
+     * Re-evaluate pieces whose attacks may be affected by changed positions
+     * @param changed changed positions
+     */
+    private void refresh(List<C> changed) {
+        List<C> newCriticals = new ArrayList<>();
+        List<List<C>> newAttackers = new ArrayList<>();
+
+        Set<C> kings = board.getPiecesByKind(criticalPieceKind);
+        Set<C> pieces = board.getAllPieces();
+        if (kings != null) {
+            for (C king : kings) {
+                int index = indexOf(criticals, king);
+                boolean moved = index < 0 || indexOf(changed, king) >= 0;
+                List<C> previous = moved ? null : attackers.get(index);
+
+                List<C> list = new ArrayList<>();
+                for (C piece : pieces) {
+                    if (moved || isAffected(piece, king, changed)) {
+                        if (board.canMovePiece(piece, king))
+                            list.add(piece);
+                    } else if (indexOf(previous, piece) >= 0) {
+                        list.add(piece);
+                    }
+                }
+                newCriticals.add(king);
+                newAttackers.add(list);
+            }
+        }
+
+        criticals = newCriticals;
+        attackers = newAttackers;
+        synchronize();
+    }
+
+    /**
+     * Determine whether a piece's move onto a critical piece may be affected by changes
+     * @param piece piece position
+     * @param king critical piece position
+     * @param changed changed positions
+     * @return affected or not
+     */
+    private boolean isAffected(C piece, C king, List<C> changed) {
+        for (C position : changed)
+            if (board.isMoveAffectedBy(piece, king, position))
+                return true;
+        return false;
+    }
+
+    /**
+     * Record the board state the detector is synchronized with
+     */
+    private void synchronize() {
+        modificationCount = board.getModificationCount();
+        valid = modificationCount >= 0;
+    }
+
+    /**
+     * Find a position in a list
+     * @param list positions
+     * @param position position
+     * @return index or -1
+     */
+    private int indexOf(List<C> list, C position) {
+        for (int i = 0; i < list.size(); i++)
+            if (list.get(i).sameAs(position))
+                return i;
+        return -1;
+    }
+}
@@ -21,16 +21,31 @@ public enum DefaultPiece {
         if (distance != 1) return positionSet;
 
         // Add to set
-        addIfCellValid(position, new RectanglePosition(x, y + 1), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x, y - 1), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x - 1, y), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x + 1, y), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x - 1, y + 1), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x + 1, y + 1), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x - 1, y - 1), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x + 1, y - 1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x, y + 1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x, y - 1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x - 1, y), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x + 1, y), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x - 1, y + 1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x + 1, y + 1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x - 1, y - 1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x + 1, y - 1), board, positionSet);
 
         return positionSet;
+    }, (int square, RectangleBoard board, int distance, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+
+        // Reject movement with distance != 1
+        if (distance != 1) return;
+
+        // Add to buffer
+        for (int target : board.getAttackTables().getKingTargets(square))
+            addIfSquareValid(x, y, board.getRank(target), board.getFile(target), board, buffer);
+    }, (int square, RectangleBoard board, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+
+        // All steps are at distance 1
+        for (int target : board.getAttackTables().getKingTargets(square))
+            addIfSquareValid(x, y, board.getRank(target), board.getFile(target), board, buffer);
     }),
 
     /**
@@ -45,16 +60,25 @@ public enum DefaultPiece {
         if (distance < 1) return positionSet;
 
         // Moves straight
-        addIfCellValid(position, new RectanglePosition(x, y + distance), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x, y - distance), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x + distance, y), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x - distance, y), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x, y + distance), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x, y - distance), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x + distance, y), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x - distance, y), board, positionSet);
 
         // Remove leaps
         positionSet.removeIf(p -> board.leapsNeeded(position, p) > 0);
 
         return positionSet;
-    }),
+    }, (int square, RectangleBoard board, int distance, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+
+        // Reject movement with distance < 1
+        if (distance < 1) return;
+
+        // Moves straight without leaps
+        for (int direction = 0; direction < 4; direction++)
+            addIfPathClear(x, y, direction, distance, board, buffer);
+    }, (int square, RectangleBoard board, MoveBuffer buffer) -> addRays(square, 0, 4, board, buffer)),
 
     /**
      * Move behavior for Bishop as a lambda function
@@ -68,16 +92,25 @@ public enum DefaultPiece {
         if (distance < 1) return positionSet;
 
         // Moves diagonal
-        addIfCellValid(position, new RectanglePosition(x + distance, y + distance), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x + distance, y - distance), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x - distance, y + distance), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x - distance, y - distance), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x + distance, y + distance), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x + distance, y - distance), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x - distance, y + distance), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x - distance, y - distance), board, positionSet);
 
         // Remove leaps
         positionSet.removeIf(p -> board.leapsNeeded(position, p) > 0);
 
         return positionSet;
-    }),
+    }, (int square, RectangleBoard board, int distance, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+
+        // Reject movement with distance < 1
+        if (distance < 1) return;
+
+        // Moves diagonal without leaps
+        for (int direction = 4; direction < 8; direction++)
+            addIfPathClear(x, y, direction, distance, board, buffer);
+    }, (int square, RectangleBoard board, MoveBuffer buffer) -> addRays(square, 4, 8, board, buffer)),
 
     /**
      * Move behavior for Queen as a lambda function
@@ -86,7 +119,10 @@ public enum DefaultPiece {
     QUEEN((RectanglePosition position, RectangleBoard board, Integer distance) -> new HashSet<RectanglePosition>() {{
         addAll(ROOK.getMover().apply(position, board, distance));
         addAll(BISHOP.getMover().apply(position, board, distance));
-    }}),
+    }}, (int square, RectangleBoard board, int distance, MoveBuffer buffer) -> {
+        ROOK.getGenerator().generate(square, board, distance, buffer);
+        BISHOP.getGenerator().generate(square, board, distance, buffer);
+    }, (int square, RectangleBoard board, MoveBuffer buffer) -> addRays(square, 0, 8, board, buffer)),
 
     /**
      * Move behavior for Knight as a lambda function
@@ -97,16 +133,28 @@ public enum DefaultPiece {
         Set<RectanglePosition> positionSet = new HashSet<>();
 
         /* Move along L-shape */
-        addIfCellValid(position, new RectanglePosition(x+1, y+2), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x+2, y+1), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x+1, y-2), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x+2, y-1), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x-1, y+2), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x-2, y+1), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x-1, y-2), board, positionSet);
-        addIfCellValid(position, new RectanglePosition(x-2, y-1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x+1, y+2), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x+2, y+1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x+1, y-2), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x+2, y-1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x-1, y+2), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x-2, y+1), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x-1, y-2), board, positionSet);
+        addIfCellValid(position, RectanglePosition.of(x-2, y-1), board, positionSet);
 
         return positionSet;
+    }, (int square, RectangleBoard board, int distance, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+
+        /* Move along L-shape */
+        for (int target : board.getAttackTables().getKnightTargets(square))
+            addIfSquareValid(x, y, board.getRank(target), board.getFile(target), board, buffer);
+    }, (int square, RectangleBoard board, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+
+        /* L-shapes are not aligned, so canMovePiece generates them at distance -1 only */
+        for (int target : board.getAttackTables().getKnightTargets(square))
+            addIfSquareValid(x, y, board.getRank(target), board.getFile(target), board, buffer);
     }),
 
     /**
@@ -122,7 +170,7 @@ public enum DefaultPiece {
         /* If at initial rank, advance by 2 along the file */
         if (distance == 1 || (distance == 2 && (x == 1 || x == ranks - 2))) {
 
-            RectanglePosition forward = new RectanglePosition(x + distance * playerDirection, y);
+            RectanglePosition forward = RectanglePosition.of(x + distance * playerDirection, y);
             // Does not attack forward
             if (board.isValidPosition(forward) && !board.pieceExists(forward)) {
                 addIfCellValid(position, forward, board, positionSet);
@@ -130,11 +178,11 @@ public enum DefaultPiece {
 
             // Attacks diagonally
             if (distance == 1) {
-                RectanglePosition diagonal1 = new RectanglePosition(x + playerDirection, y + 1);
+                RectanglePosition diagonal1 = RectanglePosition.of(x + playerDirection, y + 1);
                 if (board.isValidPosition(diagonal1) && board.pieceExists(diagonal1)) {
                     addIfCellValid(position, diagonal1, board, positionSet);
                 }
-                RectanglePosition diagonal2 = new RectanglePosition(x + playerDirection, y - 1);
+                RectanglePosition diagonal2 = RectanglePosition.of(x + playerDirection, y - 1);
                 if (board.isValidPosition(diagonal2) && board.pieceExists(diagonal2)) {
                     addIfCellValid(position, diagonal2, board, positionSet);
                 }
@@ -142,17 +190,57 @@ public enum DefaultPiece {
         }
 
         return positionSet;
+    }, (int square, RectangleBoard board, int distance, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+        int ranks = board.getRanks();
+        int playerDirection = board.getPiece(x, y).getTag();
+
+        /* If at initial rank, advance by 2 along the file */
+        if (distance == 1 || (distance == 2 && (x == 1 || x == ranks - 2))) {
+
+            // Does not attack forward
+            int forward = x + distance * playerDirection;
+            if (board.isValidPosition(forward, y) && !board.isOccupied(forward, y)) {
+                addIfSquareValid(x, y, forward, y, board, buffer);
+            }
+
+            // Attacks diagonally
+            if (distance == 1) {
+                if (board.isValidPosition(x + playerDirection, y + 1) && board.isOccupied(x + playerDirection, y + 1)) {
+                    addIfSquareValid(x, y, x + playerDirection, y + 1, board, buffer);
+                }
+                if (board.isValidPosition(x + playerDirection, y - 1) && board.isOccupied(x + playerDirection, y - 1)) {
+                    addIfSquareValid(x, y, x + playerDirection, y - 1, board, buffer);
+                }
+            }
+        }
+    }, (int square, RectangleBoard board, MoveBuffer buffer) -> {
+        // Steps and attacks are at distance 1, the double step at distance 2
+        generatorAt(square, board).generate(square, board, 1, buffer);
+        generatorAt(square, board).generate(square, board, 2, buffer);
     });
 
     /** Chess piece **/
     private Piece.MoveFunction<RectangleBoard, RectanglePosition> mover;
 
+    /** Allocation-free move generator **/
+    private Piece.MoveGenerator<RectangleBoard> generator;
+
+    /** One-pass generator of all accepted moves **/
+    private Piece.LegalMoveGenerator<RectangleBoard> legalGenerator;
+
     /**
      * Constructor, unused but required
      * @param mover mover function
+     * @param generator generator producing the same moves as mover
+     * @param legalGenerator generator of all moves canMovePiece accepts
      */
-    DefaultPiece(Piece.MoveFunction<RectangleBoard, RectanglePosition> mover) {
+    DefaultPiece(Piece.MoveFunction<RectangleBoard, RectanglePosition> mover,
+                 Piece.MoveGenerator<RectangleBoard> generator,
+                 Piece.LegalMoveGenerator<RectangleBoard> legalGenerator) {
         this.mover = mover;
+        this.generator = generator;
+        this.legalGenerator = legalGenerator;
     }
 
     /**
@@ -161,7 +249,7 @@ public enum DefaultPiece {
      * @return piece
      */
     public Piece<RectangleBoard, RectanglePosition> newPieceWithTag(int tag) {
-        return new Piece<>(name().toLowerCase(), tag, mover);
+        return new Piece<>(name().toLowerCase(), tag, mover, generator, legalGenerator);
     }
 
     /**
@@ -172,6 +260,22 @@ public enum DefaultPiece {
         return mover;
     }
 
+    /**
+     * Get move generator
+     * @return generator :: (square, board, distance, buffer) -> ()
+     */
+    public Piece.MoveGenerator<RectangleBoard> getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Get one-pass generator of all accepted moves
+     * @return legalGenerator :: (square, board, buffer) -> ()
+     */
+    public Piece.LegalMoveGenerator<RectangleBoard> getLegalGenerator() {
+        return legalGenerator;
+    }
+
     /**
      * Get kind identifier
      * @return lowercase of enum name as identifier
@@ -196,5 +300,75 @@ public enum DefaultPiece {
         if (valid) positionSet.add(toPosition);
     }
 
-}
+    /**
+     * Append a move to the buffer after checking availability of target cell (allocation-free addIfCellValid)
+     * @param fromRank source rank-coordinate
+     * @param fromFile source file-coordinate
+     * @param toRank destination rank-coordinate
+     * @param toFile destination file-coordinate
+     * @param board rectangle chess board
+     * @param buffer buffer to append the packed move to
+     */
+    static void addIfSquareValid(int fromRank, int fromFile, int toRank, int toFile, RectangleBoard board, MoveBuffer buffer) {
+        if (!board.isValidPosition(toRank, toFile) || !board.isOccupied(fromRank, fromFile)) return;
+
+        // If destination exists, make sure it's not cannibalism
+        boolean attacks = board.isOccupied(toRank, toFile);
+        if (attacks && board.getPiece(fromRank, fromFile).getTag().equals(board.getPiece(toRank, toFile).getTag()))
+            return;
+
+        buffer.add(PackedMove.encode(board.getSquare(fromRank, fromFile), board.getSquare(toRank, toFile),
+                attacks ? PackedMove.FLAG_CAPTURE : 0));
+    }
+
+    /**
+     * Append the move at distance along a ray to the buffer if the target cell is available
+     * and no leap is needed
+     * @param fromRank source rank-coordinate
+     * @param fromFile source file-coordinate
+     * @param direction ray direction (AttackTables.DIRECTIONS)
+     * @param distance distance of move
+     * @param board rectangle chess board
+     * @param buffer buffer to append the packed move to
+     */
+    private static void addIfPathClear(int fromRank, int fromFile, int direction, int distance, RectangleBoard board, MoveBuffer buffer) {
+        int[] ray = board.getAttackTables().getRay(board.getSquare(fromRank, fromFile), direction);
+        if (distance > ray.length) return;
+
+        int toRank = board.getRank(ray[distance - 1]), toFile = board.getFile(ray[distance - 1]);
+        if (!board.isPathBlocked(fromRank, fromFile, toRank, toFile))
+            addIfSquareValid(fromRank, fromFile, toRank, toFile, board, buffer);
+    }
+
+    /**
+     * Append the moves along rays at every distance, as addIfPathClear at distances
+     * 1, 2, ... (a square is checked on its own, as the leap scan may pass blockers)
+     * @param square source square
+     * @param firstDirection first ray direction (AttackTables.DIRECTIONS)
+     * @param endDirection direction after the last
+     * @param board rectangle chess board
+     * @param buffer buffer to append the packed moves to
+     */
+    private static void addRays(int square, int firstDirection, int endDirection, RectangleBoard board, MoveBuffer buffer) {
+        int fromRank = board.getRank(square), fromFile = board.getFile(square);
+        for (int direction = firstDirection; direction < endDirection; direction++) {
+            for (int target : board.getAttackTables().getRay(square, direction)) {
+                int toRank = board.getRank(target), toFile = board.getFile(target);
+                if (!board.isPathBlocked(fromRank, fromFile, toRank, toFile))
+                    addIfSquareValid(fromRank, fromFile, toRank, toFile, board, buffer);
+            }
+        }
+    }
+
+    /**
+     * Get the move generator of the piece at a square, for the legal move generators,
+     * which may not name their own constant
+     * @param square occupied square
+     * @param board rectangle chess board
+     * @return move generator
+     */
+    private static Piece.MoveGenerator<RectangleBoard> generatorAt(int square, RectangleBoard board) {
+        return board.getPiece(board.getRank(square), board.getFile(square)).getGenerator();
+    }
 
+}
@@ -0,0 +1,157 @@
+package edu.xwei12.chess;
+
+import java.util.Arrays;
+
+/**
+ * Static evaluation terms: material and piece-square values by piece kind
+ * @author Xinran Wei
+ *
+ * A piece on a square is worth its kind's material value plus its kind's
+ * piece-square value for that square. Piece-square tables are written for
+ * StandardGame.PLAYER_A, square index rank * files + file with rank 0 at A's side;
+ * other players read them with the ranks mirrored. A position scores the sum over
+ * A's pieces minus the sum over the other pieces.
+ *
+ * A board given an evaluation (RectangleBoard.setEvaluation) keeps this score up to
+ * date as pieces are added, moved and removed, so reading it costs nothing. The
+ * board adds up the score when the evaluation is set, so change the values before
+ * that, or set the evaluation again afterwards. Kinds without values score 0.
+ */
+public class Evaluation {
+
+    /** Number of ranks and files the tables are for **/
+    private final int ranks, files;
+
+    /** Material value by kind id **/
+    private int[] values = new int[0];
+
+    /** Piece-square table by kind id, null if none **/
+    private int[][] tables = new int[0][];
+
+    /**
+     * Construct an evaluation without values for a board size
+     * @param ranks number of ranks
+     * @param files number of files
+     */
+    public Evaluation(int ranks, int files) {
+        if (ranks <= 0 || files <= 0)
+            throw new IllegalArgumentException("Invalid board size " + ranks + "x" + files);
+        this.ranks = ranks;
+        this.files = files;
+    }
+
+    /**
+     * Evaluation by material only, with the values of SearchEngine.getPieceValue
+     * @param ranks number of ranks
+     * @param files number of files
+     * @return evaluation
+     */
+    public static Evaluation material(int ranks, int files) {
+        Evaluation evaluation = new Evaluation(ranks, files);
+        for (DefaultPiece piece : DefaultPiece.values())
+            evaluation.setPieceValue(piece.getKind(), SearchEngine.getPieceValue(piece.getKind()));
+        for (ExtendedPiece piece : ExtendedPiece.values())
+            evaluation.setPieceValue(piece.getKind(), SearchEngine.getPieceValue(piece.getKind()));
+        return evaluation;
+    }
+
+    /**
+     * Evaluation by material and simple piece-square tables, for any board size:
+     * pawns and berolinas gain for advancing; knights, bishops, queens and
+     * grasshoppers for standing near the center
+     * @param ranks number of ranks
+     * @param files number of files
+     * @return evaluation
+     */
+    public static Evaluation standard(int ranks, int files) {
+        Evaluation evaluation = material(ranks, files);
+        int[] advance = new int[ranks * files], center = new int[ranks * files];
+        for (int rank = 0; rank < ranks; rank++) {
+            for (int file = 0; file < files; file++) {
+                // Twice the distance to the center, so even sizes stay integral
+                int offCenter = Math.abs(2 * rank - (ranks - 1)) + Math.abs(2 * file - (files - 1));
+                center[rank * files + file] = (ranks + files - 2 - offCenter) * 2;
+                advance[rank * files + file] = rank * 5;
+            }
+        }
+        evaluation.setPieceSquareTable(DefaultPiece.PAWN.getKind(), advance);
+        evaluation.setPieceSquareTable(ExtendedPiece.BEROLINA.getKind(), advance);
+        for (String kind : new String[] {DefaultPiece.KNIGHT.getKind(), DefaultPiece.BISHOP.getKind(),
+                DefaultPiece.QUEEN.getKind(), ExtendedPiece.GRASSHOPPER.getKind()})
+            evaluation.setPieceSquareTable(kind, center);
+        return evaluation;
+    }
+
+    public int getRanks() {
+        return ranks;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * Make room for a kind id
+     * @param kindId kind id
+     */
+    private void ensureKind(int kindId) {
+        if (kindId < values.length) return;
+        values = Arrays.copyOf(values, kindId + 1);
+        tables = Arrays.copyOf(tables, kindId + 1);
+    }
+
+    /**
+     * Set the material value of a piece kind
+     * @param kind name of kind
+     * @param value value
+     * @return this evaluation
+     */
+    public Evaluation setPieceValue(String kind, int value) {
+        int kindId = PieceIndex.kindIdOf(kind);
+        ensureKind(kindId);
+        values[kindId] = value;
+        return this;
+    }
+
+    /**
+     * Get the material value of a piece kind
+     * @param kind name of kind
+     * @return value, 0 if not set
+     */
+    public int getPieceValue(String kind) {
+        int kindId = PieceIndex.findKindId(kind);
+        return kindId >= 0 && kindId < values.length ? values[kindId] : 0;
+    }
+
+    /**
+     * Set the piece-square table of a piece kind
+     * @param kind name of kind
+     * @param table value per square from PLAYER_A's side (copied), or null for none
+     * @return this evaluation
+     */
+    public Evaluation setPieceSquareTable(String kind, int[] table) {
+        if (table != null && table.length != ranks * files)
+            throw new IllegalArgumentException("Table has " + table.length + " squares, expected " + ranks * files);
+        int kindId = PieceIndex.kindIdOf(kind);
+        ensureKind(kindId);
+        tables[kindId] = table == null ? null : table.clone();
+        return this;
+    }
+
+    /**
+     * Get the value of a piece on a square
+     * @param piece piece
+     * @param square square index
+     * @return value, positive for PLAYER_A's pieces and negative for others
+     */
+    public int score(Piece<?, ?> piece, int square) {
+        int kindId = piece.getKindId();
+        if (kindId >= values.length) return 0;
+        boolean own = piece.getTag() == StandardGame.PLAYER_A;
+        int value = values[kindId];
+        int[] table = tables[kindId];
+        if (table != null)
+            value += table[own ? square : (ranks - 1 - square / files) * files + square % files];
+        return own ? value : -value;
+    }
+}
@@ -23,17 +23,17 @@ public enum ExtendedPiece {
         if (distance == 1 || (distance == 2 && (x == 1 || x == ranks - 2))) {
 
             // Does not attack diagonally
-            RectanglePosition diagonal1 = new RectanglePosition(x + playerDirection, y + 1);
+            RectanglePosition diagonal1 = RectanglePosition.of(x + playerDirection, y + 1);
             if (board.isValidPosition(diagonal1) && !board.pieceExists(diagonal1)) {
                 positionSet.add(diagonal1);
             }
-            RectanglePosition diagonal2 = new RectanglePosition(x + playerDirection, y - 1);
+            RectanglePosition diagonal2 = RectanglePosition.of(x + playerDirection, y - 1);
             if (board.isValidPosition(diagonal2) && !board.pieceExists(diagonal2)) {
                 positionSet.add(diagonal2);
             }
 
             // Attacks forwards
-            RectanglePosition forward = new RectanglePosition(x + distance * playerDirection, y);
+            RectanglePosition forward = RectanglePosition.of(x + distance * playerDirection, y);
             if (distance == 1 && board.isValidPosition(forward) && board.pieceExists(forward)
                               && !board.getPiece(forward).getTag().equals(board.getPiece(position).getTag())) {
                 positionSet.add(forward);
@@ -41,6 +41,32 @@ public enum ExtendedPiece {
         }
 
         return positionSet;
+    }, (int square, RectangleBoard board, int distance, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+        int ranks = board.getRanks();
+        int playerDirection = board.getPiece(x, y).getTag();
+
+        /* If at initial rank, advance by 2 along the file */
+        if (distance == 1 || (distance == 2 && (x == 1 || x == ranks - 2))) {
+
+            // Does not attack diagonally
+            if (board.isValidPosition(x + playerDirection, y + 1) && !board.isOccupied(x + playerDirection, y + 1)) {
+                buffer.add(PackedMove.encode(square, board.getSquare(x + playerDirection, y + 1), 0));
+            }
+            if (board.isValidPosition(x + playerDirection, y - 1) && !board.isOccupied(x + playerDirection, y - 1)) {
+                buffer.add(PackedMove.encode(square, board.getSquare(x + playerDirection, y - 1), 0));
+            }
+
+            // Attacks forwards
+            int forward = x + distance * playerDirection;
+            if (distance == 1 && board.isValidPosition(forward, y) && board.isOccupied(forward, y)
+                              && !board.getPiece(forward, y).getTag().equals(board.getPiece(x, y).getTag())) {
+                buffer.add(PackedMove.encode(square, board.getSquare(forward, y), PackedMove.FLAG_CAPTURE));
+            }
+        }
+    }, (int square, RectangleBoard board, MoveBuffer buffer) -> {
+        // All moves are at distance 1; the double step has no move at distance 2
+        generatorAt(square, board).generate(square, board, 1, buffer);
     }),
 
     /**
@@ -51,14 +77,14 @@ public enum ExtendedPiece {
         int x = position.rank, y = position.file;
 
         Set<RectanglePosition> positionSet = new HashSet<RectanglePosition>() {{
-            add(new RectanglePosition(x + distance, y));
-            add(new RectanglePosition(x, y + distance));
-            add(new RectanglePosition(x - distance, y));
-            add(new RectanglePosition(x, y - distance));
-            add(new RectanglePosition(x + distance, y + distance));
-            add(new RectanglePosition(x - distance, x - distance));
-            add(new RectanglePosition(x - distance, x + distance));
-            add(new RectanglePosition(x + distance, x - distance));
+            add(RectanglePosition.of(x + distance, y));
+            add(RectanglePosition.of(x, y + distance));
+            add(RectanglePosition.of(x - distance, y));
+            add(RectanglePosition.of(x, y - distance));
+            add(RectanglePosition.of(x + distance, y + distance));
+            add(RectanglePosition.of(x - distance, x - distance));
+            add(RectanglePosition.of(x - distance, x + distance));
+            add(RectanglePosition.of(x + distance, x - distance));
         }};
 
         // Remove destinations that don't require leaps
@@ -71,6 +97,35 @@ public enum ExtendedPiece {
                                       board.getPiece(dest).getTag().equals(board.getPiece(position).getTag()));
 
         return positionSet;
+    }, (int square, RectangleBoard board, int distance, MoveBuffer buffer) -> {
+        int x = board.getRank(square), y = board.getFile(square);
+
+        addIfLeapValid(x, y, x + distance, y, board, buffer);
+        addIfLeapValid(x, y, x, y + distance, board, buffer);
+        addIfLeapValid(x, y, x - distance, y, board, buffer);
+        addIfLeapValid(x, y, x, y - distance, board, buffer);
+        addIfLeapValid(x, y, x + distance, y + distance, board, buffer);
+        addIfLeapValid(x, y, x - distance, x - distance, board, buffer);
+        addIfLeapValid(x, y, x - distance, x + distance, board, buffer);
+        addIfLeapValid(x, y, x + distance, x - distance, board, buffer);
+    }, (int square, RectangleBoard board, MoveBuffer buffer) -> {
+        // Candidates do not always lie at the distance asked for, so filter per distance
+        int x = board.getRank(square), y = board.getFile(square);
+        int maxDistance = Math.max(board.getRanks(), board.getFiles()) - 1;
+        for (int distance = -1; distance <= maxDistance; distance++) {
+            if (distance == 0) continue;
+            int start = buffer.size();
+            generatorAt(square, board).generate(square, board, distance, buffer);
+            int end = start;
+            for (int i = start; i < buffer.size(); i++) {
+                int move = buffer.get(i);
+                int destination = PackedMove.getDestination(move);
+                if (RectanglePosition.distance(x, y, board.getRank(destination), board.getFile(destination)) != distance) continue;
+                if (containsDestination(buffer, start, end, destination)) continue;
+                buffer.set(end++, move);
+            }
+            buffer.truncate(end);
+        }
     }),
 
 
@@ -79,12 +134,24 @@ public enum ExtendedPiece {
     /** Chess piece **/
     private Piece.MoveFunction<RectangleBoard, RectanglePosition> mover;
 
+    /** Allocation-free move generator **/
+    private Piece.MoveGenerator<RectangleBoard> generator;
+
+    /** One-pass generator of all accepted moves **/
+    private Piece.LegalMoveGenerator<RectangleBoard> legalGenerator;
+
     /**
      * Constructor, unused but required
      * @param mover mover function
+     * @param generator generator producing the same moves as mover
+     * @param legalGenerator generator of all moves canMovePiece accepts
      */
-    ExtendedPiece(Piece.MoveFunction<RectangleBoard, RectanglePosition> mover) {
+    ExtendedPiece(Piece.MoveFunction<RectangleBoard, RectanglePosition> mover,
+                  Piece.MoveGenerator<RectangleBoard> generator,
+                  Piece.LegalMoveGenerator<RectangleBoard> legalGenerator) {
         this.mover = mover;
+        this.generator = generator;
+        this.legalGenerator = legalGenerator;
     }
 
     /**
@@ -101,7 +168,7 @@ public enum ExtendedPiece {
      * @return piece
      */
     public Piece<RectangleBoard, RectanglePosition> newPieceWithTag(int tag) {
-        return new Piece<>(name().toLowerCase(), tag, mover);
+        return new Piece<>(name().toLowerCase(), tag, mover, generator, legalGenerator);
     }
 
     /**
@@ -111,4 +178,74 @@ public enum ExtendedPiece {
     public Piece.MoveFunction<RectangleBoard, RectanglePosition> getMover() {
         return mover;
     }
+
+    /**
+     * Get move generator
+     * @return generator :: (square, board, distance, buffer) -> ()
+     */
+    public Piece.MoveGenerator<RectangleBoard> getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Get one-pass generator of all accepted moves
+     * @return legalGenerator :: (square, board, buffer) -> ()
+     */
+    public Piece.LegalMoveGenerator<RectangleBoard> getLegalGenerator() {
+        return legalGenerator;
+    }
+
+    /**
+     * Determine whether a range of a buffer holds a move to a destination
+     * @param buffer buffer
+     * @param start first index
+     * @param end index after the last
+     * @param destination destination square
+     * @return found or not
+     */
+    private static boolean containsDestination(MoveBuffer buffer, int start, int end, int destination) {
+        for (int i = start; i < end; i++)
+            if (PackedMove.getDestination(buffer.get(i)) == destination)
+                return true;
+        return false;
+    }
+
+    /**
+     * Append a grasshopper move to the buffer if the destination is on the board,
+     * lands right behind a leap and is not cannibalism
+     * @param fromRank source rank-coordinate
+     * @param fromFile source file-coordinate
+     * @param toRank destination rank-coordinate
+     * @param toFile destination file-coordinate
+     * @param board rectangle chess board
+     * @param buffer buffer to append the packed move to
+     */
+    private static void addIfLeapValid(int fromRank, int fromFile, int toRank, int toFile, RectangleBoard board, MoveBuffer buffer) {
+        if (!board.isValidPosition(toRank, toFile)) return;
+
+        // Must land right behind a leap
+        int leap = board.findNearestLeap(fromRank, fromFile, toRank, toFile);
+        if (leap < 0 || RectanglePosition.distance(board.getRank(leap), board.getFile(leap), toRank, toFile) > 1)
+            return;
+
+        // No cannibalism
+        boolean attacks = board.isOccupied(toRank, toFile);
+        if (attacks && board.getPiece(toRank, toFile).getTag().equals(board.getPiece(fromRank, fromFile).getTag()))
+            return;
+
+        buffer.add(PackedMove.encode(board.getSquare(fromRank, fromFile), board.getSquare(toRank, toFile),
+                attacks ? PackedMove.FLAG_CAPTURE : 0));
+    }
+
+    /**
+     * Get the move generator of the piece at a square, for the legal move generators,
+     * which may not name their own constant
+     * @param square occupied square
+     * @param board rectangle chess board
+     * @return move generator
+     */
+    private static Piece.MoveGenerator<RectangleBoard> generatorAt(int square, RectangleBoard board) {
+        return board.getPiece(board.getRank(square), board.getFile(square)).getGenerator();
+    }
+
 }
@@ -0,0 +1,247 @@
+package edu.xwei12.chess;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FEN-style position import and export for rectangle boards
+ * @author Xinran Wei
+ *
+ * Format: "placement turn", e.g. the initial position
+ *     rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w
+ * Placement lists ranks from the last (ranks - 1) down to 0, separated by '/'.
+ * Within a rank, files go from 0 up; a number (possibly several digits, for wide
+ * boards) skips that many empty squares. The board size is implied by the placement.
+ * Pieces: K king, Q queen, R rook, B bishop, N knight, P pawn, G grasshopper,
+ * E berolina pawn; uppercase for PLAYER_A, lowercase for PLAYER_B.
+ * Turn: 'w' for PLAYER_A, 'b' for PLAYER_B; optional, defaulting to PLAYER_A.
+ *
+ * Parsing reads the characters in place, without splitting or regular expressions,
+ * and places shared piece instances (pieces hold no per-board state).
+ */
+public final class Fen {
+
+    /** Initial position of StandardGame **/
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w";
+
+    /** Shared pieces of player A and B, by uppercase letter **/
+    private static final Piece<RectangleBoard, RectanglePosition>[] piecesA = newPieceArray();
+    private static final Piece<RectangleBoard, RectanglePosition>[] piecesB = newPieceArray();
+
+    /** Uppercase letter of each piece kind **/
+    private static final Map<String, Character> letters = new HashMap<>();
+
+    static {
+        register('K', DefaultPiece.KING.getKind(), DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_A), DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_B));
+        register('Q', DefaultPiece.QUEEN.getKind(), DefaultPiece.QUEEN.newPieceWithTag(StandardGame.PLAYER_A), DefaultPiece.QUEEN.newPieceWithTag(StandardGame.PLAYER_B));
+        register('R', DefaultPiece.ROOK.getKind(), DefaultPiece.ROOK.newPieceWithTag(StandardGame.PLAYER_A), DefaultPiece.ROOK.newPieceWithTag(StandardGame.PLAYER_B));
+        register('B', DefaultPiece.BISHOP.getKind(), DefaultPiece.BISHOP.newPieceWithTag(StandardGame.PLAYER_A), DefaultPiece.BISHOP.newPieceWithTag(StandardGame.PLAYER_B));
+        register('N', DefaultPiece.KNIGHT.getKind(), DefaultPiece.KNIGHT.newPieceWithTag(StandardGame.PLAYER_A), DefaultPiece.KNIGHT.newPieceWithTag(StandardGame.PLAYER_B));
+        register('P', DefaultPiece.PAWN.getKind(), DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_A), DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_B));
+        register('G', ExtendedPiece.GRASSHOPPER.getKind(), ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_A), ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B));
+        register('E', ExtendedPiece.BEROLINA.getKind(), ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_A), ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_B));
+    }
+
+    /** Not instantiable **/
+    private Fen() {}
+
+    /**
+     * Make a piece array indexed by letter
+     * @return array
+     */
+    @SuppressWarnings("unchecked")
+    private static Piece<RectangleBoard, RectanglePosition>[] newPieceArray() {
+        return (Piece<RectangleBoard, RectanglePosition>[]) new Piece<?, ?>[128];
+    }
+
+    /**
+     * Register a piece letter
+     * @param letter uppercase letter
+     * @param kind piece kind
+     * @param pieceA piece of player A
+     * @param pieceB piece of player B
+     */
+    private static void register(char letter, String kind, Piece<RectangleBoard, RectanglePosition> pieceA, Piece<RectangleBoard, RectanglePosition> pieceB) {
+        piecesA[letter] = pieceA;
+        piecesB[letter] = pieceB;
+        letters.put(kind, letter);
+    }
+
+    /**
+     * Parse a position into a new board of the implied size
+     * @param fen position
+     * @return board
+     */
+    public static RectangleBoard parseBoard(CharSequence fen) {
+        int[] size = measure(fen);
+        RectangleBoard board = new RectangleBoard(size[0], size[1]);
+        place(fen, board);
+        return board;
+    }
+
+    /**
+     * Parse a position into a new standard game
+     * @param fen position on an 8x8 board
+     * @return game, without history
+     */
+    public static StandardGame parseGame(CharSequence fen) {
+        StandardGame game = new StandardGame(new RectangleBoard(8, 8), false);
+        load(fen, game);
+        return game;
+    }
+
+    /**
+     * Start a game over from a position (Game.setPosition): the move history and
+     * state are reset. The position is parsed in full first, so a malformed one
+     * leaves the game untouched.
+     * @param fen position of the game's board size
+     * @param game game
+     */
+    public static void load(CharSequence fen, StandardGame game) {
+        RectangleBoard board = game.getBoard();
+        int[] size = measure(fen);
+        if (size[0] != board.getRanks() || size[1] != board.getFiles())
+            throw new IllegalArgumentException("Position is " + size[0] + "x" + size[1]
+                    + ", board is " + board.getRanks() + "x" + board.getFiles());
+        RectangleBoard scratch = new RectangleBoard(size[0], size[1]);
+        int turn = place(fen, scratch);
+        game.setPosition(b -> {
+            for (RectanglePosition position : scratch.getAllPieces())
+                b.addPiece(scratch.getPiece(position), position);
+        }, turn);
+    }
+
+    /**
+     * Find the board size implied by a placement
+     * @param fen position
+     * @return {ranks, files}
+     */
+    static int[] measure(CharSequence fen) {
+        int ranks = 1, files = -1, width = 0, count = 0;
+        int i = 0, length = fen.length();
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c >= '0' && c <= '9') {
+                count = count * 10 + (c - '0');
+                continue;
+            }
+            width += count;
+            count = 0;
+            if (c == '/') {
+                if (files >= 0 && width != files)
+                    throw new IllegalArgumentException("Rank " + ranks + " from the top has " + width + " files, expected " + files);
+                files = width;
+                width = 0;
+                ranks++;
+            } else {
+                width++;
+            }
+        }
+        width += count;
+        if (files >= 0 && width != files)
+            throw new IllegalArgumentException("Rank " + ranks + " from the top has " + width + " files, expected " + files);
+        if (width == 0)
+            throw new IllegalArgumentException("Empty placement");
+        return new int[] {ranks, width};
+    }
+
+    /**
+     * Place the pieces of a position on an empty board of the right size
+     * @param fen position
+     * @param board board
+     * @return player in turn
+     */
+    private static int place(CharSequence fen, RectangleBoard board) {
+        int rank = board.getRanks() - 1, file = 0;
+        int i = 0, length = fen.length();
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (c >= '0' && c <= '9') {
+                int count = c - '0';
+                while (i + 1 < length && fen.charAt(i + 1) >= '0' && fen.charAt(i + 1) <= '9')
+                    count = count * 10 + (fen.charAt(++i) - '0');
+                file += count;
+            } else {
+                board.addPiece(pieceOf(c, i), RectanglePosition.of(rank, file++));
+            }
+        }
+
+        // Turn
+        while (i < length && fen.charAt(i) == ' ') i++;
+        if (i == length) return StandardGame.PLAYER_A;
+        char turn = fen.charAt(i);
+        if (i + 1 < length && fen.charAt(i + 1) != ' ')
+            throw new IllegalArgumentException("Unknown turn at " + i + ": " + fen.subSequence(i, length));
+        if (turn == 'w') return StandardGame.PLAYER_A;
+        if (turn == 'b') return StandardGame.PLAYER_B;
+        throw new IllegalArgumentException("Unknown turn at " + i + ": " + turn);
+    }
+
+    /**
+     * Get the shared piece of a letter
+     * @param c letter
+     * @param index index in the text, for errors
+     * @return piece
+     */
+    private static Piece<RectangleBoard, RectanglePosition> pieceOf(char c, int index) {
+        Piece<RectangleBoard, RectanglePosition> piece = null;
+        if (c >= 'A' && c <= 'Z') piece = piecesA[c];
+        else if (c >= 'a' && c <= 'z') piece = piecesB[c - 'a' + 'A'];
+        if (piece == null) throw new IllegalArgumentException("Unknown piece at " + index + ": " + c);
+        return piece;
+    }
+
+    /**
+     * Write the position of a game
+     * @param game game
+     * @return position
+     */
+    public static String toFen(StandardGame game) {
+        return toFen(game.getBoard(), game.getPlayerToMove());
+    }
+
+    /**
+     * Write a position
+     * @param board board
+     * @param player player in turn
+     * @return position
+     */
+    public static String toFen(RectangleBoard board, int player) {
+        StringBuilder builder = new StringBuilder(board.getRanks() * (board.getFiles() + 1) + 2);
+        appendFen(board, player, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Append a position to a builder
+     * @param board board
+     * @param player player in turn
+     * @param builder builder
+     */
+    public static void appendFen(RectangleBoard board, int player, StringBuilder builder) {
+        for (int rank = board.getRanks() - 1; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < board.getFiles(); file++) {
+                Piece<RectangleBoard, RectanglePosition> piece = board.getPiece(rank, file);
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    builder.append(empty);
+                    empty = 0;
+                }
+                Character letter = letters.get(piece.getKind());
+                if (letter == null)
+                    throw new IllegalArgumentException("No letter for piece kind " + piece.getKind());
+                builder.append(piece.getTag() == StandardGame.PLAYER_B ? Character.toLowerCase(letter) : letter.charValue());
+            }
+            if (empty > 0) builder.append(empty);
+            if (rank > 0) builder.append('/');
+        }
+        builder.append(' ').append(player == StandardGame.PLAYER_B ? 'b' : 'w');
+    }
+}
@@ -1,9 +1,15 @@
 package edu.xwei12.chess;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Game base class
@@ -27,8 +33,39 @@ public abstract class Game<B extends Board<B, C>, C extends Coordinates<C>> {
         }
     }
 
+    /**
+     * Get the last move, decoded from the move history
+     * @return move, or null if no move has been made
+     */
     public Move getLastMove() {
-        return moveHistory.isEmpty() ? null : moveHistory.peek();
+        return moveHistorySize == 0 ? null : decodeMove(moveHistory[moveHistorySize - 1]);
+    }
+
+    /**
+     * Get the player of the last move
+     * @return player tag, or null if no move has been made
+     */
+    public Integer getLastPlayer() {
+        return moveHistorySize == 0 ? null : playerOf(moveHistory[moveHistorySize - 1]);
+    }
+
+    /**
+     * Get number of moves in the history
+     * @return number of moves
+     */
+    public int getMoveCount() {
+        return moveHistorySize;
+    }
+
+    /**
+     * Get a move of the history as a packed move (source and destination as Board.indexOf)
+     * @param index index in the history, 0 being the first move
+     * @return packed move
+     */
+    public int getPackedMove(int index) {
+        if (index < 0 || index >= moveHistorySize)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + moveHistorySize);
+        return (int) moveHistory[index];
     }
 
     public enum State {
@@ -80,12 +117,47 @@ public abstract class Game<B extends Board<B, C>, C extends Coordinates<C>> {
     private GameObserver<B, C> observer = null;
     private Set<Integer> players;
     private String criticalPieceKind;
-    private Stack<Move> moveHistory = null;
     private Integer playerTurn = 0;
     private C defeaterPosition = null;
+    /** Player credited for the checkmate, lowered again on undo **/
+    private Integer defeaterTag = null;
 
     private ScoreManager scoreManager;
 
+    private CheckDetector<B, C> checkDetector;
+
+    /**
+     * Move history, one long per move:
+     *     bits  0-31  PackedMove (source, destination, FLAG_CAPTURE)
+     *     bits 32-47  victim id + 1, 0 if nothing was captured
+     *     bits 48-63  player id
+     * Ids index the victims and movers tables below.
+     **/
+    private long[] moveHistory = new long[64];
+    private int moveHistorySize = 0;
+
+    /** Captured pieces by victim id, and the reverse mapping **/
+    private final List<Piece<B, C>> victims = new ArrayList<>();
+    private final Map<Piece<B, C>, Integer> victimIds = new IdentityHashMap<>();
+
+    /** Moving players by player id, and the reverse mapping **/
+    private final List<Integer> movers = new ArrayList<>();
+    private final Map<Integer, Integer> moverIds = new HashMap<>();
+
+    /** Whether moves save a copy of the board, restored on undo (copy-make) **/
+    private boolean copyMake = false;
+
+    /** Whether moves and undos skip the observer, the score and onPositionChanged **/
+    private boolean quiet = false;
+
+    /** Board before each move in history, reused across moves; valid where boardSaved is set **/
+    private Object[] savedBoards = new Object[0];
+    private final BitSet boardSaved = new BitSet();
+
+    /** Position hashes before each move in history **/
+    private long[] hashHistory = new long[64];
+    private int hashHistorySize = 0;
+
 
     /**
      * Initialize with a board
@@ -94,13 +166,24 @@ public abstract class Game<B extends Board<B, C>, C extends Coordinates<C>> {
      * @param players set of player tags
      */
     public Game(B board, String criticalPieceKind, Set<Integer> players) {
+        this(board, criticalPieceKind, players, true);
+    }
+
+    /**
+     * Initialize with a board, set up or taken as it is
+     * @param board chess board
+     * @param criticalPieceKind the kind of piece to determine checkmate
+     * @param players set of player tags
+     * @param initialize whether to place the initial pieces (initialize)
+     */
+    protected Game(B board, String criticalPieceKind, Set<Integer> players, boolean initialize) {
         this.board = board;
         this.criticalPieceKind = criticalPieceKind;
         this.players = players;
-        moveHistory = new Stack<>();
         scoreManager = new ScoreManager();
+        checkDetector = new CheckDetector<>(board, criticalPieceKind);
 
-        initialize();
+        if (initialize) initialize();
     }
 
     /**
@@ -130,14 +213,233 @@ public abstract class Game<B extends Board<B, C>, C extends Coordinates<C>> {
 
 
         if (board.canMovePiece(move.source, move.destination)) {
+            checkRecordable(move);
+            if (copyMake) saveBoard(moveHistorySize);
+            else boardSaved.clear(moveHistorySize);
+            pushHash(getPositionHash());
+            long count = board.getModificationCount();
             board.movePiece(move.source, move.destination);
+            checkDetector.update(count, Arrays.asList(move.source, move.destination));
             updateState(move);
+            if (!quiet) onPositionChanged();
             return true;
         }
 
         return false;
     }
 
+    /**
+     * Get the Zobrist hash of the position, including the player in turn
+     * @return position hash
+     */
+    public long getPositionHash() {
+        return board.getPositionHash() ^ Zobrist.turnKey(playerTurn);
+    }
+
+    /**
+     * Get how many times the current position has occurred in this game, including now.
+     * Only positions since the last capture are compared: a capture takes a piece off
+     * for good, so no position before it can occur again.
+     * @return repetition count
+     */
+    public int getRepetitionCount() {
+        long hash = getPositionHash();
+        int count = 1;
+        for (int i = hashHistorySize - 1; i >= 0 && !PackedMove.isCapture((int) moveHistory[i]); i--)
+            if (hashHistory[i] == hash)
+                count++;
+        return count;
+    }
+
+    /**
+     * Push a position hash onto the hash history
+     * @param hash position hash
+     */
+    private void pushHash(long hash) {
+        if (hashHistorySize == hashHistory.length)
+            hashHistory = Arrays.copyOf(hashHistory, hashHistorySize * 2);
+        hashHistory[hashHistorySize++] = hash;
+    }
+
+    /**
+     * Determine whether moves are made by copy-make
+     * @return copy-make or make/unmake
+     */
+    public boolean isCopyMake() {
+        return copyMake;
+    }
+
+    /**
+     * Choose copy-make: each move first copies the board (Board.copyInto, into a
+     * board kept per history index and reused) and undo restores the copy
+     * instead of moving the piece back. Moves already made are undone the way
+     * they were made.
+     * @param copyMake copy-make or make/unmake (default)
+     * @throws UnsupportedOperationException if the board cannot be copied
+     */
+    public void setCopyMake(boolean copyMake) {
+        // Fail now rather than on the next move
+        if (copyMake) saveBoard(moveHistorySize);
+        this.copyMake = copyMake;
+    }
+
+    /**
+     * Determine whether moves are made quietly
+     * @return quiet or not
+     */
+    boolean isQuiet() {
+        return quiet;
+    }
+
+    /**
+     * Make moves and undos quietly, as a search does: the observer is not notified,
+     * the score is not kept and onPositionChanged is not called. Moves made quietly
+     * must be undone quietly.
+     * @param quiet quiet or not (default)
+     */
+    void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    /**
+     * Save the board before a move
+     * @param index index of the move in the history
+     */
+    private void saveBoard(int index) {
+        if (index >= savedBoards.length)
+            savedBoards = Arrays.copyOf(savedBoards, Math.max(16, savedBoards.length * 2));
+        if (savedBoards[index] == null) savedBoards[index] = board.copy();
+        else board.copyInto(savedBoard(index));
+        boardSaved.set(index);
+    }
+
+    /**
+     * Restore the board saved before a move
+     * @param index index of the move in the history
+     */
+    private void restoreBoard(int index) {
+        savedBoard(index).copyInto(board);
+        boardSaved.clear(index);
+    }
+
+    /**
+     * Get the board saved before a move
+     * @param index index of the move in the history
+     * @return board
+     */
+    @SuppressWarnings("unchecked")
+    private B savedBoard(int index) {
+        return (B) savedBoards[index];
+    }
+
+    /**
+     * Make sure a move fits in the move history, before it changes the board
+     * @param move move, with victim set
+     */
+    private void checkRecordable(Move move) {
+        int source = board.indexOf(move.source), destination = board.indexOf(move.destination);
+        if (source >= PackedMove.MAX_SQUARES || destination >= PackedMove.MAX_SQUARES)
+            throw new IllegalStateException("Board too large for move history: " + Math.max(source, destination));
+        boolean newVictim = move.attacks && move.victim != null && !victimIds.containsKey(move.victim);
+        boolean newMover = !moverIds.containsKey(move.player);
+        if ((newVictim && victims.size() >= 0xffff) || (newMover && movers.size() > 0xffff))
+            throw new IllegalStateException("Too many distinct victims or players for move history");
+    }
+
+    /**
+     * Push a move onto the move history; checkRecordable must have accepted it
+     * @param move move, with victim set
+     */
+    private void pushMove(Move move) {
+        int source = board.indexOf(move.source), destination = board.indexOf(move.destination);
+        long victimId = 0;
+        if (move.attacks && move.victim != null) {
+            Integer id = victimIds.get(move.victim);
+            if (id == null) {
+                id = victims.size();
+                victims.add(move.victim);
+                victimIds.put(move.victim, id);
+            }
+            victimId = id + 1;
+        }
+        Integer playerId = moverIds.get(move.player);
+        if (playerId == null) {
+            playerId = movers.size();
+            movers.add(move.player);
+            moverIds.put(move.player, playerId);
+        }
+
+        int packed = PackedMove.encode(source, destination, victimId != 0 ? PackedMove.FLAG_CAPTURE : 0);
+        if (moveHistorySize == moveHistory.length)
+            moveHistory = Arrays.copyOf(moveHistory, moveHistorySize * 2);
+        moveHistory[moveHistorySize++] = (packed & 0xffffffffL) | (victimId << 32) | ((long) playerId << 48);
+    }
+
+    /**
+     * Decode a move of the history
+     * @param move history entry
+     * @return move
+     */
+    private Move decodeMove(long move) {
+        Move decoded = new Move(playerOf(move),
+                board.positionAt(PackedMove.getSource((int) move)),
+                board.positionAt(PackedMove.getDestination((int) move)));
+        decoded.victim = victimOf(move);
+        decoded.attacks = decoded.victim != null;
+        return decoded;
+    }
+
+    /**
+     * Get the victim of a move of the history
+     * @param move history entry
+     * @return captured piece, or null
+     */
+    private Piece<B, C> victimOf(long move) {
+        int id = (int) (move >>> 32) & 0xffff;
+        return id == 0 ? null : victims.get(id - 1);
+    }
+
+    /**
+     * Get the player of a move of the history
+     * @param move history entry
+     * @return player tag
+     */
+    private Integer playerOf(long move) {
+        return movers.get((int) (move >>> 48) & 0xffff);
+    }
+
+    /**
+     * Determine whether any critical piece (e.g., King) of a player can be attacked
+     * @param player player tag
+     * @return in check or not
+     */
+    public boolean isInCheck(Integer player) {
+        for (C king : checkDetector.getCriticalPositions()) {
+            if (!player.equals(board.getPiece(king).getTag())) continue;
+            for (C attacker : checkDetector.getAttackers(king))
+                if (!player.equals(board.getPiece(attacker).getTag()))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get positions of all pieces that can move onto (attack) a position
+     * @param position position
+     * @return attacker positions
+     */
+    public Set<C> attackersOf(C position) {
+        // Critical pieces are tracked incrementally
+        List<C> attackers = checkDetector.getAttackers(position);
+        if (attackers != null) return new HashSet<>(attackers);
+
+        Set<C> set = new HashSet<>();
+        for (C piece : board.getAllPieces())
+            if (board.canMovePiece(piece, position))
+                set.add(piece);
+        return set;
+    }
+
     /**
      * Update player turn
      */
@@ -153,31 +455,41 @@ public abstract class Game<B extends Board<B, C>, C extends Coordinates<C>> {
      * @return success
      */
     public boolean undo() {
-        if (moveHistory.isEmpty()) return false;
+        if (moveHistorySize == 0) return false;
 
         // Move back
-        Move move = moveHistory.pop();
-        Integer player = move.player;
-        C lastSrc = move.source;
-        C lastDest = move.destination;
-        board.movePiece(lastDest, lastSrc);
-
-        // Add piece back
-        if (move.attacks)
-            board.addPiece(move.victim, lastDest);
+        long move = moveHistory[--moveHistorySize];
+        if (hashHistorySize > 0) hashHistorySize--;
+        C lastSrc = board.positionAt(PackedMove.getSource((int) move));
+        C lastDest = board.positionAt(PackedMove.getDestination((int) move));
+        long count = board.getModificationCount();
+        if (boardSaved.get(moveHistorySize)) {
+            // Copy-make: restore the board as it was
+            restoreBoard(moveHistorySize);
+        } else {
+            board.movePiece(lastDest, lastSrc);
+
+            // Add piece back
+            Piece<B, C> victim = victimOf(move);
+            if (victim != null)
+                board.addPiece(victim, lastDest);
+        }
+        checkDetector.update(count, Arrays.asList(lastSrc, lastDest));
 
         // Reset player turn
-        playerTurn = move.player;
+        playerTurn = playerOf(move);
 
         // Restore score if checkmated
         if (state == State.CHECKMATE) {
-            scoreManager.lower(board.getPiece(defeaterPosition).getTag(), 1);
+            if (!quiet) scoreManager.lower(defeaterTag, 1);
             defeaterPosition = null;
+            defeaterTag = null;
         }
 
         // Reset state
         state = State.NORMAL;
 
+        if (!quiet) onPositionChanged();
         return true;
     }
 
@@ -185,14 +497,38 @@ public abstract class Game<B extends Board<B, C>, C extends Coordinates<C>> {
      * Restart game
      */
     public void restart() {
-        moveHistory.removeAllElements();
+        setPosition(b -> initialize(), 0);
+    }
+
+    /**
+     * Start over from another position: the board is emptied and set up again, and
+     * the move history and state are reset, as on restart
+     * @param setup action placing the pieces on the emptied board
+     * @param playerTurn player in turn
+     */
+    public void setPosition(Consumer<? super B> setup, Integer playerTurn) {
+        moveHistorySize = 0;
+        boardSaved.clear();
+        hashHistorySize = 0;
+        victims.clear();
+        victimIds.clear();
+        movers.clear();
+        moverIds.clear();
         board.removeAllPieces();
-        // Reinitialize board
-        initialize();
-        // Reset turn
-        playerTurn = 0;
+        setup.accept(board);
+        checkDetector.invalidate();
+        this.playerTurn = playerTurn;
         // Reset state
         state = State.NORMAL;
+        defeaterPosition = null;
+        defeaterTag = null;
+        onPositionChanged();
+    }
+
+    /**
+     * Called after the position changed by a move, an undo or a restart
+     */
+    protected void onPositionChanged() {
     }
 
     /**
@@ -202,31 +538,40 @@ public abstract class Game<B extends Board<B, C>, C extends Coordinates<C>> {
     protected void updateState(Move move) {
         state = State.NORMAL;
 
-        moveHistory.push(move);
+        pushMove(move);
 
         // Update player turn
         updateTurn();
 
         // Set of Kings
-        Set<C> kingPositions = board.getPiecesByKind(criticalPieceKind).stream()
-                .collect(Collectors.toSet());
+        List<C> kingPositions = checkDetector.getCriticalPositions();
 
         // Find the piece that can attack the King!
-        Optional<C> defeater = board.getAllPieces().stream()
-                .filter(x -> kingPositions.stream()
-                        .anyMatch(y -> board.canMovePiece(x, y)))
-                .filter(x -> (moveHistory.isEmpty()) || !getLastMove().player.equals(board.getPiece(x).getTag()))
-                .findFirst();
+        C defeater = null;
+        for (C king : kingPositions) {
+            for (C attacker : checkDetector.getAttackers(king)) {
+                if (!move.player.equals(board.getPiece(attacker).getTag())) {
+                    defeater = attacker;
+                    break;
+                }
+            }
+            if (defeater != null) break;
+        }
+
+        // A King was captured: the capturer wins
+        if (defeater == null && kingPositions.size() < 2)
+            defeater = move.destination;
 
         // Found defeater!
-        if (kingPositions.size() < 2 || defeater.isPresent()) {
-            defeaterPosition = defeater.get();
+        if (defeater != null) {
+            defeaterPosition = defeater;
+            defeaterTag = board.getPiece(defeater).getTag();
             state = State.CHECKMATE;
-            scoreManager.raise(board.getPiece(defeater.get()).getTag(), 1);
+            if (!quiet) scoreManager.raise(defeaterTag, 1);
         }
 
         // Notify observer
-        if (observer != null) {
+        if (observer != null && !quiet) {
             observer.onChessGameStateUpdate(this, move);
         }
     }
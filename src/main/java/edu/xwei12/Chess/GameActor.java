@@ -0,0 +1,208 @@
+package edu.xwei12.chess;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Single-writer mailbox around a game
+ * @author Xinran Wei
+ *
+ * Requests from any thread are queued in a lock-free mailbox and applied to the game
+ * one at a time, in arrival order, by whichever executor thread currently runs the
+ * actor; at most one thread runs an actor at a time, so the game needs no locks and
+ * many actors can share a small pool. A run applies up to maxBatch requests, then
+ * hands the thread back so busy games do not starve the others.
+ *
+ * Notifications are fanned out asynchronously through a GameEventBus owned by the
+ * actor, which is the game's observer: after a change the actor only records a
+ * GameEvent and queues it for each subscription, and the listeners run on their own
+ * executors. A slow listener therefore never holds the actor's thread, nor the pool
+ * it shares with other games. Listeners get the state recorded in the event and must
+ * not read the game; work that needs the game belongs in a request (ask). Game itself
+ * only notifies of moves; undo, restart and other changes made through change are
+ * reported with a null move.
+ */
+public class GameActor<B extends Board<B, C>, C extends Coordinates<C>> {
+
+    /** Default number of requests applied per run **/
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    /** Game owned by the actor **/
+    private final Game<B, C> game;
+
+    /** Executor running the actor **/
+    private final Executor executor;
+
+    /** Requests not yet applied **/
+    private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+
+    /** Whether a run is scheduled or running **/
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** Bus fanning out notifications of changes **/
+    private final GameEventBus<B, C> events = new GameEventBus<>();
+
+    /** Requests applied per run **/
+    private volatile int maxBatch = DEFAULT_MAX_BATCH;
+
+    /**
+     * Wrap a game; from now on, only the actor may touch it
+     * @param game game
+     * @param executor executor running the actor, may be shared by many actors
+     */
+    public GameActor(Game<B, C> game, Executor executor) {
+        this.game = game;
+        this.executor = executor;
+        game.setObserver(events);
+    }
+
+    /**
+     * Set the number of requests applied per run
+     * @param maxBatch requests, at least 1
+     * @return this actor
+     */
+    public GameActor<B, C> setMaxBatch(int maxBatch) {
+        if (maxBatch < 1) throw new IllegalArgumentException("Batch size must be positive: " + maxBatch);
+        this.maxBatch = maxBatch;
+        return this;
+    }
+
+    /**
+     * Subscribe to the changes of the game (GameEventBus.subscribe)
+     * @param listener listener
+     * @param executor executor delivering the events
+     * @return subscription, to configure or cancel
+     */
+    public GameEventBus<B, C>.Subscription subscribe(GameEventBus.Listener<B, C> listener, Executor executor) {
+        return events.subscribe(listener, executor);
+    }
+
+    /**
+     * Apply a function to the game in turn
+     * @param request function of the game; runs on the actor's thread
+     * @param <T> result type
+     * @return future result, failed if the function throws
+     */
+    public <T> CompletableFuture<T> ask(Function<? super Game<B, C>, T> request) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        enqueue(() -> {
+            try {
+                future.complete(request.apply(game));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Apply a function that changes the game other than by a move, then notify the
+     * subscribers with a null move
+     * @param request function of the game; runs on the actor's thread
+     * @param <T> result type
+     * @return future result, failed if the function throws
+     */
+    public <T> CompletableFuture<T> change(Function<? super Game<B, C>, T> request) {
+        return ask(g -> {
+            T result = request.apply(g);
+            events.onChessGameStateUpdate(g, null);
+            return result;
+        });
+    }
+
+    /**
+     * Apply an action to the game in turn, without waiting for it
+     * @param request action on the game; runs on the actor's thread
+     */
+    public void tell(Consumer<? super Game<B, C>> request) {
+        enqueue(() -> request.accept(game));
+    }
+
+    /**
+     * Make a move in turn
+     * @param player player tag
+     * @param fromPosition source position
+     * @param toPosition destination position
+     * @return future, whether the move was made
+     */
+    public CompletableFuture<Boolean> move(Integer player, C fromPosition, C toPosition) {
+        return ask(g -> g.stepWithMove(player, fromPosition, toPosition));
+    }
+
+    /**
+     * Take back the last move in turn
+     * @return future, whether a move was taken back
+     */
+    public CompletableFuture<Boolean> undo() {
+        return ask(g -> {
+            if (!g.undo()) return false;
+            events.onChessGameStateUpdate(g, null);
+            return true;
+        });
+    }
+
+    /**
+     * Restart the game in turn
+     * @return future, completed after the restart
+     */
+    public CompletableFuture<Void> restart() {
+        return change(g -> {
+            g.restart();
+            return null;
+        });
+    }
+
+    /**
+     * Queue a request and make sure a run will apply it
+     * @param request request
+     */
+    private void enqueue(Runnable request) {
+        mailbox.add(request);
+        schedule();
+    }
+
+    /**
+     * Schedule a run unless one is scheduled or running
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::run);
+            } catch (RuntimeException e) {
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Apply up to maxBatch requests, then reschedule if more arrived
+     */
+    private void run() {
+        try {
+            Runnable request;
+            for (int n = maxBatch; n > 0 && (request = mailbox.poll()) != null; n--) {
+                try {
+                    request.run();
+                } catch (RuntimeException e) {
+                    // A failed tell must not stop the actor
+                }
+            }
+        } finally {
+            scheduled.set(false);
+        }
+        if (!mailbox.isEmpty()) schedule();
+    }
+
+    /**
+     * Get the number of requests waiting
+     * @return queued requests
+     */
+    public int getQueuedRequests() {
+        return mailbox.size();
+    }
+}
@@ -0,0 +1,92 @@
+package edu.xwei12.chess;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Binary game archive format
+ * @author Xinran Wei
+ *
+ * An archive is a data file and an index file (data file name + INDEX_SUFFIX).
+ * Data file: MAGIC, VERSION (ints), then one record per game:
+ *     int   number of moves
+ *     byte  result (RESULT_UNFINISHED, RESULT_A_WINS, RESULT_B_WINS)
+ *     char  length of the starting FEN, 0 for the initial position
+ *     byte  FEN characters (ASCII)
+ *     int   packed moves (PackedMove, without flags)
+ * Index file: the offset (long) of each record in the data file, in game order.
+ * All values are big-endian. Only the starting position, moves and result of a
+ * GameRecord are stored; other tags are not.
+ *
+ * A game is complete once its index entry exists: writers append the record
+ * before the entry, so readers never see a partial record.
+ */
+public final class GameArchive {
+
+    /** File identification **/
+    public static final int MAGIC = 0x43484741;
+    public static final int VERSION = 1;
+
+    /** Bytes of the data file header **/
+    public static final int HEADER_BYTES = 8;
+
+    /** Bytes of an index entry **/
+    public static final int ENTRY_BYTES = 8;
+
+    /** Bytes of a record before the FEN **/
+    public static final int RECORD_HEADER_BYTES = 7;
+
+    /** Most moves and FEN characters of a game **/
+    public static final int MAX_MOVES = 1 << 16;
+    public static final int MAX_FEN_LENGTH = Character.MAX_VALUE;
+
+    /** Most bytes of a record **/
+    public static final int MAX_RECORD_BYTES = RECORD_HEADER_BYTES + MAX_FEN_LENGTH + MAX_MOVES * 4;
+
+    /** Suffix of the index file name **/
+    public static final String INDEX_SUFFIX = ".idx";
+
+    /** Result codes **/
+    public static final byte RESULT_UNFINISHED = 0;
+    public static final byte RESULT_A_WINS = 1;
+    public static final byte RESULT_B_WINS = 2;
+
+    /** Not instantiable **/
+    private GameArchive() {}
+
+    /**
+     * Get the index file of a data file
+     * @param data data file
+     * @return index file
+     */
+    public static Path indexPathOf(Path data) {
+        Path parent = data.toAbsolutePath().getParent();
+        String name = data.getFileName() + INDEX_SUFFIX;
+        return parent == null ? Paths.get(name) : parent.resolve(name);
+    }
+
+    /**
+     * Encode a result
+     * @param result GameRecord result
+     * @return result code
+     */
+    static byte encodeResult(String result) {
+        if (GameRecord.RESULT_A_WINS.equals(result)) return RESULT_A_WINS;
+        if (GameRecord.RESULT_B_WINS.equals(result)) return RESULT_B_WINS;
+        return RESULT_UNFINISHED;
+    }
+
+    /**
+     * Decode a result
+     * @param code result code
+     * @return GameRecord result
+     */
+    static String decodeResult(byte code) {
+        switch (code) {
+            case RESULT_A_WINS: return GameRecord.RESULT_A_WINS;
+            case RESULT_B_WINS: return GameRecord.RESULT_B_WINS;
+            case RESULT_UNFINISHED: return GameRecord.RESULT_UNFINISHED;
+            default: throw new IllegalArgumentException("Unknown result code: " + code);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package edu.xwei12.chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Random-access reader of a binary game archive (GameArchive)
+ * @author Xinran Wei
+ *
+ * Both files are read through read-only memory maps of SEGMENT_SIZE bytes, so a
+ * game is decoded straight from the page cache without reading the rest of the
+ * archive. Data segments overlap by GameArchive.MAX_RECORD_BYTES, so every record
+ * lies within the segment its offset falls in.
+ *
+ * Games appended by a GameArchiveWriter while the reader is open become visible
+ * after refresh(); segments are remapped when they grow. Reads are safe from any
+ * number of threads.
+ */
+public class GameArchiveReader implements Closeable {
+
+    /** Size of a mapped segment **/
+    static final int SEGMENT_BITS = 30;
+    static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    /** Data file **/
+    private final MappedFile data;
+
+    /** Index file **/
+    private final MappedFile index;
+
+    /** Number of games visible **/
+    private volatile int size;
+
+    /**
+     * Open an archive
+     * @param path data file; the index file is GameArchive.indexPathOf(path)
+     * @throws IOException on I/O errors and if the files are not an archive
+     */
+    public GameArchiveReader(Path path) throws IOException {
+        data = new MappedFile(FileChannel.open(path, StandardOpenOption.READ), GameArchive.MAX_RECORD_BYTES);
+        try {
+            index = new MappedFile(FileChannel.open(GameArchive.indexPathOf(path), StandardOpenOption.READ), 0);
+        } catch (IOException e) {
+            data.channel.close();
+            throw e;
+        }
+        try {
+            ByteBuffer header = data.map(0, GameArchive.HEADER_BYTES);
+            if (header.getInt(0) != GameArchive.MAGIC || header.getInt(4) != GameArchive.VERSION)
+                throw new IOException("Not a game archive (version " + GameArchive.VERSION + ")");
+            refresh();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Pick up games appended since opening or the last refresh
+     * @return number of games
+     * @throws IOException on I/O errors
+     */
+    public int refresh() throws IOException {
+        long entries = index.channel.size() / GameArchive.ENTRY_BYTES;
+        size = (int) Math.min(entries, Integer.MAX_VALUE);
+        return size;
+    }
+
+    /**
+     * Get number of games visible
+     * @return games
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the offset of a game's record
+     * @param game game index
+     * @return offset in the data file
+     * @throws IOException on I/O errors
+     */
+    private long offsetOf(int game) throws IOException {
+        if (game < 0 || game >= size) throw new IndexOutOfBoundsException("Game " + game + " of " + size);
+        long position = (long) game * GameArchive.ENTRY_BYTES;
+        return index.map(position, GameArchive.ENTRY_BYTES).getLong(MappedFile.offsetIn(position));
+    }
+
+    /**
+     * Get number of moves of a game
+     * @param game game index
+     * @return moves
+     * @throws IOException on I/O errors
+     */
+    public int getMoveCount(int game) throws IOException {
+        long offset = offsetOf(game);
+        return data.map(offset, GameArchive.RECORD_HEADER_BYTES).getInt(MappedFile.offsetIn(offset));
+    }
+
+    /**
+     * Add the moves of a game to a buffer
+     * @param game game index
+     * @param moves buffer to add packed moves to
+     * @return number of moves added
+     * @throws IOException on I/O errors
+     */
+    public int readMoves(int game, MoveBuffer moves) throws IOException {
+        long offset = offsetOf(game);
+        ByteBuffer buffer = data.map(offset, GameArchive.RECORD_HEADER_BYTES);
+        int at = MappedFile.offsetIn(offset);
+        int count = buffer.getInt(at);
+        at += GameArchive.RECORD_HEADER_BYTES + buffer.getChar(at + 5);
+        buffer = data.map(offset, at - MappedFile.offsetIn(offset) + count * 4);
+        for (int i = 0; i < count; i++, at += 4) moves.add(buffer.getInt(at));
+        return count;
+    }
+
+    /**
+     * Read a game
+     * @param game game index
+     * @return record with the FEN tag (if not the initial position), moves and result
+     * @throws IOException on I/O errors
+     */
+    public GameRecord read(int game) throws IOException {
+        long offset = offsetOf(game);
+        ByteBuffer buffer = data.map(offset, GameArchive.RECORD_HEADER_BYTES);
+        int at = MappedFile.offsetIn(offset);
+        int count = buffer.getInt(at);
+        byte result = buffer.get(at + 4);
+        int fenLength = buffer.getChar(at + 5);
+        buffer = data.map(offset, GameArchive.RECORD_HEADER_BYTES + fenLength + count * 4);
+        at += GameArchive.RECORD_HEADER_BYTES;
+
+        GameRecord record = new GameRecord();
+        if (fenLength > 0) {
+            char[] fen = new char[fenLength];
+            for (int i = 0; i < fenLength; i++) fen[i] = (char) buffer.get(at + i);
+            record.setTag(GameRecord.TAG_FEN, new String(fen));
+            at += fenLength;
+        }
+        MoveBuffer moves = record.getMoves();
+        for (int i = 0; i < count; i++, at += 4) moves.add(buffer.getInt(at));
+        try {
+            record.setResult(GameArchive.decodeResult(result));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Game " + game + ": " + e.getMessage());
+        }
+        return record;
+    }
+
+    /**
+     * Replay a game into a new StandardGame
+     * @param game game index
+     * @return game after the last move
+     * @throws IOException on I/O errors
+     */
+    public StandardGame replay(int game) throws IOException {
+        return read(game).replay();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.channel.close();
+        } finally {
+            if (index != null) index.channel.close();
+        }
+    }
+
+    /**
+     * File mapped in segments
+     */
+    private static final class MappedFile {
+
+        /** File **/
+        final FileChannel channel;
+
+        /** Bytes each segment extends past its SEGMENT_SIZE **/
+        private final int overlap;
+
+        /** Segments by offset / SEGMENT_SIZE, replaced as a whole when remapped **/
+        private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+        /**
+         * Constructor
+         * @param channel file
+         * @param overlap bytes each segment extends past its SEGMENT_SIZE
+         */
+        MappedFile(FileChannel channel, int overlap) {
+            this.channel = channel;
+            this.overlap = overlap;
+        }
+
+        /**
+         * Get offset within the segment
+         * @param position file position
+         * @return buffer index
+         */
+        static int offsetIn(long position) {
+            return (int) (position & (SEGMENT_SIZE - 1));
+        }
+
+        /**
+         * Get the segment holding a range; the range must not extend past the
+         * overlap of the segment its position falls in
+         * @param position file position
+         * @param length range length
+         * @return segment, indexed by offsetIn(position)
+         * @throws IOException if the range is past the end of the file
+         */
+        ByteBuffer map(long position, int length) throws IOException {
+            int k = (int) (position >>> SEGMENT_BITS);
+            long end = offsetIn(position) + (long) length;
+            MappedByteBuffer[] current = segments;
+            if (k < current.length && current[k] != null && current[k].capacity() >= end) return current[k];
+            return remap(k, end);
+        }
+
+        /**
+         * Map a segment again, up to the current end of the file
+         * @param k segment
+         * @param end bytes of the segment needed
+         * @return segment
+         * @throws IOException if the file is too short
+         */
+        private synchronized ByteBuffer remap(int k, long end) throws IOException {
+            MappedByteBuffer[] current = segments;
+            if (k < current.length && current[k] != null && current[k].capacity() >= end) return current[k];
+
+            long start = (long) k << SEGMENT_BITS;
+            long limit = Math.min(channel.size(), start + SEGMENT_SIZE + overlap);
+            if (limit - start < end) throw new IOException("Unexpected end of archive at " + (start + end));
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, limit - start);
+
+            MappedByteBuffer[] next = Arrays.copyOf(current, Math.max(current.length, k + 1));
+            next[k] = segment;
+            segments = next;
+            return segment;
+        }
+    }
+}
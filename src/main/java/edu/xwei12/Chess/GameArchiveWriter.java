@@ -0,0 +1,189 @@
+package edu.xwei12.chess;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appender of games to a binary archive (GameArchive)
+ * @author Xinran Wei
+ *
+ * One writer per archive at a time; any number of GameArchiveReaders may read it
+ * meanwhile. Opening an existing archive drops a record left incomplete by an
+ * interrupted append (one without an index entry).
+ */
+public class GameArchiveWriter implements Closeable, Flushable {
+
+    /** Data file **/
+    private final FileChannel data;
+
+    /** Index file **/
+    private final FileChannel index;
+
+    /** End of the last complete record **/
+    private long dataSize;
+
+    /** Number of games **/
+    private int size;
+
+    /** Scratch buffers **/
+    private ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private final ByteBuffer entry = ByteBuffer.allocate(GameArchive.ENTRY_BYTES);
+
+    /**
+     * Open an archive for appending, creating it if absent
+     * @param path data file; the index file is GameArchive.indexPathOf(path)
+     * @throws IOException on I/O errors and if the files are not an archive
+     */
+    public GameArchiveWriter(Path path) throws IOException {
+        data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            index = FileChannel.open(GameArchive.indexPathOf(path),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write the header of a new archive, or find the end of an existing one
+     * @throws IOException on I/O errors and if the files are not an archive
+     */
+    private void recover() throws IOException {
+        if (data.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_BYTES);
+            header.putInt(GameArchive.MAGIC).putInt(GameArchive.VERSION).flip();
+            writeFully(data, header, 0);
+            index.truncate(0);
+            dataSize = GameArchive.HEADER_BYTES;
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_BYTES);
+        readFully(data, header, 0);
+        if (header.getInt(0) != GameArchive.MAGIC || header.getInt(4) != GameArchive.VERSION)
+            throw new IOException("Not a game archive (version " + GameArchive.VERSION + ")");
+
+        long entries = index.size() / GameArchive.ENTRY_BYTES;
+        if (entries > Integer.MAX_VALUE) throw new IOException("Too many games: " + entries);
+        index.truncate(entries * GameArchive.ENTRY_BYTES);
+        size = (int) entries;
+        dataSize = GameArchive.HEADER_BYTES;
+        if (size > 0) {
+            ByteBuffer last = ByteBuffer.allocate(GameArchive.ENTRY_BYTES);
+            readFully(index, last, (long) (size - 1) * GameArchive.ENTRY_BYTES);
+            long offset = last.getLong(0);
+            ByteBuffer record = ByteBuffer.allocate(GameArchive.RECORD_HEADER_BYTES);
+            readFully(data, record, offset);
+            dataSize = offset + GameArchive.RECORD_HEADER_BYTES + record.getChar(5) + 4L * record.getInt(0);
+            if (dataSize > data.size()) throw new IOException("Data file is shorter than its index");
+        }
+        data.truncate(dataSize);
+    }
+
+    /**
+     * Append a game
+     * @param record record
+     * @return index of the game
+     * @throws IOException on I/O errors
+     */
+    public int append(GameRecord record) throws IOException {
+        String fen = record.getTag(GameRecord.TAG_FEN);
+        byte[] fenBytes = fen == null ? new byte[0] : fen.getBytes(StandardCharsets.US_ASCII);
+        MoveBuffer moves = record.getMoves();
+        if (fenBytes.length > GameArchive.MAX_FEN_LENGTH) throw new IllegalArgumentException("FEN too long: " + fenBytes.length);
+        if (moves.size() > GameArchive.MAX_MOVES) throw new IllegalArgumentException("Too many moves: " + moves.size());
+        if (size == Integer.MAX_VALUE) throw new IOException("Archive is full");
+
+        int length = GameArchive.RECORD_HEADER_BYTES + fenBytes.length + moves.size() * 4;
+        if (buffer.capacity() < length) buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+        buffer.clear();
+        buffer.putInt(moves.size()).put(GameArchive.encodeResult(record.getResult())).putChar((char) fenBytes.length).put(fenBytes);
+        for (int i = 0; i < moves.size(); i++) buffer.putInt(moves.get(i));
+        buffer.flip();
+
+        // Record first, then its index entry
+        writeFully(data, buffer, dataSize);
+        entry.clear();
+        entry.putLong(dataSize).flip();
+        writeFully(index, entry, (long) size * GameArchive.ENTRY_BYTES);
+        dataSize += length;
+        return size++;
+    }
+
+    /**
+     * Append the moves of a game so far
+     * @param game game
+     * @param startFen starting position of the game, or null for the initial position
+     * @return index of the game
+     * @throws IOException on I/O errors
+     */
+    public int append(StandardGame game, String startFen) throws IOException {
+        return append(GameRecord.of(game, startFen));
+    }
+
+    /**
+     * Get number of games
+     * @return games
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Write a buffer fully at a position
+     * @param channel channel
+     * @param buffer buffer
+     * @param position file position
+     * @throws IOException on I/O errors
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    /**
+     * Read a buffer fully from a position
+     * @param channel channel
+     * @param buffer buffer
+     * @param position file position
+     * @throws IOException on I/O errors and at the end of the file
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of archive at " + position);
+            position += read;
+        }
+    }
+
+    /**
+     * Force appended games to storage
+     * @throws IOException on I/O errors
+     */
+    @Override
+    public void flush() throws IOException {
+        data.force(false);
+        index.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            if (index != null) index.close();
+        }
+    }
+}
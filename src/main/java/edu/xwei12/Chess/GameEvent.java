@@ -0,0 +1,128 @@
+package edu.xwei12.chess;
+
+/**
+ * Immutable record of a game update, delivered by a GameEventBus
+ * @author Xinran Wei
+ *
+ * Events are handed to subscribers on other threads while the game goes on, so an
+ * event copies what subscribers need at the time of the update instead of having
+ * them read the game. Rectangle boards also get a board snapshot (BoardSnapshot).
+ * When a subscription coalesces, one event stands for several updates of its game;
+ * the move is then the last one, and getCoalesced counts the updates.
+ */
+public final class GameEvent<B extends Board<B, C>, C extends Coordinates<C>> {
+
+    /** Game updated; not to be read off its own thread **/
+    private final Game<B, C> game;
+
+    /** Sequence number on the bus **/
+    private final long sequence;
+
+    /** Move made, or null after an undo, restart or other change **/
+    private final Game<B, C>.Move move;
+
+    /** Number of moves played **/
+    private final int plies;
+
+    /** Game state **/
+    private final Game.State state;
+
+    /** Board snapshot, or null if the board is not a rectangle board **/
+    private final BoardSnapshot snapshot;
+
+    /** Number of updates this event stands for **/
+    private final int coalesced;
+
+    /**
+     * Record an update; called by the thread playing the game
+     * @param game game
+     * @param move move, or null
+     * @param sequence sequence number
+     */
+    GameEvent(Game<B, C> game, Game<B, C>.Move move, long sequence) {
+        this.game = game;
+        this.move = move;
+        this.sequence = sequence;
+        this.plies = game.getMoveCount();
+        this.state = game.getState();
+        Object board = game.getBoard();
+        this.snapshot = board instanceof RectangleBoard ? ((RectangleBoard) board).getSnapshot() : null;
+        this.coalesced = 1;
+    }
+
+    /**
+     * Merge a newer event of the same game into an older one
+     * @param older event replaced
+     * @param newer event replacing it
+     */
+    GameEvent(GameEvent<B, C> older, GameEvent<B, C> newer) {
+        this.game = newer.game;
+        this.move = newer.move;
+        this.sequence = newer.sequence;
+        this.plies = newer.plies;
+        this.state = newer.state;
+        this.snapshot = newer.snapshot;
+        this.coalesced = older.coalesced + newer.coalesced;
+    }
+
+    /**
+     * Get the game updated; not to be read off its own thread
+     * @return game
+     */
+    public Game<B, C> getGame() {
+        return game;
+    }
+
+    /**
+     * Get the sequence number on the bus
+     * @return sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the move made
+     * @return move, or null after an undo, restart or other change
+     */
+    public Game<B, C>.Move getMove() {
+        return move;
+    }
+
+    /**
+     * Get the number of moves played
+     * @return plies
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * Get the game state
+     * @return state
+     */
+    public Game.State getState() {
+        return state;
+    }
+
+    /**
+     * Get the board snapshot
+     * @return snapshot, or null if the board is not a rectangle board
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Get the number of updates this event stands for
+     * @return updates, 1 unless coalesced
+     */
+    public int getCoalesced() {
+        return coalesced;
+    }
+
+    @Override
+    public String toString() {
+        return "GameEvent(" + sequence + ", " + plies + ", " + state + ", " + coalesced + ")";
+    }
+}
@@ -0,0 +1,323 @@
+package edu.xwei12.chess;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous, multi-subscriber dispatch of game updates
+ * @author Xinran Wei
+ *
+ * The bus is a GameObserver: set it as the observer of any number of games
+ * (Game.setObserver); each GameActor has its own (GameActor.subscribe). On each
+ * update it records a GameEvent and queues it for every subscription, and returns
+ * at once; the game's thread never waits for subscribers to run.
+ *
+ * Each subscription has its own bounded queue and executor, and gets its events
+ * in lists of up to maxBatch, in order, never concurrently. A coalescing
+ * subscription keeps at most one pending event per game, the newest, so a burst
+ * of moves costs a slow subscriber one delivery. When a queue is full, the
+ * subscription's Overflow policy decides: DROP_OLDEST (the default) and DROP_NEWEST
+ * drop and count events, so publishing never waits; BLOCK, for subscribers that
+ * must see every event, makes the publishing thread wait for room (backpressure),
+ * which stalls the game (or actor) behind a slow subscriber.
+ * Listeners that throw do not affect other subscriptions or later deliveries.
+ */
+public class GameEventBus<B extends Board<B, C>, C extends Coordinates<C>> implements GameObserver<B, C>, Closeable {
+
+    /** Default queue capacity of a subscription **/
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Default number of events delivered at once **/
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    /**
+     * Policy when a subscription's queue is full
+     */
+    public enum Overflow {
+        BLOCK, DROP_OLDEST, DROP_NEWEST
+    }
+
+    /**
+     * Subscriber of a bus
+     */
+    public interface Listener<B extends Board<B, C>, C extends Coordinates<C>> {
+
+        /**
+         * Receive events, on the subscription's executor
+         * @param events events in publishing order, at least one
+         */
+        void onGameEvents(List<GameEvent<B, C>> events);
+    }
+
+    /** Subscriptions **/
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /** Last sequence number **/
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Subscribe to all games observed by the bus
+     * @param listener listener
+     * @param executor executor delivering the events, e.g. a pool or a GUI thread
+     * @return subscription, to configure or cancel
+     */
+    public Subscription subscribe(Listener<B, C> listener, Executor executor) {
+        Subscription subscription = new Subscription(listener, executor);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Queue an update for all subscriptions; called on the game's thread
+     * @param game game instance
+     * @param move move, or null after an undo, restart or other change
+     */
+    @Override
+    public void onChessGameStateUpdate(Game<B, C> game, Game<B, C>.Move move) {
+        if (subscriptions.isEmpty()) return;
+        GameEvent<B, C> event = new GameEvent<>(game, move, sequence.incrementAndGet());
+        for (Subscription subscription : subscriptions)
+            subscription.offer(event);
+    }
+
+    /**
+     * Get the number of subscriptions
+     * @return subscriptions
+     */
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Cancel all subscriptions
+     */
+    @Override
+    public void close() {
+        for (Subscription subscription : subscriptions)
+            subscription.cancel();
+    }
+
+    /**
+     * Subscription of a listener; settings may change at any time
+     */
+    public class Subscription {
+
+        /** Listener and its executor **/
+        private final Listener<B, C> listener;
+        private final Executor executor;
+
+        /** Pending events, keyed by game when coalescing, else by sequence **/
+        private final LinkedHashMap<Object, GameEvent<B, C>> pending = new LinkedHashMap<>();
+
+        /** Settings **/
+        private int capacity = DEFAULT_CAPACITY;
+        private int maxBatch = DEFAULT_MAX_BATCH;
+        private boolean coalescing;
+        private Overflow overflow = Overflow.DROP_OLDEST;
+
+        /** Thread delivering, or null **/
+        private Thread deliveringThread;
+
+        /** Whether a delivery is scheduled or running **/
+        private boolean scheduled;
+        private boolean cancelled;
+
+        /** Events dropped on overflow **/
+        private long dropped;
+
+        private Subscription(Listener<B, C> listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        /**
+         * Set the most events pending
+         * @param capacity events, at least 1
+         * @return this subscription
+         */
+        public synchronized Subscription setCapacity(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+            this.capacity = capacity;
+            notifyAll();
+            return this;
+        }
+
+        /**
+         * Set the most events delivered at once
+         * @param maxBatch events, at least 1
+         * @return this subscription
+         */
+        public synchronized Subscription setMaxBatch(int maxBatch) {
+            if (maxBatch < 1) throw new IllegalArgumentException("Batch size must be positive: " + maxBatch);
+            this.maxBatch = maxBatch;
+            return this;
+        }
+
+        /**
+         * Keep only the newest pending event of each game; applies to events queued from now on
+         * @param coalescing coalesce or not
+         * @return this subscription
+         */
+        public synchronized Subscription setCoalescing(boolean coalescing) {
+            this.coalescing = coalescing;
+            return this;
+        }
+
+        /**
+         * Set what happens when the queue is full
+         * @param overflow policy, DROP_OLDEST by default
+         * @return this subscription
+         */
+        public synchronized Subscription setOverflow(Overflow overflow) {
+            if (overflow == null) throw new NullPointerException("Overflow policy");
+            this.overflow = overflow;
+            notifyAll();
+            return this;
+        }
+
+        /**
+         * Queue an event and make sure a delivery will take it
+         * @param event event
+         */
+        private void offer(GameEvent<B, C> event) {
+            synchronized (this) {
+                if (cancelled) return;
+                Object key = coalescing ? event.getGame() : Long.valueOf(event.getSequence());
+                GameEvent<B, C> previous = pending.get(key);
+                if (previous != null) {
+                    // Replacing keeps the older event's place in the queue
+                    pending.put(key, new GameEvent<>(previous, event));
+                    return;
+                }
+                if (!makeRoom()) {
+                    dropped++;
+                    return;
+                }
+                pending.put(key, event);
+                if (scheduled) return;
+                scheduled = true;
+            }
+            execute();
+        }
+
+        /**
+         * Make room for an event according to the overflow policy
+         * @return false if the event is to be dropped
+         */
+        private boolean makeRoom() {
+            boolean interrupted = false;
+            try {
+                while (pending.size() >= capacity && !cancelled) {
+                    switch (overflow) {
+                        case DROP_NEWEST:
+                            return false;
+                        case DROP_OLDEST:
+                            Iterator<GameEvent<B, C>> oldest = pending.values().iterator();
+                            oldest.next();
+                            oldest.remove();
+                            dropped++;
+                            break;
+                        default:
+                            // A listener publishing from its own delivery would wait forever
+                            if (deliveringThread == Thread.currentThread()) return true;
+                            try {
+                                wait();
+                            } catch (InterruptedException e) {
+                                interrupted = true;
+                            }
+                            break;
+                    }
+                }
+                return !cancelled;
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Hand a delivery to the executor
+         */
+        private void execute() {
+            try {
+                executor.execute(this::deliver);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Deliver up to maxBatch events, then reschedule if more are pending
+         */
+        private void deliver() {
+            List<GameEvent<B, C>> batch;
+            synchronized (this) {
+                batch = new ArrayList<>(Math.min(maxBatch, pending.size()));
+                Iterator<GameEvent<B, C>> events = pending.values().iterator();
+                while (batch.size() < maxBatch && events.hasNext()) {
+                    batch.add(events.next());
+                    events.remove();
+                }
+                deliveringThread = Thread.currentThread();
+                notifyAll();
+            }
+            boolean more = false;
+            try {
+                if (!batch.isEmpty()) listener.onGameEvents(batch);
+            } catch (RuntimeException e) {
+                // A failing listener must not stop its later deliveries
+            } finally {
+                synchronized (this) {
+                    deliveringThread = null;
+                    more = !pending.isEmpty() && !cancelled;
+                    if (!more) scheduled = false;
+                }
+            }
+            if (more) execute();
+        }
+
+        /**
+         * Stop deliveries and drop pending events; a delivery running completes
+         */
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                pending.clear();
+                notifyAll();
+            }
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Get the number of events pending
+         * @return events
+         */
+        public synchronized int getPending() {
+            return pending.size();
+        }
+
+        /**
+         * Get the number of events dropped on overflow
+         * @return events
+         */
+        public synchronized long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * Determine whether the subscription was cancelled
+         * @return cancelled or not
+         */
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
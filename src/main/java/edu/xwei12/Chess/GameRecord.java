@@ -0,0 +1,155 @@
+package edu.xwei12.chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Record of one game: tags, moves and result
+ * @author Xinran Wei
+ *
+ * Moves are packed (PackedMove) with square indices of the record's board, which is
+ * 8x8 unless the FEN tag gives a starting position of another size.
+ * Records are read and written by GameRecordReader and GameRecordWriter.
+ */
+public class GameRecord {
+
+    /** Tag holding the starting position, if not the initial one **/
+    public static final String TAG_FEN = "FEN";
+
+    /** Tag holding the result **/
+    public static final String TAG_RESULT = "Result";
+
+    /** Results **/
+    public static final String RESULT_A_WINS = "1-0";
+    public static final String RESULT_B_WINS = "0-1";
+    public static final String RESULT_UNFINISHED = "*";
+
+    /** Tags in order **/
+    private final Map<String, String> tags = new LinkedHashMap<>();
+
+    /** Moves **/
+    private final MoveBuffer moves = new MoveBuffer();
+
+    /** Result **/
+    private String result = RESULT_UNFINISHED;
+
+    /**
+     * Record the moves of a game so far
+     * @param game game
+     * @param startFen starting position of the game, or null for the initial position
+     * @return record
+     */
+    public static GameRecord of(StandardGame game, String startFen) {
+        GameRecord record = new GameRecord();
+        if (startFen != null) record.setTag(TAG_FEN, startFen);
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            int move = game.getPackedMove(i);
+            record.moves.add(PackedMove.encode(PackedMove.getSource(move), PackedMove.getDestination(move), 0));
+        }
+        record.setResult(resultOf(game));
+        return record;
+    }
+
+    /**
+     * Get the result of a game
+     * @param game game
+     * @return RESULT_A_WINS, RESULT_B_WINS or RESULT_UNFINISHED
+     */
+    public static String resultOf(StandardGame game) {
+        if (game.getState() != Game.State.CHECKMATE) return RESULT_UNFINISHED;
+        Piece<RectangleBoard, RectanglePosition> defeater = game.getBoard().getPiece(game.getDefeaterPosition());
+        return defeater.getTag() == StandardGame.PLAYER_A ? RESULT_A_WINS : RESULT_B_WINS;
+    }
+
+    /**
+     * Replay the moves on a new game through stepWithMove; each move is made by the
+     * player owning the moved piece
+     * @return game after the last move
+     * @throws IllegalArgumentException if a move is rejected by the game
+     */
+    public StandardGame replay() {
+        String fen = getTag(TAG_FEN);
+        StandardGame game = fen == null ? new StandardGame() : Fen.parseGame(fen);
+        RectangleBoard board = game.getBoard();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+            Piece<RectangleBoard, RectanglePosition> piece = board.getPiece(board.getRank(source), board.getFile(source));
+            if (piece == null || !game.stepWithMove(piece.getTag(), board.getRank(source), board.getFile(source),
+                    board.getRank(destination), board.getFile(destination)))
+                throw new IllegalArgumentException("Illegal move " + (i + 1) + ": " + Notation.toString(move, board.getFiles()));
+        }
+        return game;
+    }
+
+    /**
+     * Get number of ranks of the record's board
+     * @return ranks
+     */
+    public int getRanks() {
+        String fen = getTag(TAG_FEN);
+        return fen == null ? 8 : Fen.measure(fen)[0];
+    }
+
+    /**
+     * Get number of files of the record's board
+     * @return files
+     */
+    public int getFiles() {
+        String fen = getTag(TAG_FEN);
+        return fen == null ? 8 : Fen.measure(fen)[1];
+    }
+
+    /**
+     * Get tags in order (Result excluded, see getResult)
+     * @return tags
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Get a tag
+     * @param name tag name
+     * @return value, or null
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * Set a tag
+     * @param name tag name
+     * @param value value
+     */
+    public void setTag(String name, String value) {
+        if (TAG_RESULT.equals(name)) setResult(value);
+        else tags.put(name, value);
+    }
+
+    /**
+     * Get moves
+     * @return packed moves
+     */
+    public MoveBuffer getMoves() {
+        return moves;
+    }
+
+    /**
+     * Get result
+     * @return RESULT_A_WINS, RESULT_B_WINS or RESULT_UNFINISHED
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Set result
+     * @param result RESULT_A_WINS, RESULT_B_WINS or RESULT_UNFINISHED
+     */
+    public void setResult(String result) {
+        if (!RESULT_A_WINS.equals(result) && !RESULT_B_WINS.equals(result) && !RESULT_UNFINISHED.equals(result))
+            throw new IllegalArgumentException("Unknown result: " + result);
+        this.result = result;
+    }
+}
@@ -0,0 +1,203 @@
+package edu.xwei12.chess;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming reader of game records
+ * @author Xinran Wei
+ *
+ * Reads PGN-like text one game at a time, so files of any size can be processed
+ * in constant memory:
+ *     [Event "Club night"]
+ *     [FEN "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w"]
+ *     [Result "1-0"]
+ *
+ *     1. e2e4 d7d5 2. e4d5 b8c6 1-0
+ *
+ * Tags are optional. Moves are in coordinate notation (Notation); move numbers
+ * ("1.", "1...") and ';' comments are skipped. A game ends at its result token
+ * ("1-0", "0-1" or "*"), at the next tag section, or at the end of input.
+ */
+public class GameRecordReader implements Closeable {
+
+    /** Input **/
+    private final BufferedReader reader;
+
+    /** Line read ahead that starts the next game **/
+    private String pending;
+
+    /** Number of the last line read **/
+    private int lineNumber = 0;
+
+    /**
+     * Constructor
+     * @param reader input, buffered if not already
+     */
+    public GameRecordReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 1 << 16);
+    }
+
+    /**
+     * Read the next game
+     * @return record, or null at the end of input
+     * @throws IOException on read errors and malformed records
+     */
+    public GameRecord next() throws IOException {
+        GameRecord record = null;
+        boolean inMoves = false;
+        int ranks = 8, files = 8;
+
+        String line;
+        while ((line = nextLine()) != null) {
+            int start = skipSpaces(line, 0);
+            if (start == line.length() || line.charAt(start) == ';') continue;
+
+            if (line.charAt(start) == '[') {
+                if (inMoves) {
+                    // Next game starts without a result token
+                    pending = line;
+                    return record;
+                }
+                if (record == null) record = new GameRecord();
+                parseTag(line, start, record);
+                continue;
+            }
+
+            if (record == null) record = new GameRecord();
+            if (!inMoves) {
+                inMoves = true;
+                try {
+                    ranks = record.getRanks();
+                    files = record.getFiles();
+                } catch (IllegalArgumentException e) {
+                    throw error("Bad FEN tag: " + e.getMessage());
+                }
+            }
+            if (parseMoves(line, start, ranks, files, record)) return record;
+        }
+        return record;
+    }
+
+    /**
+     * Parse a line of movetext
+     * @param line line
+     * @param start first non-space index
+     * @param ranks number of ranks of the board
+     * @param files number of files of the board
+     * @param record record to add moves to
+     * @return whether the result token was read
+     * @throws IOException on malformed tokens
+     */
+    private boolean parseMoves(String line, int start, int ranks, int files, GameRecord record) throws IOException {
+        int i = start, length = line.length();
+        while (i < length) {
+            int end = i;
+            while (end < length && line.charAt(end) != ' ' && line.charAt(end) != '\t') end++;
+            char c = line.charAt(i);
+
+            if (c == ';') {
+                return false;
+            } else if (c == '*' || (c >= '0' && c <= '9' && (line.startsWith("1-0", i) || line.startsWith("0-1", i)) && end - i == 3)) {
+                record.setResult(line.substring(i, end));
+                if (skipSpaces(line, end) != length)
+                    throw error("Text after result: " + line.substring(end).trim());
+                return true;
+            } else if (c >= '0' && c <= '9') {
+                // Move number
+                int j = i;
+                while (j < end && line.charAt(j) >= '0' && line.charAt(j) <= '9') j++;
+                while (j < end && line.charAt(j) == '.') j++;
+                if (j != end || line.charAt(end - 1) != '.') throw error("Unknown token: " + line.substring(i, end));
+            } else {
+                int move = Notation.parseMove(line, i, end, ranks, files);
+                if (move < 0) throw error("Unknown move: " + line.substring(i, end));
+                record.getMoves().add(move);
+            }
+            i = skipSpaces(line, end);
+        }
+        return false;
+    }
+
+    /**
+     * Parse a tag line: [Name "value"]
+     * @param line line
+     * @param start index of '['
+     * @param record record to set the tag on
+     * @throws IOException on malformed tags
+     */
+    private void parseTag(String line, int start, GameRecord record) throws IOException {
+        int i = start + 1, length = line.length();
+        int nameStart = i;
+        while (i < length && line.charAt(i) != ' ' && line.charAt(i) != '"' && line.charAt(i) != ']') i++;
+        String name = line.substring(nameStart, i);
+        i = skipSpaces(line, i);
+        if (name.isEmpty() || i >= length || line.charAt(i) != '"') throw error("Malformed tag: " + line);
+
+        StringBuilder value = new StringBuilder();
+        for (i++; i < length && line.charAt(i) != '"'; i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < length) c = line.charAt(++i);
+            value.append(c);
+        }
+        i = skipSpaces(line, i + 1);
+        if (i >= length || line.charAt(i) != ']') throw error("Malformed tag: " + line);
+
+        try {
+            record.setTag(name, value.toString());
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    /**
+     * Read the next line, pending one first
+     * @return line, or null at the end
+     * @throws IOException on read errors
+     */
+    private String nextLine() throws IOException {
+        if (pending != null) {
+            String line = pending;
+            pending = null;
+            return line;
+        }
+        String line = reader.readLine();
+        if (line != null) lineNumber++;
+        return line;
+    }
+
+    /**
+     * Skip spaces and tabs
+     * @param line line
+     * @param i start index
+     * @return index of the next other character, or the line length
+     */
+    private static int skipSpaces(String line, int i) {
+        while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) i++;
+        return i;
+    }
+
+    /**
+     * Make an error for the current line
+     * @param message message
+     * @return exception
+     */
+    private IOException error(String message) {
+        return new IOException("Line " + lineNumber + ": " + message);
+    }
+
+    /**
+     * Get number of the last line read
+     * @return line number
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,103 @@
+package edu.xwei12.chess;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Streaming writer of game records
+ * @author Xinran Wei
+ *
+ * Writes one game at a time in the format read by GameRecordReader: tag lines
+ * (Result last), a blank line, movetext wrapped at LINE_WIDTH columns ending with
+ * the result token, and a blank line.
+ */
+public class GameRecordWriter implements Closeable, Flushable {
+
+    /** Columns movetext is wrapped at **/
+    public static final int LINE_WIDTH = 80;
+
+    /** Output **/
+    private final Writer writer;
+
+    /** Scratch line **/
+    private final StringBuilder line = new StringBuilder(LINE_WIDTH + 16);
+
+    /**
+     * Constructor
+     * @param writer output, buffered if not already
+     */
+    public GameRecordWriter(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, 1 << 16);
+    }
+
+    /**
+     * Write a game
+     * @param record record
+     * @throws IOException on write errors
+     */
+    public void write(GameRecord record) throws IOException {
+        for (Map.Entry<String, String> tag : record.getTags().entrySet())
+            writeTag(tag.getKey(), tag.getValue());
+        writeTag(GameRecord.TAG_RESULT, record.getResult());
+        writer.write('\n');
+
+        int files = record.getFiles();
+        MoveBuffer moves = record.getMoves();
+        line.setLength(0);
+        for (int i = 0; i < moves.size(); i++) {
+            int mark = line.length();
+            if (mark > 0) line.append(' ');
+            if (i % 2 == 0) line.append(i / 2 + 1).append(". ");
+            Notation.appendMove(moves.get(i), files, line);
+            wrap(mark);
+        }
+        int mark = line.length();
+        if (mark > 0) line.append(' ');
+        line.append(record.getResult());
+        wrap(mark);
+        writer.append(line).write("\n\n");
+    }
+
+    /**
+     * Write out the line before mark if the token after it overflows
+     * @param mark end of the line before the last token
+     * @throws IOException on write errors
+     */
+    private void wrap(int mark) throws IOException {
+        if (line.length() <= LINE_WIDTH || mark == 0) return;
+        writer.append(line, 0, mark).write('\n');
+        line.delete(0, mark + 1);
+    }
+
+    /**
+     * Write a tag line
+     * @param name tag name
+     * @param value value
+     * @throws IOException on write errors
+     */
+    private void writeTag(String name, String value) throws IOException {
+        writer.write('[');
+        writer.write(name);
+        writer.write(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') writer.write('\\');
+            writer.write(c);
+        }
+        writer.write("\"]\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,95 @@
+package edu.xwei12.chess;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of packed moves
+ * @author Xinran Wei
+ *
+ * Move generators append to the buffer; callers clear and reuse it,
+ * so generation does not allocate once the buffer has grown to size.
+ */
+public class MoveBuffer {
+
+    /** Packed moves **/
+    private int[] moves;
+
+    /** Number of moves **/
+    private int size;
+
+    /**
+     * Construct a buffer with default capacity
+     */
+    public MoveBuffer() {
+        this(256);
+    }
+
+    /**
+     * Construct a buffer with capacity
+     * @param capacity initial capacity
+     */
+    public MoveBuffer(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Append a packed move
+     * @param move packed move
+     */
+    public void add(int move) {
+        if (size == moves.length)
+            moves = Arrays.copyOf(moves, size * 2);
+        moves[size++] = move;
+    }
+
+    /**
+     * Get a packed move
+     * @param index index
+     * @return packed move
+     */
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        return moves[index];
+    }
+
+    /**
+     * Replace a packed move
+     * @param index index
+     * @param move packed move
+     */
+    public void set(int index, int move) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        moves[index] = move;
+    }
+
+    /**
+     * Get number of moves
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determine whether the buffer is empty
+     * @return empty or not
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all moves, keeping capacity
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Shrink to the first size moves
+     * @param size new size
+     */
+    public void truncate(int size) {
+        if (size < this.size) this.size = size;
+    }
+}
@@ -0,0 +1,166 @@
+package edu.xwei12.chess;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of generated moves
+ * @author Xinran Wei
+ *
+ * Direct-mapped table of the moves RectangleBoard.generateMoves produces, keyed by
+ * (position hash, square, distance); generatePieceMoves stores under ALL_DISTANCES.
+ * Moving, adding or removing a piece changes the board's position hash
+ * (Board.getPositionHash), so entries of earlier placements
+ * stop matching at once; they match again when a placement recurs, e.g. after an
+ * undo or in a search revisiting a position. A new entry replaces whatever shares
+ * its slot. Like a transposition table, the cache trusts 64-bit hashes not to collide.
+ *
+ * A cache belongs to one board and is not thread-safe.
+ */
+public class MoveCache {
+
+    /** Distance key of the moves at all distances (RectangleBoard.generatePieceMoves) **/
+    public static final int ALL_DISTANCES = Integer.MIN_VALUE;
+
+    /** Keys of the slots: position hash, and square and distance **/
+    private final long[] hashes;
+    private final long[] squareDistances;
+
+    /** Moves of the slots, arrays reused across entries **/
+    private final int[][] moves;
+    private final int[] moveCounts;
+
+    /** Number of slots - 1 **/
+    private final int mask;
+
+    /** Statistics **/
+    private long hits, misses;
+
+    /**
+     * Construct a cache with a number of slots
+     * @param capacity number of slots, rounded down to a power of two
+     */
+    public MoveCache(int capacity) {
+        if (capacity < 1 || capacity > (1 << 24))
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        int slotCount = Integer.highestOneBit(capacity);
+        hashes = new long[slotCount];
+        squareDistances = new long[slotCount];
+        moves = new int[slotCount][];
+        moveCounts = new int[slotCount];
+        mask = slotCount - 1;
+        clear();
+    }
+
+    /**
+     * Pack the square and distance part of a key; never 0, which marks empty slots
+     * @param square source square
+     * @param distance distance of move
+     * @return packed key part
+     */
+    private static long squareDistance(int square, int distance) {
+        return ((long) square << 32) | ((distance + 1L) & 0xffffffffL) | (1L << 63);
+    }
+
+    /**
+     * Get the slot of a key
+     * @param hash position hash
+     * @param squareDistance packed square and distance
+     * @return slot
+     */
+    private int slotOf(long hash, long squareDistance) {
+        long h = hash ^ squareDistance * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 29)) & mask;
+    }
+
+    /**
+     * Append cached moves to a buffer
+     * @param hash position hash
+     * @param square source square
+     * @param distance distance of move
+     * @param buffer buffer to append to
+     * @return whether the moves were cached
+     */
+    public boolean get(long hash, int square, int distance, MoveBuffer buffer) {
+        long key = squareDistance(square, distance);
+        int slot = slotOf(hash, key);
+        if (squareDistances[slot] != key || hashes[slot] != hash) {
+            misses++;
+            return false;
+        }
+        hits++;
+        int[] cached = moves[slot];
+        for (int i = 0, n = moveCounts[slot]; i < n; i++)
+            buffer.add(cached[i]);
+        return true;
+    }
+
+    /**
+     * Store moves
+     * @param hash position hash
+     * @param square source square
+     * @param distance distance of move
+     * @param buffer buffer holding the moves
+     * @param from index of the first move in buffer
+     */
+    public void put(long hash, int square, int distance, MoveBuffer buffer, int from) {
+        long key = squareDistance(square, distance);
+        int slot = slotOf(hash, key);
+        int count = buffer.size() - from;
+        int[] cached = moves[slot];
+        if (cached == null || cached.length < count)
+            cached = moves[slot] = new int[Math.max(count, 8)];
+        for (int i = 0; i < count; i++)
+            cached[i] = buffer.get(from + i);
+        moveCounts[slot] = count;
+        hashes[slot] = hash;
+        squareDistances[slot] = key;
+    }
+
+    /**
+     * Remove all entries; statistics are kept
+     */
+    public void clear() {
+        Arrays.fill(squareDistances, 0L);
+    }
+
+    /**
+     * Get number of lookups that found moves
+     * @return hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get number of lookups that found nothing
+     * @return misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get fraction of lookups that found moves
+     * @return hit rate, 0 if no lookups
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Reset hit and miss counters
+     */
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Get number of slots
+     * @return capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
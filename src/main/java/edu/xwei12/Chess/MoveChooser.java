@@ -0,0 +1,48 @@
+package edu.xwei12.chess;
+
+import java.util.Random;
+
+/**
+ * Move-choosing strategy for self-play
+ * @author Xinran Wei
+ *
+ * Choosers are shared by all games of a simulation, so they must be stateless or
+ * thread-safe; per-game randomness comes from the given Random.
+ */
+@FunctionalInterface
+public interface MoveChooser {
+
+    /** Uniformly random move **/
+    MoveChooser RANDOM = (game, player, moves, random) -> random.nextInt(moves.size());
+
+    /** Capture of the most valuable piece (SearchEngine.getPieceValue), else a random move **/
+    MoveChooser GREEDY_CAPTURE = (game, player, moves, random) -> {
+        RectangleBoard board = game.getBoard();
+        int best = -1, bestValue = -1, ties = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (!PackedMove.isCapture(move)) continue;
+            int destination = PackedMove.getDestination(move);
+            Piece<RectangleBoard, RectanglePosition> victim = board.getPiece(board.getRank(destination), board.getFile(destination));
+            int value = SearchEngine.getPieceValue(victim.getKind());
+            if (value > bestValue) {
+                best = i;
+                bestValue = value;
+                ties = 1;
+            } else if (value == bestValue && random.nextInt(++ties) == 0) {
+                best = i;
+            }
+        }
+        return best >= 0 ? best : random.nextInt(moves.size());
+    };
+
+    /**
+     * Choose a move
+     * @param game game, not to be modified
+     * @param player player to move
+     * @param moves legal moves (PackedMove), not empty
+     * @param random random source of the game
+     * @return index of the chosen move in moves
+     */
+    int choose(StandardGame game, int player, MoveBuffer moves, Random random);
+}
@@ -0,0 +1,96 @@
+package edu.xwei12.chess;
+
+/**
+ * Coordinate notation for squares and moves on rectangle boards
+ * @author Xinran Wei
+ *
+ * A square is its file as a letter ('a' for file 0, up to 'z') followed by its
+ * rank counted from 1, e.g. "e2" for rank 1, file 4. A move is its source square
+ * followed by its destination square, e.g. "e2e4".
+ */
+public final class Notation {
+
+    /** Most files a square can be written for **/
+    public static final int MAX_FILES = 26;
+
+    /** Not instantiable **/
+    private Notation() {}
+
+    /**
+     * Append a square
+     * @param square square index
+     * @param files number of files of the board
+     * @param builder builder
+     */
+    public static void appendSquare(int square, int files, StringBuilder builder) {
+        if (files > MAX_FILES) throw new IllegalArgumentException("Too many files for notation: " + files);
+        builder.append((char) ('a' + square % files)).append(square / files + 1);
+    }
+
+    /**
+     * Append a packed move
+     * @param move packed move
+     * @param files number of files of the board
+     * @param builder builder
+     */
+    public static void appendMove(int move, int files, StringBuilder builder) {
+        appendSquare(PackedMove.getSource(move), files, builder);
+        appendSquare(PackedMove.getDestination(move), files, builder);
+    }
+
+    /**
+     * Write a packed move
+     * @param move packed move
+     * @param files number of files of the board
+     * @return move text
+     */
+    public static String toString(int move, int files) {
+        StringBuilder builder = new StringBuilder(6);
+        appendMove(move, files, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Parse a move, such as "e2e4"
+     * @param text text
+     * @param start index of the first character
+     * @param end index after the last character
+     * @param ranks number of ranks of the board
+     * @param files number of files of the board
+     * @return packed move (without flags), or -1 if the text is not a move on the board
+     */
+    public static int parseMove(CharSequence text, int start, int end, int ranks, int files) {
+        int source = parseSquare(text, start, end, ranks, files);
+        if (source < 0) return -1;
+        int i = start + 1;
+        while (i < end && Character.isDigit(text.charAt(i))) i++;
+        int destination = parseSquare(text, i, end, ranks, files);
+        if (destination < 0) return -1;
+        i++;
+        while (i < end && Character.isDigit(text.charAt(i))) i++;
+        return i == end ? PackedMove.encode(source, destination, 0) : -1;
+    }
+
+    /**
+     * Parse a square at the start of a range
+     * @param text text
+     * @param start index of the file letter
+     * @param end end of the range
+     * @param ranks number of ranks of the board
+     * @param files number of files of the board
+     * @return square index, or -1 if there is no square on the board
+     */
+    private static int parseSquare(CharSequence text, int start, int end, int ranks, int files) {
+        if (start >= end) return -1;
+        int file = text.charAt(start) - 'a';
+        if (file < 0 || file >= files) return -1;
+        int rank = 0, i = start + 1;
+        for (; i < end && Character.isDigit(text.charAt(i)); i++) {
+            rank = rank * 10 + (text.charAt(i) - '0');
+            if (rank > ranks) return -1;
+        }
+        if (i == start + 1 || rank == 0) return -1;
+        int square = (rank - 1) * files + file;
+        return square < PackedMove.MAX_SQUARES ? square : -1;
+    }
+}
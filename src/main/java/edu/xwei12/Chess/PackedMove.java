@@ -0,0 +1,71 @@
+package edu.xwei12.chess;
+
+/**
+ * Packed move encoding
+ * @author Xinran Wei
+ *
+ * A move is packed into an int as (flags << 24) | (destination << 12) | source,
+ * where source and destination are square indices given by the board
+ * (rank * files + file for RectangleBoard).
+ */
+public final class PackedMove {
+
+    /** Maximum number of squares a packed move can address **/
+    public static final int MAX_SQUARES = 1 << 12;
+
+    /** Flag: destination holds a piece that will be captured **/
+    public static final int FLAG_CAPTURE = 1;
+
+    /** Square mask **/
+    private static final int SQUARE_MASK = MAX_SQUARES - 1;
+
+    /** Not instantiable **/
+    private PackedMove() {}
+
+    /**
+     * Pack a move
+     * @param source source square
+     * @param destination destination square
+     * @param flags move flags
+     * @return packed move
+     */
+    public static int encode(int source, int destination, int flags) {
+        return (flags << 24) | (destination << 12) | source;
+    }
+
+    /**
+     * Get source square
+     * @param move packed move
+     * @return source square
+     */
+    public static int getSource(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * Get destination square
+     * @param move packed move
+     * @return destination square
+     */
+    public static int getDestination(int move) {
+        return (move >>> 12) & SQUARE_MASK;
+    }
+
+    /**
+     * Get move flags
+     * @param move packed move
+     * @return flags
+     */
+    public static int getFlags(int move) {
+        return move >>> 24;
+    }
+
+    /**
+     * Determine whether a move captures
+     * @param move packed move
+     * @return captures or not
+     */
+    public static boolean isCapture(int move) {
+        return (getFlags(move) & FLAG_CAPTURE) != 0;
+    }
+}
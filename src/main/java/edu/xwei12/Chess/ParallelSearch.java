@@ -0,0 +1,226 @@
+package edu.xwei12.chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded root-split search
+ * @author Xinran Wei
+ *
+ * Iterative deepening where each iteration splits the root moves across a fork-join
+ * pool. Every worker drives its own copy of the game with its own SearchEngine; all
+ * engines share one transposition table, so what one worker learns about a position
+ * cuts the others' trees. Workers take root moves from a shared counter (best move
+ * of the previous iteration first) and search them against the best score so far.
+ */
+public class ParallelSearch {
+
+    /** Shared transposition table **/
+    private final TranspositionTable table;
+
+    /** Result of the last search **/
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+    private long nodes;
+
+    /**
+     * Construct with a 64 MB transposition table
+     */
+    public ParallelSearch() {
+        this(TranspositionTable.ofMegabytes(64));
+    }
+
+    /**
+     * Construct with a given transposition table
+     * @param table transposition table shared by all workers
+     */
+    public ParallelSearch(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Search for the best move of the player to move; the game is not modified
+     * @param game game
+     * @param maxDepth maximum depth in plies
+     * @param timeLimitMillis time budget in milliseconds, or 0 for none
+     * @param threads number of worker threads
+     * @return best move (PackedMove), or 0 if there is none
+     */
+    public int search(StandardGame game, int maxDepth, long timeLimitMillis, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        bestMove = 0;
+        bestScore = 0;
+        completedDepth = 0;
+        nodes = 0;
+        table.newSearch();
+        if (game.getState() == Game.State.CHECKMATE) return 0;
+
+        long deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1000000L : Long.MAX_VALUE;
+
+        MoveBuffer rootMoves = new MoveBuffer();
+        game.getBoard().generatePlayerMoves(game.getPlayerToMove(), rootMoves);
+        if (rootMoves.isEmpty()) return 0;
+
+        List<SearchEngine> engines = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+            engines.add(new SearchEngine(game.copy(), table));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int depth = 1; depth <= Math.min(maxDepth, SearchEngine.MAX_PLY); depth++) {
+                // Depth 1 always completes, so there is a move
+                Iteration iteration = new Iteration(rootMoves, depth, deadline, depth > 1);
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (SearchEngine engine : engines)
+                    tasks.add(() -> {
+                        iteration.work(engine);
+                        return null;
+                    });
+                for (Future<Void> future : pool.invokeAll(tasks))
+                    future.get();
+
+                if (iteration.stopped || iteration.bestMove == 0) break;
+                bestMove = iteration.bestMove;
+                bestScore = iteration.bestScore;
+                completedDepth = depth;
+                if (Math.abs(bestScore) >= SearchEngine.MATE_SCORE - SearchEngine.MAX_PLY) break;
+
+                // Search the best move first next time
+                for (int i = 0; i < rootMoves.size(); i++) {
+                    if (rootMoves.get(i) == bestMove) {
+                        rootMoves.set(i, rootMoves.get(0));
+                        rootMoves.set(0, bestMove);
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return bestMove;
+    }
+
+    /**
+     * One iteration of the root split
+     */
+    private class Iteration {
+
+        /** Root moves and next one to take **/
+        private final MoveBuffer moves;
+        private final AtomicInteger next = new AtomicInteger();
+
+        /** Budget **/
+        private final int depth;
+        private final long deadline;
+        private final boolean deadlineActive;
+
+        /** Best so far **/
+        private int bestMove = 0;
+        private int bestScore = -SearchEngine.INFINITY;
+        private volatile boolean stopped = false;
+
+        Iteration(MoveBuffer moves, int depth, long deadline, boolean deadlineActive) {
+            this.moves = moves;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.deadlineActive = deadlineActive;
+        }
+
+        /**
+         * Search root moves with an engine until none are left
+         * @param engine engine of this worker
+         */
+        void work(SearchEngine engine) {
+            engine.prepare(deadline, deadlineActive);
+            int i;
+            while (!stopped && (i = next.getAndIncrement()) < moves.size()) {
+                int move = moves.get(i);
+                Integer score = engine.searchMove(move, depth, getAlpha(), SearchEngine.INFINITY);
+                if (engine.isStopped()) {
+                    stopped = true;
+                } else if (score != null) {
+                    record(move, score);
+                }
+            }
+            addNodes(engine.getNodes());
+        }
+
+        /**
+         * Get the best score so far as the lower bound for the next move
+         * @return alpha
+         */
+        private synchronized int getAlpha() {
+            return bestScore;
+        }
+
+        /**
+         * Record a root move's score
+         * @param move move
+         * @param score score
+         */
+        private synchronized void record(int move, int score) {
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+        }
+    }
+
+    /**
+     * Add to the node count
+     * @param count nodes
+     */
+    private synchronized void addNodes(long count) {
+        nodes += count;
+    }
+
+    /**
+     * Get best move of the last search
+     * @return packed move, or 0
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Get score of the last completed iteration, for the player to move
+     * @return score
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Get depth of the last completed iteration
+     * @return depth
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Get number of nodes searched by all workers in the last search
+     * @return nodes
+     */
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the shared transposition table
+     * @return table
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,145 @@
+package edu.xwei12.chess;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Perft: counts leaf nodes of the move tree from a StandardGame position
+ * @author Xinran Wei
+ *
+ * Moves are those the game would accept: every destination for which
+ * RectangleBoard.canMovePiece holds, for each piece of the player in turn.
+ * Moves are made with Game.stepWithMove and unmade with Game.undo, so the count
+ * covers the game's own state handling; a checkmated position has no moves.
+ */
+public class Perft {
+
+    /** Game **/
+    private final StandardGame game;
+
+    /** Board of the game (short reference) **/
+    private final RectangleBoard board;
+
+    /** Move buffer per ply **/
+    private MoveBuffer[] buffers = new MoveBuffer[0];
+
+    /**
+     * Constructor
+     * @param game game positioned at the root
+     */
+    public Perft(StandardGame game) {
+        this.game = game;
+        this.board = game.getBoard();
+    }
+
+    /**
+     * Count leaf nodes at depth
+     * @param depth depth in plies
+     * @return number of leaf nodes
+     */
+    public long perft(int depth) {
+        if (depth <= 0) return 1;
+        ensureBuffers(depth);
+        return perft(depth, 0);
+    }
+
+    /**
+     * Count leaf nodes at depth below each root move
+     * @param depth depth in plies, including the root move
+     * @return node count per root move (PackedMove), in generation order
+     */
+    public Map<Integer, Long> divide(int depth) {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        if (depth <= 0 || game.getState() == Game.State.CHECKMATE) return counts;
+        ensureBuffers(depth);
+
+        MoveBuffer moves = buffers[0];
+        moves.clear();
+        generateMoves(getPlayerToMove(), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (!makeMove(move)) continue;
+            counts.put(move, depth == 1 ? 1L : perft(depth - 1, 1));
+            game.undo();
+        }
+        return counts;
+    }
+
+    /**
+     * Recursive node count
+     * @param depth remaining depth, at least 1
+     * @param ply distance from the root
+     * @return number of leaf nodes
+     */
+    private long perft(int depth, int ply) {
+        if (game.getState() == Game.State.CHECKMATE) return 0;
+
+        MoveBuffer moves = buffers[ply];
+        moves.clear();
+        generateMoves(getPlayerToMove(), moves);
+
+        // Bulk count: every generated move is accepted by the game
+        if (depth == 1) return moves.size();
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            if (!makeMove(moves.get(i))) continue;
+            nodes += perft(depth - 1, ply + 1);
+            game.undo();
+        }
+        return nodes;
+    }
+
+    /**
+     * Get the player in turn; player A opens the game
+     * @return player tag
+     */
+    public int getPlayerToMove() {
+        return game.getPlayerToMove();
+    }
+
+    /**
+     * Append all moves of a player that canMovePiece accepts
+     * @param player player tag
+     * @param moves buffer to append to
+     */
+    public void generateMoves(int player, MoveBuffer moves) {
+        board.generatePlayerMoves(player, moves);
+    }
+
+    /**
+     * Make a packed move through the game
+     * @param move packed move
+     * @return moved
+     */
+    private boolean makeMove(int move) {
+        int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+        int player = board.getPiece(board.getRank(source), board.getFile(source)).getTag();
+        return game.stepWithMove(player,
+                board.getRank(source), board.getFile(source),
+                board.getRank(destination), board.getFile(destination));
+    }
+
+    /**
+     * Make sure there is a move buffer per ply
+     * @param depth depth
+     */
+    private void ensureBuffers(int depth) {
+        if (buffers.length >= depth) return;
+        int length = buffers.length;
+        buffers = Arrays.copyOf(buffers, depth);
+        for (int i = length; i < depth; i++)
+            buffers[i] = new MoveBuffer();
+    }
+
+    /**
+     * Format a packed move in coordinate notation, such as "e2e4"
+     * @param board board
+     * @param move packed move
+     * @return move text
+     */
+    public static String toString(RectangleBoard board, int move) {
+        return Notation.toString(move, board.getFiles());
+    }
+}
@@ -0,0 +1,53 @@
+package edu.xwei12.chess;
+
+import java.util.Map;
+
+/**
+ * Perft benchmark over the reference positions
+ * @author Xinran Wei
+ *
+ * Usage: PerftBenchmark [depth [iterations [divide]]]
+ * Runs perft on every PerftPosition, checks the node count where it is known,
+ * and reports nodes per second of the fastest iteration (the first ones warm up the JIT).
+ */
+public class PerftBenchmark {
+
+    /**
+     * Entry point
+     * @param args depth (default: each position's deepest known), iterations (default 3), "divide"
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        boolean divide = args.length > 2 && args[2].equals("divide");
+
+        boolean passed = true;
+        for (PerftPosition position : PerftPosition.values()) {
+            int d = depth > 0 ? depth : position.getMaxDepth();
+            StandardGame game = position.newGame();
+            Perft perft = new Perft(game);
+
+            if (divide) {
+                for (Map.Entry<Integer, Long> entry : perft.divide(d).entrySet())
+                    System.out.println("  " + Perft.toString(game.getBoard(), entry.getKey()) + ": " + entry.getValue());
+            }
+
+            long nodes = 0, best = Long.MAX_VALUE;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                nodes = perft.perft(d);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            String check = "";
+            if (d <= position.getMaxDepth()) {
+                boolean ok = nodes == position.getNodeCount(d);
+                passed &= ok;
+                check = ok ? " ok" : " MISMATCH (expected " + position.getNodeCount(d) + ")";
+            }
+            System.out.printf("%-12s depth %d: %,d nodes in %.1f ms, %,.0f nodes/s%s%n",
+                    position, d, nodes, best / 1e6, nodes * 1e9 / Math.max(best, 1), check);
+        }
+        if (!passed) System.exit(1);
+    }
+}
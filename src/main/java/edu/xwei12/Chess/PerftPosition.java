@@ -0,0 +1,87 @@
+package edu.xwei12.chess;
+
+/**
+ * Reference positions for perft
+ * @author Xinran Wei
+ *
+ * Each position carries its known node counts at depth 1, 2, 3, ..., which
+ * Perft must reproduce; they pin down move generation and make/unmake as
+ * implemented by this game's rules.
+ */
+public enum PerftPosition {
+
+    /** Initial position **/
+    START(new int[][] {}, false,
+            20L, 1060L, 23948L, 1181807L),
+
+    /** After an opening with a pawn exchange and knights developed **/
+    MIDDLEGAME(new int[][] {
+            {StandardGame.PLAYER_A, 1, 4, 3, 4},
+            {StandardGame.PLAYER_B, 6, 3, 4, 3},
+            {StandardGame.PLAYER_A, 3, 4, 4, 3},
+            {StandardGame.PLAYER_B, 7, 1, 5, 2},
+            {StandardGame.PLAYER_A, 0, 6, 2, 5},
+    }, false,
+            59L, 1581L, 86334L, 2528196L),
+
+    /** Initial position with grasshoppers and berolina pawns, as in the custom game **/
+    EXTENDED(new int[][] {}, true,
+            21L, 1070L, 24354L, 1141124L);
+
+    /** Moves leading to the position: player, from rank, from file, to rank, to file **/
+    private final int[][] moves;
+
+    /** Whether extended pieces are added **/
+    private final boolean extended;
+
+    /** Known node counts, from depth 1 **/
+    private final long[] nodeCounts;
+
+    /**
+     * Constructor
+     * @param moves moves leading to the position
+     * @param extended whether extended pieces are added
+     * @param nodeCounts known node counts, from depth 1
+     */
+    PerftPosition(int[][] moves, boolean extended, long... nodeCounts) {
+        this.moves = moves;
+        this.extended = extended;
+        this.nodeCounts = nodeCounts;
+    }
+
+    /**
+     * Set up a new game at this position
+     * @return game
+     */
+    public StandardGame newGame() {
+        StandardGame game = new StandardGame();
+        if (extended) {
+            RectangleBoard board = game.getBoard();
+            board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_A), RectanglePosition.of(2, 2));
+            board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), RectanglePosition.of(5, 2));
+            board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_A), RectanglePosition.of(2, 5));
+            board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_B), RectanglePosition.of(5, 5));
+        }
+        for (int[] m : moves)
+            if (!game.stepWithMove(m[0], m[1], m[2], m[3], m[4]))
+                throw new IllegalStateException("Illegal move in reference position " + name());
+        return game;
+    }
+
+    /**
+     * Get deepest depth with a known node count
+     * @return depth
+     */
+    public int getMaxDepth() {
+        return nodeCounts.length;
+    }
+
+    /**
+     * Get known node count
+     * @param depth depth, from 1 to getMaxDepth()
+     * @return node count
+     */
+    public long getNodeCount(int depth) {
+        return nodeCounts[depth - 1];
+    }
+}
@@ -12,14 +12,34 @@ import java.util.Set;
  * The mover derives a set of possible moves (destination set)
  * from the context (position, board cells, moving distance)
  *
+ *     generator :: (square, board, distance, buffer) -> ()
+ *
+ * The optional generator appends the same moves as packed ints (PackedMove)
+ * to a reusable buffer, without allocating
+ *
+ *     legalGenerator :: (square, board, buffer) -> ()
+ *
+ * The optional legal generator appends, in one pass, every move that
+ * Board.canMovePiece accepts: for each destination, the move generated at the
+ * destination's own distance
+ *
  */
 public class Piece<B extends Board, C extends Coordinates<C>> {
     public String getKind() {
         return kind;
     }
 
+    /**
+     * Get the small integer id of the kind, the same for all pieces of a kind
+     * @return kind id
+     */
+    public int getKindId() {
+        return kindId;
+    }
+
     protected void setKind(String kind) {
         this.kind = kind;
+        this.kindId = PieceIndex.kindIdOf(kind);
     }
 
     public Integer getTag() {
@@ -41,12 +61,41 @@ public class Piece<B extends Board, C extends Coordinates<C>> {
         Set<C> apply(C position, B board, Integer distance);
     }
 
+    /**
+     * MoveGenerator = (square, board, distance, buffer) -> ()
+     * @param <B> Board
+     */
+    @FunctionalInterface
+    interface MoveGenerator<B extends Board> {
+        /** Function signature **/
+        void generate(int square, B board, int distance, MoveBuffer buffer);
+    }
+
+    /**
+     * LegalMoveGenerator = (square, board, buffer) -> ()
+     * @param <B> Board
+     */
+    @FunctionalInterface
+    interface LegalMoveGenerator<B extends Board> {
+        /** Function signature **/
+        void generate(int square, B board, MoveBuffer buffer);
+    }
+
     /** The move function **/
     private MoveFunction<B, C> mover;
 
+    /** The allocation-free move generator, may be null **/
+    private MoveGenerator<B> generator;
+
+    /** The one-pass generator of all accepted moves, may be null **/
+    private LegalMoveGenerator<B> legalGenerator;
+
     /** Kind kind **/
     private String kind;
 
+    /** Id of the kind (PieceIndex) **/
+    private int kindId;
+
     /** Tag for player info, etc **/
     private Integer tag;
 
@@ -55,9 +104,32 @@ public class Piece<B extends Board, C extends Coordinates<C>> {
      * @param moveFunction :: (position, board, distance) -> positionSet
      */
     public Piece(String kind, int tag, MoveFunction<B, C> moveFunction) {
+        this(kind, tag, moveFunction, null);
+    }
+
+    /**
+     * Constructor
+     * @param moveFunction :: (position, board, distance) -> positionSet
+     * @param moveGenerator :: (square, board, distance, buffer) -> (), same moves as moveFunction
+     */
+    public Piece(String kind, int tag, MoveFunction<B, C> moveFunction, MoveGenerator<B> moveGenerator) {
+        this(kind, tag, moveFunction, moveGenerator, null);
+    }
+
+    /**
+     * Constructor
+     * @param moveFunction :: (position, board, distance) -> positionSet
+     * @param moveGenerator :: (square, board, distance, buffer) -> (), same moves as moveFunction
+     * @param legalMoveGenerator :: (square, board, buffer) -> (), all moves accepted by canMovePiece
+     */
+    public Piece(String kind, int tag, MoveFunction<B, C> moveFunction, MoveGenerator<B> moveGenerator,
+                 LegalMoveGenerator<B> legalMoveGenerator) {
         this.kind = kind;
+        this.kindId = PieceIndex.kindIdOf(kind);
         this.tag = tag;
         this.mover = moveFunction;
+        this.generator = moveGenerator;
+        this.legalGenerator = legalMoveGenerator;
     }
 
     /**
@@ -67,4 +139,20 @@ public class Piece<B extends Board, C extends Coordinates<C>> {
     public MoveFunction<B, C> getMover() {
         return mover;
     }
+
+    /**
+     * Get move generator
+     * @return Move generator or null
+     */
+    public MoveGenerator<B> getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Get one-pass generator of all accepted moves
+     * @return legal move generator or null
+     */
+    public LegalMoveGenerator<B> getLegalGenerator() {
+        return legalGenerator;
+    }
 }
@@ -0,0 +1,231 @@
+package edu.xwei12.chess;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Piece lists of a board
+ * @author Xinran Wei
+ *
+ * Kinds are numbered by small integer ids, shared by all boards (Piece.getKindId).
+ * For each kind the index keeps the occupied squares in a primitive array, and for
+ * each square its kind and its slot in that array, so adding, removing and moving
+ * a piece take constant time: a removed square is replaced by the last one of its list.
+ * Looking up a known kind takes no lock; only numbering a new kind does.
+ */
+final class PieceIndex {
+
+    /** Kind ids by name, and names by id (replaced, never written, once published) **/
+    private static final ConcurrentHashMap<String, Integer> kindIds = new ConcurrentHashMap<>();
+    private static volatile String[] kindNames = new String[0];
+
+    /** Squares of each kind, and number in use **/
+    private int[][] squares;
+    private int[] counts;
+
+    /** Kind id of each square (-1 if empty), and its slot in squares[kind] **/
+    private final int[] kindAt;
+    private final int[] slotAt;
+
+    /** Kinds placed on the board so far **/
+    private final Set<String> kinds;
+
+    /**
+     * Get the id of a piece kind, numbering new kinds from 0
+     * @param kind name of kind
+     * @return kind id
+     */
+    static int kindIdOf(String kind) {
+        Integer id = kindIds.get(kind);
+        return id != null ? id : registerKind(kind);
+    }
+
+    /**
+     * Get the id of a piece kind without numbering it
+     * @param kind name of kind
+     * @return kind id, -1 if the kind has no id yet
+     */
+    static int findKindId(String kind) {
+        Integer id = kind == null ? null : kindIds.get(kind);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Number a new kind; the name is published before the id
+     * @param kind name of kind
+     * @return kind id
+     */
+    private static synchronized int registerKind(String kind) {
+        Integer id = kindIds.get(kind);
+        if (id != null) return id;
+        String[] names = Arrays.copyOf(kindNames, kindNames.length + 1);
+        names[names.length - 1] = kind;
+        kindNames = names;
+        kindIds.put(kind, names.length - 1);
+        return names.length - 1;
+    }
+
+    /**
+     * Get the name of a kind id
+     * @param kindId kind id
+     * @return name of kind
+     */
+    static String kindNameOf(int kindId) {
+        return kindNames[kindId];
+    }
+
+    /**
+     * Construct an empty index
+     * @param squareCount number of squares on the board
+     */
+    PieceIndex(int squareCount) {
+        squares = new int[0][];
+        counts = new int[0];
+        kindAt = new int[squareCount];
+        slotAt = new int[squareCount];
+        Arrays.fill(kindAt, -1);
+        kinds = new LinkedHashSet<>();
+    }
+
+    /**
+     * Place a piece kind on a square, replacing what is there
+     * @param kindId kind id
+     * @param square square index
+     */
+    void add(int kindId, int square) {
+        remove(square);
+        if (kindId >= counts.length) {
+            squares = Arrays.copyOf(squares, kindId + 1);
+            counts = Arrays.copyOf(counts, kindId + 1);
+        }
+        if (squares[kindId] == null) {
+            squares[kindId] = new int[8];
+            kinds.add(kindNameOf(kindId));
+        } else if (counts[kindId] == squares[kindId].length) {
+            squares[kindId] = Arrays.copyOf(squares[kindId], counts[kindId] * 2);
+        }
+        int slot = counts[kindId]++;
+        squares[kindId][slot] = square;
+        kindAt[square] = kindId;
+        slotAt[square] = slot;
+    }
+
+    /**
+     * Clear a square
+     * @param square square index
+     */
+    void remove(int square) {
+        int kindId = kindAt[square];
+        if (kindId < 0) return;
+        int[] list = squares[kindId];
+        int last = list[--counts[kindId]];
+        list[slotAt[square]] = last;
+        slotAt[last] = slotAt[square];
+        kindAt[square] = -1;
+    }
+
+    /**
+     * Move the piece on a square to another, removing what is there
+     * @param from occupied source square
+     * @param to destination square; the index is left as it is if it is the source
+     */
+    void move(int from, int to) {
+        if (from == to) return;
+        remove(to);
+        int kindId = kindAt[from], slot = slotAt[from];
+        squares[kindId][slot] = to;
+        kindAt[to] = kindId;
+        slotAt[to] = slot;
+        kindAt[from] = -1;
+    }
+
+    /**
+     * Remove all pieces; kinds placed so far are kept
+     */
+    void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(kindAt, -1);
+    }
+
+    /**
+     * Overwrite an index of the same board size
+     * @param target index to overwrite
+     */
+    void copyInto(PieceIndex target) {
+        if (target.counts.length < counts.length) {
+            target.squares = Arrays.copyOf(target.squares, counts.length);
+            target.counts = Arrays.copyOf(target.counts, counts.length);
+        }
+        Arrays.fill(target.counts, 0);
+        for (int kindId = 0; kindId < target.counts.length; kindId++) {
+            if (kindId >= counts.length || squares[kindId] == null) {
+                target.squares[kindId] = null;
+                continue;
+            }
+            if (target.squares[kindId] == null || target.squares[kindId].length < counts[kindId])
+                target.squares[kindId] = new int[squares[kindId].length];
+            System.arraycopy(squares[kindId], 0, target.squares[kindId], 0, counts[kindId]);
+            target.counts[kindId] = counts[kindId];
+        }
+        System.arraycopy(kindAt, 0, target.kindAt, 0, kindAt.length);
+        System.arraycopy(slotAt, 0, target.slotAt, 0, slotAt.length);
+        target.kinds.clear();
+        target.kinds.addAll(kinds);
+    }
+
+    /**
+     * Get the kinds placed so far
+     * @return unmodifiable set of names
+     */
+    Set<String> getKinds() {
+        return Collections.unmodifiableSet(kinds);
+    }
+
+    /**
+     * Determine whether a kind has been placed
+     * @param kindId kind id, or -1
+     * @return placed or not
+     */
+    boolean hasKind(int kindId) {
+        return kindId >= 0 && kindId < counts.length && squares[kindId] != null;
+    }
+
+    /**
+     * Get the number of kind ids the index has room for
+     * @return kind id bound
+     */
+    int getKindBound() {
+        return counts.length;
+    }
+
+    /**
+     * Get the number of pieces of a kind
+     * @param kindId kind id, or -1
+     * @return count
+     */
+    int count(int kindId) {
+        return kindId >= 0 && kindId < counts.length ? counts[kindId] : 0;
+    }
+
+    /**
+     * Get a square holding a kind
+     * @param kindId kind id
+     * @param index index below count(kindId)
+     * @return square index
+     */
+    int square(int kindId, int index) {
+        return squares[kindId][index];
+    }
+
+    /**
+     * Get the kind id on a square
+     * @param square square index
+     * @return kind id, -1 if empty
+     */
+    int kindAt(int square) {
+        return kindAt[square];
+    }
+}
@@ -1,8 +1,11 @@
 package edu.xwei12.chess;
 
+import java.util.AbstractSet;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -40,8 +43,38 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
     /** Cell matrix **/
     private Cell cells[][];
 
-    /** Piece map **/
-    private HashMap<String, Set<RectanglePosition>> pieceMap;
+    /** Piece lists by kind **/
+    private PieceIndex pieceIndex;
+
+    /** Occupancy bit per square **/
+    private long[] occupancy;
+
+    /** Precomputed attack and ray tables for this size **/
+    private AttackTables tables;
+
+    /** Number of modifications (add, move, remove) so far **/
+    protected long modCount;
+
+    /** Zobrist hash of the pieces on the board **/
+    protected long positionHash;
+
+    /** Scratch buffer for move generation **/
+    private MoveBuffer moveBuffer = new MoveBuffer();
+
+    /** Scratch bit set of destinations, for generatePieceMoves **/
+    private long[] seenSquares;
+
+    /** Last snapshot taken, reused until the next modification **/
+    private BoardSnapshot snapshot;
+
+    /** Cache of generated moves, or null **/
+    private MoveCache moveCache;
+
+    /** Evaluation terms, or null **/
+    private Evaluation evaluation;
+
+    /** Evaluation score of the pieces on the board, from PLAYER_A's side **/
+    protected int evaluationScore;
 
 	/**
 	 * Construct a board with dimensions
@@ -49,8 +82,25 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
      * @param files number of files
 	 */
 	public RectangleBoard(int ranks, int files) {
+        this(ranks, files, true);
+	}
+
+    /**
+     * Construct a board with dimensions, optionally without cell storage
+     * (for subclasses that keep pieces in their own representation)
+     * @param ranks number of ranks
+     * @param files number of files
+     * @param allocateCells whether to allocate the cell matrix and piece index
+     */
+    protected RectangleBoard(int ranks, int files, boolean allocateCells) {
         this.ranks = ranks;
         this.files = files;
+        this.tables = AttackTables.forSize(ranks, files);
+
+        if (!allocateCells) return;
+
+        // Initialize occupancy
+        occupancy = new long[tables.getWords()];
 
         // Initialize cells
         cells = new Cell[ranks][files];
@@ -58,9 +108,9 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
             for (int j = 0; j < files; j++)
                 cells[i][j] = new Cell(null);
 
-        // Initialize piece map
-        pieceMap = new HashMap<>(ranks * files);
-	}
+        // Initialize piece index
+        pieceIndex = new PieceIndex(ranks * files);
+    }
 
     /**
      * Get piece at (rank, file)
@@ -69,18 +119,57 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
      * @return cell
      */
     protected Piece<RectangleBoard, RectanglePosition> getPiece(int rank, int file) {
-        if (file >= ranks || file >= files) return null;
+        if (rank >= ranks || file >= files) return null;
         return cells[rank][file].piece;
     }
 
     /**
-     * Get locations of pieces of a kind
+     * Determines if a piece exists at (rank, file)
+     * @param rank rank-coordinate
+     * @param file file-coordinate
+     * @return occupied or not
+     */
+    protected boolean isOccupied(int rank, int file) {
+        return isOccupied(rank * files + file);
+    }
+
+    /**
+     * Determines if a piece exists at a square
+     * @param square square index
+     * @return occupied or not
+     */
+    protected boolean isOccupied(int square) {
+        return (getOccupancy(square >>> 6) & (1L << square)) != 0;
+    }
+
+    /**
+     * Get a word of the occupancy mask
+     * @param word word index, square / 64
+     * @return occupancy bits of squares [64 * word, 64 * word + 63]
+     */
+    protected long getOccupancy(int word) {
+        return occupancy[word];
+    }
+
+    /**
+     * Get the precomputed attack and ray tables of this board size
+     * @return tables
+     */
+    public AttackTables getAttackTables() {
+        return tables;
+    }
+
+    /**
+     * Get locations of pieces of a kind, as a live read-only view of the piece index.
+     * Its iterators throw ConcurrentModificationException once the board changes, so
+     * copy the set (e.g. new ArrayList<>(set)) to move pieces while iterating.
      * @param kind name of the kind
-     * @return piece set
+     * @return piece set, or null if the kind was never placed
      */
     @Override
     public Set<RectanglePosition> getPiecesByKind(String kind) {
-        return pieceMap.get(kind);
+        int kindId = PieceIndex.findKindId(kind);
+        return pieceIndex.hasKind(kindId) ? new PieceSet(kindId) : null;
     }
 
 
@@ -90,7 +179,18 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
      */
     @Override
     public Set<String> getAllPieceKinds() {
-        return pieceMap.keySet();
+        return pieceIndex.getKinds();
+    }
+
+    /**
+     * Get all piece locations, as a live read-only view of the piece index.
+     * Its iterators throw ConcurrentModificationException once the board changes, so
+     * copy the set (e.g. new ArrayList<>(set)) to move pieces while iterating.
+     * @return all piece locations
+     */
+    @Override
+    public Set<RectanglePosition> getAllPieces() {
+        return new PieceSet(-1);
     }
 
     /**
@@ -120,7 +220,11 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
     @Override
     public void removeAllPieces() {
         Arrays.stream(cells).forEach(rank -> Arrays.stream(rank).forEach(cell -> cell.piece = null));
-        pieceMap.forEach((type, set) -> set.clear());
+        pieceIndex.clear();
+        Arrays.fill(occupancy, 0L);
+        positionHash = 0L;
+        evaluationScore = 0;
+        modCount++;
     }
 
     /**
@@ -130,12 +234,21 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
      */
     @Override
     public void addPiece(Piece<RectangleBoard, RectanglePosition> piece, RectanglePosition position) {
-        cells[position.rank][position.file].piece = piece;
+        int square = getSquare(position.rank, position.file);
+        Cell cell = cells[position.rank][position.file];
+
+        // Update hash and score, replacing any piece at position
+        if (!cell.isEmpty()) {
+            positionHash ^= Zobrist.pieceKey(cell.piece, square);
+            updateEvaluationScore(cell.piece, square, -1);
+        }
+        positionHash ^= Zobrist.pieceKey(piece, square);
+        updateEvaluationScore(piece, square, 1);
 
-        // Add piece to piece map
-        Set<RectanglePosition> set = pieceMap.getOrDefault(piece.getKind(), new HashSet<>());
-        set.add(position);
-        pieceMap.put(piece.getKind(), set);
+        cell.piece = piece;
+        setOccupied(square, true);
+        pieceIndex.add(piece.getKindId(), square);
+        modCount++;
     }
 
     /**
@@ -146,13 +259,23 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
      */
     @Override
     public Set<RectanglePosition> getPossibleMoves(RectanglePosition position, int distance) {
-        Cell cell = cells[position.rank][position.file];
+        Piece<RectangleBoard, RectanglePosition> piece = getPiece(position);
 
         // Wrong position
-        if (cell.isEmpty()) return null;
+        if (piece == null) return null;
+
+        // Cached, as generated moves
+        if (moveCache != null && piece.getGenerator() != null) {
+            MoveBuffer buffer = new MoveBuffer();
+            generateMoves(getSquare(position.rank, position.file), distance, buffer);
+            Set<RectanglePosition> set = new HashSet<>(buffer.size() * 2);
+            for (int i = 0; i < buffer.size(); i++)
+                set.add(positionAt(PackedMove.getDestination(buffer.get(i))));
+            return set;
+        }
 
         // All possible moves of distance under context
-        return cell.piece.getMover().apply(position, this, distance);
+        return piece.getMover().apply(position, this, distance);
     }
 
     /**
@@ -163,24 +286,27 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
      */
     @Override
     public boolean canMovePiece(RectanglePosition fromPosition, RectanglePosition toPosition) {
-        Cell fromCell = cells[fromPosition.rank][fromPosition.file];
-
-        // Wrong source position
-        if (fromCell.isEmpty()) return false;
+        // Wrong source or destination position
+        if (!pieceExists(fromPosition) || !isValidPosition(toPosition)) return false;
 
         // Calculate distance (squares)
         int distance = fromPosition.distanceTo(toPosition);
 
         // Possible moves
-        Set<RectanglePosition> moves = getPossibleMoves(fromPosition, distance);
-
-        return moves.stream().anyMatch(x -> x.sameAs(toPosition));
+        moveBuffer.clear();
+        generateMoves(fromPosition, distance, moveBuffer);
+
+        int destination = getSquare(toPosition.rank, toPosition.file);
+        for (int i = 0; i < moveBuffer.size(); i++)
+            if (PackedMove.getDestination(moveBuffer.get(i)) == destination)
+                return true;
+        return false;
     }
 
     /**
      * Move a piece from one position to another, and also attacks
      * @param fromPosition current position of piece
-     * @param toPosition of movement
+     * @param toPosition of movement; the board is left as it is if it is the source
      */
     @Override
     public void movePiece(RectanglePosition fromPosition, RectanglePosition toPosition) {
@@ -189,16 +315,210 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
 
         Cell fromCell = cells[fromPosition.rank][fromPosition.file];
         Cell toCell = cells[toPosition.rank][toPosition.file];
+        int from = getSquare(fromPosition.rank, fromPosition.file);
+        int to = getSquare(toPosition.rank, toPosition.file);
+        if (from == to) return;
+
+        // Update hash and score
+        if (!toCell.isEmpty()) {
+            positionHash ^= Zobrist.pieceKey(toCell.piece, to);
+            updateEvaluationScore(toCell.piece, to, -1);
+        }
+        positionHash ^= Zobrist.pieceKey(fromCell.piece, from) ^ Zobrist.pieceKey(fromCell.piece, to);
+        updateEvaluationScore(fromCell.piece, from, -1);
+        updateEvaluationScore(fromCell.piece, to, 1);
 
-        // Modify piece map
-        if (!toCell.isEmpty())
-            pieceMap.get(toCell.piece.getKind()).removeIf(x -> x.sameAs(toPosition));
-        pieceMap.get(fromCell.piece.getKind()).removeIf(x -> x.sameAs(fromPosition));
-        pieceMap.get(fromCell.piece.getKind()).add(toPosition);
+        // Modify piece index
+        pieceIndex.move(from, to);
 
         // Modify cells
         toCell.piece = fromCell.piece;
         fromCell.piece = null;
+
+        // Modify occupancy
+        setOccupied(from, false);
+        setOccupied(to, true);
+        modCount++;
+    }
+
+    /**
+     * Make an independent copy of the board, duplicating the cells and indexes in bulk
+     * @return copy
+     */
+    @Override
+    public RectangleBoard copy() {
+        RectangleBoard copy = new RectangleBoard(ranks, files);
+        copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Overwrite a board of the same class and size with the pieces of this board,
+     * reusing its storage
+     * @param target board to overwrite
+     */
+    @Override
+    public void copyInto(RectangleBoard target) {
+        checkCopyTarget(target);
+        if (target == this) return;
+
+        for (int i = 0; i < ranks; i++) {
+            Cell[] from = cells[i], to = target.cells[i];
+            for (int j = 0; j < files; j++)
+                to[j].piece = from[j].piece;
+        }
+        pieceIndex.copyInto(target.pieceIndex);
+        System.arraycopy(occupancy, 0, target.occupancy, 0, occupancy.length);
+        target.positionHash = positionHash;
+        target.setEvaluationFrom(this);
+        target.modCount++;
+    }
+
+    /**
+     * Make sure a board can be overwritten by copyInto
+     * @param target board to overwrite
+     */
+    protected void checkCopyTarget(RectangleBoard target) {
+        if (target.getClass() != getClass())
+            throw new IllegalArgumentException("Cannot copy " + getClass().getSimpleName() + " into " + target.getClass().getSimpleName());
+        if (target.ranks != ranks || target.files != files)
+            throw new IllegalArgumentException("Board is " + target.ranks + "x" + target.files + ", expected " + ranks + "x" + files);
+    }
+
+    /**
+     * Get the Zobrist hash of the pieces on the board, maintained incrementally
+     * @return position hash
+     */
+    @Override
+    public long getPositionHash() {
+        return positionHash;
+    }
+
+    /**
+     * Determine whether the outcome of canMovePiece(fromPosition, toPosition) may change
+     * when the content at a position changes. Moves of pieces with a generator only depend on
+     * the source, the destination and the leap path in between.
+     * @param fromPosition source position
+     * @param toPosition destination position
+     * @param position changed position
+     * @return may be affected or not
+     */
+    @Override
+    public boolean isMoveAffectedBy(RectanglePosition fromPosition, RectanglePosition toPosition, RectanglePosition position) {
+        if (position.sameAs(fromPosition) || position.sameAs(toPosition)) return true;
+        if (!isValidPosition(position)) return false;
+
+        // Unknown movers may look anywhere
+        Piece<RectangleBoard, RectanglePosition> piece = getPiece(fromPosition);
+        if (piece == null || piece.getGenerator() == null) return true;
+        if (!tables.hasLeapPaths() || !isValidPosition(toPosition)) return true;
+
+        int square = getSquare(position.rank, position.file);
+        long path = tables.getLeapPath(getSquare(fromPosition.rank, fromPosition.file),
+                getSquare(toPosition.rank, toPosition.file), square >>> 6);
+        return (path & (1L << square)) != 0;
+    }
+
+    /**
+     * Get the modification count, which changes whenever pieces are added, moved or removed
+     * @return modification count
+     */
+    @Override
+    public long getModificationCount() {
+        return modCount;
+    }
+
+    /**
+     * Get an immutable snapshot of the board; the same snapshot is returned until
+     * the board is modified. Must be called by the thread owning the board; the
+     * snapshot itself may be handed to any thread.
+     * @return snapshot
+     */
+    public BoardSnapshot getSnapshot() {
+        if (snapshot == null || snapshot.getModificationCount() != modCount)
+            snapshot = new BoardSnapshot(this);
+        return snapshot;
+    }
+
+    /**
+     * Get the cache of generated moves
+     * @return cache, or null if moves are not cached
+     */
+    public MoveCache getMoveCache() {
+        return moveCache;
+    }
+
+    /**
+     * Cache generated moves (generateMoves, and getPossibleMoves for pieces with a
+     * generator) by position hash, square and distance
+     * @param moveCache cache of this board only, or null to stop caching
+     */
+    public void setMoveCache(MoveCache moveCache) {
+        this.moveCache = moveCache;
+    }
+
+    /**
+     * Get the evaluation terms
+     * @return evaluation, or null if positions are not scored
+     */
+    public Evaluation getEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Score positions with evaluation terms, kept up to date as pieces are added, moved
+     * and removed (and copied along by copy and copyInto); adds up the current pieces once
+     * @param evaluation evaluation for this board size, or null to stop scoring
+     */
+    public void setEvaluation(Evaluation evaluation) {
+        if (evaluation != null && (evaluation.getRanks() != ranks || evaluation.getFiles() != files))
+            throw new IllegalArgumentException("Evaluation is for " + evaluation.getRanks() + "x" + evaluation.getFiles()
+                    + ", board is " + ranks + "x" + files);
+        this.evaluation = evaluation;
+        evaluationScore = 0;
+        if (evaluation == null) return;
+        for (int square = 0; square < ranks * files; square++)
+            if (isOccupied(square))
+                evaluationScore += evaluation.score(getPiece(getRank(square), getFile(square)), square);
+    }
+
+    /**
+     * Get the evaluation score of the position, without walking the board
+     * @return material and piece-square balance from PLAYER_A's side, 0 without evaluation
+     */
+    public int getEvaluationScore() {
+        return evaluationScore;
+    }
+
+    /**
+     * Take over the evaluation and score of a board with the same pieces, for copyInto
+     * @param source board copied from
+     */
+    protected void setEvaluationFrom(RectangleBoard source) {
+        evaluation = source.evaluation;
+        evaluationScore = source.evaluationScore;
+    }
+
+    /**
+     * Add or subtract the value of a piece on a square to the evaluation score
+     * @param piece piece
+     * @param square square index
+     * @param sign 1 when the piece arrives, -1 when it leaves
+     */
+    protected void updateEvaluationScore(Piece<RectangleBoard, RectanglePosition> piece, int square, int sign) {
+        if (evaluation != null) evaluationScore += sign * evaluation.score(piece, square);
+    }
+
+    /**
+     * Set or clear the occupancy bit of a square
+     * @param square square index
+     * @param occupied occupied or not
+     */
+    private void setOccupied(int square, boolean occupied) {
+        if (occupied)
+            occupancy[square >>> 6] |= 1L << square;
+        else
+            occupancy[square >>> 6] &= ~(1L << square);
     }
 
     /**
@@ -231,26 +551,321 @@ public class RectangleBoard implements Board<RectangleBoard, RectanglePosition>
      * @return position of the leap or null
      */
     public RectanglePosition findNearestLeap(RectanglePosition fromPosition, RectanglePosition toPosition) {
-        int x1 = fromPosition.rank, y1 = fromPosition.file;
-        int x2 = toPosition.rank, y2 = toPosition.file;
+        int leap = findNearestLeap(fromPosition.rank, fromPosition.file, toPosition.rank, toPosition.file);
+        return leap < 0 ? null : positionAt(leap);
+    }
+
+    /**
+     * Find the first leap from (x1, y1) to (x2, y2), without allocating
+     * @param x1 source rank-coordinate
+     * @param y1 source file-coordinate
+     * @param x2 destination rank-coordinate
+     * @param y2 destination file-coordinate
+     * @return square of the leap or -1
+     */
+    protected int findNearestLeap(int x1, int y1, int x2, int y2) {
+        // Table lookup: first occupied square of the precomputed path
+        if (tables.hasLeapPaths() && isValidPosition(x2, y2)) {
+            int from = getSquare(x1, y1), to = getSquare(x2, y2);
+            for (int word = 0, words = tables.getWords(); word < words; word++) {
+                long leaps = tables.getLeapPath(from, to, word) & getOccupancy(word);
+                if (leaps != 0)
+                    return (word << 6) + Long.numberOfTrailingZeros(leaps);
+            }
+            return -1;
+        }
+
         // Vertical path
         if (x1 == x2)
             for (int y = y1 + 1; y < y2 && y < files; y++)
-                if (!cells[x1][y].isEmpty())
-                    return new RectanglePosition(x1, y);
+                if (isOccupied(x1, y))
+                    return getSquare(x1, y);
         // Horizontal path
         if (y1 == y2)
             for (int x = x1 + 1; x < x2 && x < ranks; x++)
-                if (!cells[x][y1].isEmpty())
-                    return new RectanglePosition(x, y1);
+                if (isOccupied(x, y1))
+                    return getSquare(x, y1);
         // Diagonal path
         if (Math.abs(x2 - x1) == Math.abs(y2 - y1) && x1 != x2 && y1 != y2)
             for (int x = x1 + 1, y = y1 + 1; x < x2 && x < files && y < ranks; x++, y++)
-                if (!cells[x][y].isEmpty())
-                    return new RectanglePosition(x, y);
+                if (isOccupied(x, y))
+                    return getSquare(x, y);
 
         // Wrong path
-        return null;
+        return -1;
+    }
+
+    /**
+     * Determine whether a leap is needed from (x1, y1) to (x2, y2),
+     * i.e., leapsNeeded(...) > 0, without allocating
+     * @param x1 source rank-coordinate
+     * @param y1 source file-coordinate
+     * @param x2 destination rank-coordinate
+     * @param y2 destination file-coordinate
+     * @return blocked or not
+     */
+    protected boolean isPathBlocked(int x1, int y1, int x2, int y2) {
+        return findNearestLeap(x1, y1, x2, y2) >= 0;
+    }
+
+    /**
+     * Get square index of (rank, file)
+     * @param rank rank-coordinate
+     * @param file file-coordinate
+     * @return square index
+     */
+    public int getSquare(int rank, int file) {
+        return rank * files + file;
+    }
+
+    /**
+     * Get square index of a position
+     * @param position position
+     * @return square index
+     */
+    @Override
+    public int indexOf(RectanglePosition position) {
+        return getSquare(position.rank, position.file);
+    }
+
+    /**
+     * Get position of a square index
+     * @param index square index
+     * @return position
+     */
+    @Override
+    public RectanglePosition positionAt(int index) {
+        return tables.getPosition(index);
+    }
+
+    /**
+     * Get rank-coordinate of a square
+     * @param square square index
+     * @return rank-coordinate
+     */
+    public int getRank(int square) {
+        return square / files;
+    }
+
+    /**
+     * Get file-coordinate of a square
+     * @param square square index
+     * @return file-coordinate
+     */
+    public int getFile(int square) {
+        return square % files;
+    }
+
+    /**
+     * Determines if (rank, file) is on the board
+     * @param rank rank-coordinate
+     * @param file file-coordinate
+     * @return valid or not
+     */
+    public boolean isValidPosition(int rank, int file) {
+        return rank >= 0 && file >= 0 && rank < ranks && file < files;
+    }
+
+    /**
+     * Append the possible moves at distance for the piece at square to a buffer,
+     * as packed moves (PackedMove). Allocation-free for pieces with a generator.
+     * @param square source square
+     * @param distance distance of move
+     * @param buffer buffer to append to
+     * @return number of moves appended
+     */
+    public int generateMoves(int square, int distance, MoveBuffer buffer) {
+        int rank = getRank(square), file = getFile(square);
+        Piece<RectangleBoard, RectanglePosition> piece = getPiece(rank, file);
+
+        // Wrong position
+        if (piece == null) return 0;
+
+        int size = buffer.size();
+        if (moveCache != null && moveCache.get(getPositionHash(), square, distance, buffer))
+            return buffer.size() - size;
+
+        Piece.MoveGenerator<RectangleBoard> generator = piece.getGenerator();
+        if (generator != null) {
+            generator.generate(square, this, distance, buffer);
+        } else {
+            // Fall back to the move function
+            for (RectanglePosition p : piece.getMover().apply(positionAt(square), this, distance))
+                buffer.add(PackedMove.encode(square, getSquare(p.rank, p.file),
+                        isOccupied(p.rank, p.file) ? PackedMove.FLAG_CAPTURE : 0));
+        }
+        if (moveCache != null) moveCache.put(getPositionHash(), square, distance, buffer, size);
+        return buffer.size() - size;
+    }
+
+    /**
+     * Append the possible moves at distance for the piece at position to a buffer
+     * @param position source position
+     * @param distance distance of move
+     * @param buffer buffer to append to
+     * @return number of moves appended
+     */
+    public int generateMoves(RectanglePosition position, int distance, MoveBuffer buffer) {
+        return generateMoves(getSquare(position.rank, position.file), distance, buffer);
+    }
+
+    /**
+     * Append all moves of the piece at square that canMovePiece accepts, each once.
+     * canMovePiece asks the generator for the destination's own distance (-1 if not
+     * aligned), so moves generated at any other distance are dropped.
+     * @param square source square
+     * @param buffer buffer to append to
+     * @return number of moves appended
+     */
+    public int generatePieceMoves(int square, MoveBuffer buffer) {
+        if (!isOccupied(square)) return 0;
+        Piece.LegalMoveGenerator<RectangleBoard> legalGenerator = getPiece(getRank(square), getFile(square)).getLegalGenerator();
+        if (legalGenerator == null) return probePieceMoves(square, buffer);
+
+        // One pass over all distances
+        int size = buffer.size();
+        if (moveCache != null && moveCache.get(getPositionHash(), square, MoveCache.ALL_DISTANCES, buffer))
+            return buffer.size() - size;
+        legalGenerator.generate(square, this, buffer);
+        if (moveCache != null) moveCache.put(getPositionHash(), square, MoveCache.ALL_DISTANCES, buffer, size);
+        return buffer.size() - size;
+    }
+
+    /**
+     * Append the moves of generatePieceMoves by probing every distance, for pieces
+     * without a legal move generator
+     * @param square occupied source square
+     * @param buffer buffer to append to
+     * @return number of moves appended
+     */
+    private int probePieceMoves(int square, MoveBuffer buffer) {
+        if (seenSquares == null) seenSquares = new long[tables.getWords()];
+        Arrays.fill(seenSquares, 0L);
+
+        int rank = getRank(square), file = getFile(square);
+        int maxDistance = Math.max(ranks, files) - 1;
+        int size = buffer.size();
+        for (int distance = -1; distance <= maxDistance; distance++) {
+            if (distance == 0) continue;
+            int start = buffer.size();
+            generateMoves(square, distance, buffer);
+            int end = start;
+            for (int i = start; i < buffer.size(); i++) {
+                int move = buffer.get(i);
+                int destination = PackedMove.getDestination(move);
+                long bit = 1L << destination;
+                if ((seenSquares[destination >>> 6] & bit) != 0) continue;
+                if (RectanglePosition.distance(rank, file, getRank(destination), getFile(destination)) != distance) continue;
+                seenSquares[destination >>> 6] |= bit;
+                buffer.set(end++, move);
+            }
+            buffer.truncate(end);
+        }
+        return buffer.size() - size;
+    }
+
+    /**
+     * Append all moves of a player's pieces that canMovePiece accepts
+     * @param player player tag
+     * @param buffer buffer to append to
+     * @return number of moves appended
+     */
+    public int generatePlayerMoves(int player, MoveBuffer buffer) {
+        int size = buffer.size();
+        for (int square = 0; square < ranks * files; square++) {
+            if (!isOccupied(square)) continue;
+            Piece<RectangleBoard, RectanglePosition> piece = getPiece(getRank(square), getFile(square));
+            if (piece.getTag() == player) generatePieceMoves(square, buffer);
+        }
+        return buffer.size() - size;
+    }
+
+    /**
+     * Get all destinations canMovePiece accepts for the piece at position, in one pass
+     * @param position source position
+     * @return position set, null if there is no piece
+     */
+    public Set<RectanglePosition> getAllLegalMoves(RectanglePosition position) {
+        if (!isValidPosition(position) || !isOccupied(position.rank, position.file)) return null;
+        MoveBuffer buffer = new MoveBuffer();
+        generatePieceMoves(getSquare(position.rank, position.file), buffer);
+        Set<RectanglePosition> set = new HashSet<>(buffer.size() * 2);
+        for (int i = 0; i < buffer.size(); i++)
+            set.add(positionAt(PackedMove.getDestination(buffer.get(i))));
+        return set;
+    }
+
+    /**
+     * Get all moves of a player's pieces that canMovePiece accepts, in one pass per piece
+     * @param player player tag
+     * @return packed moves (PackedMove)
+     */
+    public MoveBuffer getAllLegalMoves(int player) {
+        MoveBuffer buffer = new MoveBuffer();
+        generatePlayerMoves(player, buffer);
+        return buffer;
+    }
+
+    /**
+     * Live, read-only view of the squares of one kind, or of all kinds, in the piece
+     * index. Iterators fail fast once the board is modified.
+     */
+    private class PieceSet extends AbstractSet<RectanglePosition> {
+
+        /** Kind id, or -1 for all kinds **/
+        private final int kindId;
+
+        /**
+         * Constructor
+         * @param kindId kind id, or -1 for all kinds
+         */
+        PieceSet(int kindId) {
+            this.kindId = kindId;
+        }
+
+        @Override
+        public int size() {
+            if (kindId >= 0) return pieceIndex.count(kindId);
+            int size = 0;
+            for (int kind = 0; kind < pieceIndex.getKindBound(); kind++)
+                size += pieceIndex.count(kind);
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof RectanglePosition) || !isValidPosition((RectanglePosition) o)) return false;
+            RectanglePosition position = (RectanglePosition) o;
+            int kind = pieceIndex.kindAt(getSquare(position.rank, position.file));
+            return kindId < 0 ? kind >= 0 : kind == kindId;
+        }
+
+        @Override
+        public Iterator<RectanglePosition> iterator() {
+            return new Iterator<RectanglePosition>() {
+                private final long expectedModCount = modCount;
+                private int kind = Math.max(kindId, 0), index;
+
+                @Override
+                public boolean hasNext() {
+                    if (modCount != expectedModCount) throw new ConcurrentModificationException();
+                    if (kindId >= 0) return index < pieceIndex.count(kind);
+
+                    // Skip to the next non-empty kind
+                    while (kind < pieceIndex.getKindBound() && index >= pieceIndex.count(kind)) {
+                        kind++;
+                        index = 0;
+                    }
+                    return kind < pieceIndex.getKindBound();
+                }
+
+                @Override
+                public RectanglePosition next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return positionAt(pieceIndex.square(kind, index++));
+                }
+            };
+        }
     }
 
     /**
@@ -3,14 +3,30 @@ package edu.xwei12.chess;
 /**
  * Rectangle coordinate system
  * @author Xinran Wei
+ *
+ * Positions are immutable values with equals and hashCode. RectanglePosition.of
+ * returns canonical instances for coordinates in [0, CANONICAL_SIZE), so move
+ * generation and piece lists reuse them instead of allocating; equal positions
+ * from the constructor still compare equal.
  */
-public class RectanglePosition implements Coordinates<RectanglePosition> {
+public final class RectanglePosition implements Coordinates<RectanglePosition> {
+
+    /** Canonical instances cover ranks and files below this **/
+    public static final int CANONICAL_SIZE = 32;
+
+    /** Canonical instances, rank * CANONICAL_SIZE + file **/
+    private static final RectanglePosition[] canonical = new RectanglePosition[CANONICAL_SIZE * CANONICAL_SIZE];
+
+    static {
+        for (int i = 0; i < canonical.length; i++)
+            canonical[i] = new RectanglePosition(i / CANONICAL_SIZE, i % CANONICAL_SIZE);
+    }
 
     /** Rank component of the coordinates **/
-    public int rank;
+    public final int rank;
 
     /** File component of the coordinates **/
-    public int file;
+    public final int file;
 
     /**
      * Constructor of coordinates
@@ -22,6 +38,18 @@ public class RectanglePosition implements Coordinates<RectanglePosition> {
         this.file = file;
     }
 
+    /**
+     * Get the position at (rank, file), canonical if in range
+     * @param rank rank-coordinate
+     * @param file file-coordinate
+     * @return position
+     */
+    public static RectanglePosition of(int rank, int file) {
+        if (rank >= 0 && file >= 0 && rank < CANONICAL_SIZE && file < CANONICAL_SIZE)
+            return canonical[rank * CANONICAL_SIZE + file];
+        return new RectanglePosition(rank, file);
+    }
+
     /**
      * Compute distance from self to another
      * @param destination destination position
@@ -29,18 +57,30 @@ public class RectanglePosition implements Coordinates<RectanglePosition> {
      */
     @Override
     public int distanceTo(RectanglePosition destination) {
+        return distance(rank, file, destination.rank, destination.file);
+    }
+
+    /**
+     * Compute distance from (rank1, file1) to (rank2, file2)
+     * @param rank1 source rank-coordinate
+     * @param file1 source file-coordinate
+     * @param rank2 destination rank-coordinate
+     * @param file2 destination file-coordinate
+     * @return distance, or -1 if not along a rank, file or diagonal
+     */
+    public static int distance(int rank1, int file1, int rank2, int file2) {
 
         // Along rank
-        if (rank == destination.rank)
-            return Math.abs(destination.file - file);
+        if (rank1 == rank2)
+            return Math.abs(file2 - file1);
 
         // Along file
-        else if (file == destination.file)
-            return Math.abs(destination.rank - rank);
+        else if (file1 == file2)
+            return Math.abs(rank2 - rank1);
 
         // Diagonal
-        else if (Math.abs(destination.file - file) == Math.abs(destination.rank - rank))
-            return Math.abs(destination.rank - rank);
+        else if (Math.abs(file2 - file1) == Math.abs(rank2 - rank1))
+            return Math.abs(rank2 - rank1);
 
         // Not applicable
         return -1;
@@ -57,6 +97,18 @@ public class RectanglePosition implements Coordinates<RectanglePosition> {
         return other.rank == rank && other.file == file;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RectanglePosition && sameAs((RectanglePosition) o);
+    }
 
+    @Override
+    public int hashCode() {
+        return rank * 31 + file;
+    }
 
+    @Override
+    public String toString() {
+        return "(" + rank + ", " + file + ")";
+    }
 }
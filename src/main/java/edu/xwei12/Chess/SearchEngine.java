@@ -0,0 +1,523 @@
+package edu.xwei12.chess;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Alpha-beta search engine
+ * @author Xinran Wei
+ *
+ * Negamax alpha-beta with iterative deepening under a depth and time budget,
+ * a transposition table, and a capture-only quiescence search at the leaves.
+ * Moves are ordered: hash move, captures (most valuable victim, least valuable
+ * attacker), killer moves, then history scores. Moves are made and unmade through
+ * the game itself (stepWithMove / undo), so the search sees exactly the game's rules,
+ * including its checkmate rule: a game ends as soon as a king is attacked by a
+ * piece of the player who did not just move. The game is quiet while searched
+ * (Game.setQuiet): its observer and score do not see the search's moves.
+ *
+ * Leaves are scored by the board's evaluation (RectangleBoard.setEvaluation), which
+ * the board keeps up to date move by move. A board without one is given material
+ * values (Evaluation.material) when first evaluated.
+ */
+public class SearchEngine {
+
+    /** Score of a won game at the root; shorter wins score higher **/
+    public static final int MATE_SCORE = 30000;
+
+    /** Larger than any score **/
+    static final int INFINITY = 32000;
+
+    /** Deepest ply searched **/
+    static final int MAX_PLY = 64;
+
+    /** Nodes between time checks **/
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    /** Move ordering scores **/
+    private static final int ORDER_HASH_MOVE = 1 << 30;
+    private static final int ORDER_CAPTURE = 1 << 28;
+    private static final int ORDER_KILLER = 1 << 27;
+
+    /** Material values by piece kind **/
+    private static final Map<String, Integer> pieceValues = new HashMap<>();
+
+    static {
+        pieceValues.put(DefaultPiece.PAWN.getKind(), 100);
+        pieceValues.put(DefaultPiece.KNIGHT.getKind(), 300);
+        pieceValues.put(DefaultPiece.BISHOP.getKind(), 320);
+        pieceValues.put(DefaultPiece.ROOK.getKind(), 500);
+        pieceValues.put(DefaultPiece.QUEEN.getKind(), 900);
+        pieceValues.put(DefaultPiece.KING.getKind(), 0);
+        pieceValues.put(ExtendedPiece.GRASSHOPPER.getKind(), 200);
+        pieceValues.put(ExtendedPiece.BEROLINA.getKind(), 100);
+    }
+
+    /** Game searched **/
+    private final StandardGame game;
+
+    /** Board of the game (short reference) **/
+    private final RectangleBoard board;
+
+    /** Transposition table, may be shared with other engines **/
+    private final TranspositionTable table;
+
+    /** Move list and ordering scores per ply **/
+    private final MoveBuffer[] moves = new MoveBuffer[MAX_PLY + 1];
+    private final int[][] orderScores = new int[MAX_PLY + 1][];
+
+    /** Two killer moves per ply **/
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+
+    /** History scores of quiet moves, by source and destination on small boards **/
+    private final int[] history;
+    private final boolean historyByPair;
+
+    /** Number of squares **/
+    private final int squares;
+
+    /** Search state **/
+    private long nodes;
+    private long deadline;
+    private boolean deadlineActive;
+    private volatile boolean stopped;
+
+    /** Result of the last completed iteration **/
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+
+    /**
+     * Construct an engine with its own 16 MB transposition table
+     * @param game game to search; it is restored after each search
+     */
+    public SearchEngine(StandardGame game) {
+        this(game, TranspositionTable.ofMegabytes(16));
+    }
+
+    /**
+     * Construct an engine with a given transposition table
+     * @param game game to search; it is restored after each search
+     * @param table transposition table
+     */
+    public SearchEngine(StandardGame game, TranspositionTable table) {
+        this.game = game;
+        this.board = game.getBoard();
+        this.table = table;
+        for (int i = 0; i <= MAX_PLY; i++) {
+            moves[i] = new MoveBuffer();
+            orderScores[i] = new int[64];
+        }
+        squares = board.getRanks() * board.getFiles();
+        historyByPair = squares <= 256;
+        history = new int[historyByPair ? squares * squares : squares];
+    }
+
+    /**
+     * Search for the best move of the player to move
+     * @param maxDepth maximum depth in plies
+     * @param timeLimitMillis time budget in milliseconds, or 0 for none
+     * @return best move (PackedMove), or 0 if there is none
+     */
+    public int search(int maxDepth, long timeLimitMillis) {
+        // Depth 1 always completes, so there is a move
+        prepare(timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1000000L : Long.MAX_VALUE, false);
+        bestMove = 0;
+        bestScore = 0;
+        completedDepth = 0;
+        table.newSearch();
+
+        if (game.getState() == Game.State.CHECKMATE) return 0;
+
+        boolean quiet = game.isQuiet();
+        game.setQuiet(true);
+        try {
+            for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+                int score = searchRoot(depth);
+                if (stopped) break;
+                bestScore = score;
+                completedDepth = depth;
+                deadlineActive = true;
+                // A forced win or loss will not change with depth
+                if (Math.abs(score) >= MATE_SCORE - MAX_PLY) break;
+            }
+        } finally {
+            game.setQuiet(quiet);
+        }
+        return bestMove;
+    }
+
+    /**
+     * Reset per-search state
+     * @param deadline System.nanoTime() after which to stop
+     * @param deadlineActive whether the deadline applies from the start
+     */
+    void prepare(long deadline, boolean deadlineActive) {
+        this.nodes = 0;
+        this.stopped = false;
+        this.deadline = deadline;
+        this.deadlineActive = deadlineActive;
+        for (int[] k : killers) k[0] = k[1] = 0;
+        for (int i = 0; i < history.length; i++) history[i] >>= 2;
+    }
+
+    /**
+     * Search a single root move (for root splitting); see prepare
+     * @param move root move (PackedMove)
+     * @param depth depth, including the root move
+     * @param alpha lower bound
+     * @param beta upper bound
+     * @return score for the player to move at the root, or null if the game rejects the move
+     */
+    Integer searchMove(int move, int depth, int alpha, int beta) {
+        boolean quiet = game.isQuiet();
+        game.setQuiet(true);
+        try {
+            if (!makeMove(move)) return null;
+            int score = -search(depth - 1, -beta, -alpha, 1);
+            game.undo();
+            return score;
+        } finally {
+            game.setQuiet(quiet);
+        }
+    }
+
+    /**
+     * Determine whether the last search ran out of time or was stopped
+     * @return stopped or not
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Ask a running search to stop; it returns the best move found so far
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Search the root position to a depth
+     * @param depth depth
+     * @return score of the best move, meaningless if stopped
+     */
+    private int searchRoot(int depth) {
+        MoveBuffer list = moves[0];
+        list.clear();
+        board.generatePlayerMoves(game.getPlayerToMove(), list);
+        int hashMove = bestMove != 0 ? bestMove : TranspositionTable.getMove(table.probe(game.getPositionHash()));
+        scoreMoves(0, hashMove);
+
+        int alpha = -INFINITY, best = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int move = pickMove(0, i);
+            if (!makeMove(move)) continue;
+            int score = -search(depth - 1, -INFINITY, -alpha, 1);
+            game.undo();
+            if (stopped) break;
+            if (score > alpha) {
+                alpha = score;
+                best = move;
+            }
+        }
+
+        // Moves of a stopped iteration are only used when no iteration completed
+        if (best != 0 && (!stopped || bestMove == 0)) bestMove = best;
+        if (!stopped) table.store(game.getPositionHash(), depth, toTableScore(alpha, 0), TranspositionTable.BOUND_EXACT, best);
+        return alpha;
+    }
+
+    /**
+     * Alpha-beta search
+     * @param depth remaining depth
+     * @param alpha lower bound
+     * @param beta upper bound
+     * @param ply distance from the root
+     * @return score for the player to move
+     */
+    private int search(int depth, int alpha, int beta, int ply) {
+        if (checkTime()) return 0;
+        if (game.getState() == Game.State.CHECKMATE) return terminalScore(ply);
+        if (game.getRepetitionCount() > 1) return 0;
+        if (depth <= 0 || ply >= MAX_PLY) return quiescence(alpha, beta, ply);
+
+        // Transposition table
+        long key = game.getPositionHash();
+        long entry = table.probe(key);
+        int hashMove = 0;
+        if (entry != 0) {
+            hashMove = TranspositionTable.getMove(entry);
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                int score = fromTableScore(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha))
+                    return score;
+            }
+        }
+
+        MoveBuffer list = moves[ply];
+        list.clear();
+        board.generatePlayerMoves(game.getPlayerToMove(), list);
+        if (list.isEmpty()) return 0;
+        scoreMoves(ply, hashMove);
+
+        int originalAlpha = alpha, best = -INFINITY, bestMoveHere = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int move = pickMove(ply, i);
+            if (!makeMove(move)) continue;
+            int score = -search(depth - 1, -beta, -alpha, ply + 1);
+            game.undo();
+            if (stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                bestMoveHere = move;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) {
+                if (!PackedMove.isCapture(move)) {
+                    if (killers[ply][0] != move) {
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = move;
+                    }
+                    int index = historyIndex(move);
+                    history[index] = Math.min(history[index] + depth * depth, ORDER_KILLER - 1);
+                }
+                break;
+            }
+        }
+        if (bestMoveHere == 0) return 0;
+
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, depth, toTableScore(best, ply), bound, bestMoveHere);
+        return best;
+    }
+
+    /**
+     * Capture-only search at the leaves
+     * @param alpha lower bound
+     * @param beta upper bound
+     * @param ply distance from the root
+     * @return score for the player to move
+     */
+    private int quiescence(int alpha, int beta, int ply) {
+        if (checkTime()) return 0;
+        if (game.getState() == Game.State.CHECKMATE) return terminalScore(ply);
+
+        int standPat = evaluate();
+        if (standPat >= beta || ply >= MAX_PLY) return standPat;
+        if (standPat > alpha) alpha = standPat;
+
+        MoveBuffer list = moves[ply];
+        list.clear();
+        board.generatePlayerMoves(game.getPlayerToMove(), list);
+        int captures = 0;
+        for (int i = 0; i < list.size(); i++)
+            if (PackedMove.isCapture(list.get(i)))
+                list.set(captures++, list.get(i));
+        list.truncate(captures);
+        scoreMoves(ply, 0);
+
+        for (int i = 0; i < list.size(); i++) {
+            int move = pickMove(ply, i);
+            if (!makeMove(move)) continue;
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            game.undo();
+            if (stopped) return 0;
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) break;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Evaluation score for the player to move, maintained by the board
+     * @return score
+     */
+    public int evaluate() {
+        if (board.getEvaluation() == null)
+            board.setEvaluation(Evaluation.material(board.getRanks(), board.getFiles()));
+        int score = board.getEvaluationScore();
+        return game.getPlayerToMove() == StandardGame.PLAYER_A ? score : -score;
+    }
+
+    /**
+     * Score of a finished game for the player to move
+     * @param ply distance from the root
+     * @return score
+     */
+    private int terminalScore(int ply) {
+        Piece<RectangleBoard, RectanglePosition> defeater = board.getPiece(game.getDefeaterPosition());
+        boolean won = defeater != null && defeater.getTag() == game.getPlayerToMove();
+        return won ? MATE_SCORE - ply : -(MATE_SCORE - ply);
+    }
+
+    /**
+     * Count a node and check the time budget
+     * @return whether the search must stop
+     */
+    private boolean checkTime() {
+        if (++nodes % TIME_CHECK_INTERVAL == 0 && deadlineActive && System.nanoTime() > deadline) stopped = true;
+        return stopped;
+    }
+
+    /**
+     * Compute ordering scores for the moves at a ply
+     * @param ply ply
+     * @param hashMove move from the transposition table, or 0
+     */
+    private void scoreMoves(int ply, int hashMove) {
+        MoveBuffer list = moves[ply];
+        if (orderScores[ply].length < list.size()) orderScores[ply] = new int[list.size() * 2];
+        int[] scores = orderScores[ply];
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            if (move == hashMove) {
+                scores[i] = ORDER_HASH_MOVE;
+            } else if (PackedMove.isCapture(move)) {
+                scores[i] = ORDER_CAPTURE + getPieceValue(pieceAt(PackedMove.getDestination(move))) * 16
+                        - getPieceValue(pieceAt(PackedMove.getSource(move))) / 16;
+            } else if (move == killers[ply][0]) {
+                scores[i] = ORDER_KILLER + 1;
+            } else if (move == killers[ply][1]) {
+                scores[i] = ORDER_KILLER;
+            } else {
+                scores[i] = history[historyIndex(move)];
+            }
+        }
+    }
+
+    /**
+     * Move the best scored move among the remaining ones to index i
+     * @param ply ply
+     * @param i index
+     * @return move at index i
+     */
+    private int pickMove(int ply, int i) {
+        MoveBuffer list = moves[ply];
+        int[] scores = orderScores[ply];
+        int best = i;
+        for (int j = i + 1; j < list.size(); j++)
+            if (scores[j] > scores[best]) best = j;
+        if (best != i) {
+            int move = list.get(best), score = scores[best];
+            list.set(best, list.get(i));
+            scores[best] = scores[i];
+            list.set(i, move);
+            scores[i] = score;
+        }
+        return list.get(i);
+    }
+
+    /**
+     * Make a packed move through the game
+     * @param move packed move
+     * @return moved
+     */
+    private boolean makeMove(int move) {
+        int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+        return game.stepWithMove(game.getPlayerToMove(),
+                board.getRank(source), board.getFile(source),
+                board.getRank(destination), board.getFile(destination));
+    }
+
+    /**
+     * Get kind of the piece on a square
+     * @param square square
+     * @return kind, or null if empty
+     */
+    private String pieceAt(int square) {
+        Piece<RectangleBoard, RectanglePosition> piece = board.getPiece(board.getRank(square), board.getFile(square));
+        return piece == null ? null : piece.getKind();
+    }
+
+    /**
+     * Get index of a move in the history table
+     * @param move packed move
+     * @return index
+     */
+    private int historyIndex(int move) {
+        int destination = PackedMove.getDestination(move);
+        return historyByPair ? PackedMove.getSource(move) * squares + destination : destination;
+    }
+
+    /**
+     * Convert a score to table form, with mate scores relative to the position
+     * @param score score
+     * @param ply distance from the root
+     * @return table score
+     */
+    private static int toTableScore(int score, int ply) {
+        if (score >= MATE_SCORE - MAX_PLY) return score + ply;
+        if (score <= -(MATE_SCORE - MAX_PLY)) return score - ply;
+        return score;
+    }
+
+    /**
+     * Convert a table score back, with mate scores relative to the root
+     * @param score table score
+     * @param ply distance from the root
+     * @return score
+     */
+    private static int fromTableScore(int score, int ply) {
+        if (score >= MATE_SCORE - MAX_PLY) return score - ply;
+        if (score <= -(MATE_SCORE - MAX_PLY)) return score + ply;
+        return score;
+    }
+
+    /**
+     * Get material value of a piece kind
+     * @param kind piece kind, or null
+     * @return value, 0 if unknown
+     */
+    public static int getPieceValue(String kind) {
+        Integer value = kind == null ? null : pieceValues.get(kind);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Get best move of the last search
+     * @return packed move, or 0
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Get score of the last completed iteration, for the player to move
+     * @return score
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Get depth of the last completed iteration
+     * @return depth
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Get number of nodes searched by the last search
+     * @return nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the transposition table
+     * @return table
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
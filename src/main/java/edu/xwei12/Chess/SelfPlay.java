@@ -0,0 +1,305 @@
+package edu.xwei12.chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Headless batch self-play simulator
+ * @author Xinran Wei
+ *
+ * Plays many independent StandardGames on a fixed pool of worker threads, each
+ * player driven by a MoveChooser, and collects statistics. Game i uses a Random
+ * seeded from the simulator seed and i, so results do not depend on the number
+ * of threads. A game ends at checkmate, when the player to move has no move, or
+ * at the ply limit; the last two count as unfinished.
+ */
+public class SelfPlay {
+
+    /** Choosers of player A and B **/
+    private final MoveChooser chooserA;
+    private final MoveChooser chooserB;
+
+    /** Ply limit of a game **/
+    private int maxPlies = 200;
+
+    /** Starting position, or null for the initial one **/
+    private String startFen;
+
+    /** Base seed **/
+    private long seed = 0;
+
+    /** Receiver of finished games, or null **/
+    private Consumer<GameRecord> recordConsumer;
+
+    /** Lock serializing calls to the receiver **/
+    private final Object recordLock = new Object();
+
+    /**
+     * Construct with one chooser for both players
+     * @param chooser chooser
+     */
+    public SelfPlay(MoveChooser chooser) {
+        this(chooser, chooser);
+    }
+
+    /**
+     * Construct
+     * @param chooserA chooser of player A
+     * @param chooserB chooser of player B
+     */
+    public SelfPlay(MoveChooser chooserA, MoveChooser chooserB) {
+        this.chooserA = chooserA;
+        this.chooserB = chooserB;
+    }
+
+    /**
+     * Set ply limit of a game
+     * @param maxPlies ply limit
+     * @return this
+     */
+    public SelfPlay setMaxPlies(int maxPlies) {
+        if (maxPlies < 1) throw new IllegalArgumentException("Ply limit must be positive: " + maxPlies);
+        this.maxPlies = maxPlies;
+        return this;
+    }
+
+    /**
+     * Set starting position
+     * @param startFen position on an 8x8 board (Fen), or null for the initial one
+     * @return this
+     */
+    public SelfPlay setStartFen(String startFen) {
+        if (startFen != null) Fen.parseGame(startFen);
+        this.startFen = startFen;
+        return this;
+    }
+
+    /**
+     * Set base seed
+     * @param seed seed
+     * @return this
+     */
+    public SelfPlay setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Set receiver of finished games, e.g. for training data. It is called from the
+     * worker threads, but never concurrently, so it need not be thread-safe. A writer
+     * (GameRecordWriter, GameArchiveWriter) must be wrapped to rethrow its IOException
+     * unchecked, e.g. as UncheckedIOException, which fails the run.
+     * @param recordConsumer receiver, or null
+     * @return this
+     */
+    public SelfPlay setRecordConsumer(Consumer<GameRecord> recordConsumer) {
+        this.recordConsumer = recordConsumer;
+        return this;
+    }
+
+    /**
+     * Play games
+     * @param games number of games
+     * @param threads number of worker threads
+     * @return statistics
+     */
+    public Statistics run(int games, int threads) {
+        if (games < 0) throw new IllegalArgumentException("Game count must not be negative: " + games);
+        if (threads < 1) throw new IllegalArgumentException("Thread count must be positive: " + threads);
+
+        long start = System.nanoTime();
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<Statistics>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(() -> {
+                Statistics statistics = new Statistics();
+                MoveBuffer moves = new MoveBuffer();
+                for (int game; (game = next.getAndIncrement()) < games; )
+                    play(game, moves, statistics);
+                return statistics;
+            });
+        }
+
+        Statistics total = new Statistics();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Statistics> future : pool.invokeAll(workers))
+                total.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Self-play interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Self-play failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        total.elapsedNanos = System.nanoTime() - start;
+        return total;
+    }
+
+    /**
+     * Play one game
+     * @param index game index
+     * @param moves scratch buffer
+     * @param statistics statistics to add to
+     */
+    private void play(int index, MoveBuffer moves, Statistics statistics) {
+        Random random = new Random(seed * 0x9E3779B97F4A7C15L + index);
+        StandardGame game = startFen == null ? new StandardGame() : Fen.parseGame(startFen);
+        RectangleBoard board = game.getBoard();
+
+        int plies = 0;
+        while (plies < maxPlies && game.getState() != Game.State.CHECKMATE) {
+            int player = game.getPlayerToMove();
+            moves.clear();
+            board.generatePlayerMoves(player, moves);
+            if (moves.isEmpty()) break;
+
+            int move = moves.get((player == StandardGame.PLAYER_A ? chooserA : chooserB).choose(game, player, moves, random));
+            int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+            if (!game.stepWithMove(player, board.getRank(source), board.getFile(source),
+                    board.getRank(destination), board.getFile(destination)))
+                throw new IllegalStateException("Generated move rejected: " + Notation.toString(move, board.getFiles()));
+            plies++;
+        }
+
+        GameRecord record = GameRecord.of(game, startFen);
+        statistics.addGame(record.getResult(), plies);
+        if (recordConsumer != null) {
+            synchronized (recordLock) {
+                recordConsumer.accept(record);
+            }
+        }
+    }
+
+    /**
+     * Statistics of a run
+     */
+    public static class Statistics {
+
+        /** Games by outcome **/
+        private long winsA;
+        private long winsB;
+        private long unfinished;
+
+        /** Total plies **/
+        private long plies;
+
+        /** Wall time **/
+        private long elapsedNanos;
+
+        /**
+         * Count a game
+         * @param result GameRecord result
+         * @param plies plies played
+         */
+        private void addGame(String result, int plies) {
+            if (GameRecord.RESULT_A_WINS.equals(result)) winsA++;
+            else if (GameRecord.RESULT_B_WINS.equals(result)) winsB++;
+            else unfinished++;
+            this.plies += plies;
+        }
+
+        /**
+         * Add another worker's counts
+         * @param other statistics
+         */
+        private void add(Statistics other) {
+            winsA += other.winsA;
+            winsB += other.winsB;
+            unfinished += other.unfinished;
+            plies += other.plies;
+        }
+
+        /**
+         * Get number of games
+         * @return games
+         */
+        public long getGames() {
+            return winsA + winsB + unfinished;
+        }
+
+        /**
+         * Get games won by player A
+         * @return games
+         */
+        public long getWinsA() {
+            return winsA;
+        }
+
+        /**
+         * Get games won by player B
+         * @return games
+         */
+        public long getWinsB() {
+            return winsB;
+        }
+
+        /**
+         * Get games ended without a winner
+         * @return games
+         */
+        public long getUnfinished() {
+            return unfinished;
+        }
+
+        /**
+         * Get total plies
+         * @return plies
+         */
+        public long getPlies() {
+            return plies;
+        }
+
+        /**
+         * Get average plies per game
+         * @return plies
+         */
+        public double getAveragePlies() {
+            return getGames() == 0 ? 0 : (double) plies / getGames();
+        }
+
+        /**
+         * Get wall time of the run
+         * @return nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Get throughput
+         * @return games per second
+         */
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games, %.1f games/s, %.1f plies/game, A %d / B %d / unfinished %d",
+                    getGames(), getGamesPerSecond(), getAveragePlies(), winsA, winsB, unfinished);
+        }
+    }
+
+    /**
+     * Run a simulation from the command line
+     * @param args [games [threads [random|greedy [max plies]]]]
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        MoveChooser chooser = args.length > 2 && args[2].equals("greedy") ? MoveChooser.GREEDY_CAPTURE : MoveChooser.RANDOM;
+        SelfPlay selfPlay = new SelfPlay(chooser);
+        if (args.length > 3) selfPlay.setMaxPlies(Integer.parseInt(args[3]));
+        System.out.println(selfPlay.run(games, threads));
+    }
+}
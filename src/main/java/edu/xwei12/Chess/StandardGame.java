@@ -16,45 +16,80 @@ public class StandardGame extends Game<RectangleBoard, RectanglePosition> {
 
     private static Set<Integer> defaultPlayers = new HashSet<>(Arrays.asList(PLAYER_A, PLAYER_B));
 
+    /** Whether a board snapshot is published after every change **/
+    private boolean snapshotPublishing = false;
+
+    /** Last published board snapshot, read by other threads **/
+    private volatile BoardSnapshot snapshot;
+
     public StandardGame() {
         // Initialize a 8x8 board
-        super(new RectangleBoard(8, 8), DefaultPiece.KING.getKind(), defaultPlayers);
+        this(new RectangleBoard(8, 8));
+    }
+
+    /**
+     * Initialize with an empty 8x8 board, such as a BitboardBoard
+     * @param board chess board
+     */
+    public StandardGame(RectangleBoard board) {
+        this(board, true);
+    }
+
+    /**
+     * Initialize with an 8x8 board, set up or taken as it is; copies and FEN loads
+     * skip the initial position they would replace
+     * @param board chess board
+     * @param initialize whether to place the initial pieces
+     */
+    StandardGame(RectangleBoard board, boolean initialize) {
+        super(checkDimensions(board), DefaultPiece.KING.getKind(), defaultPlayers, initialize);
+    }
+
+    /**
+     * Make sure the board is 8x8
+     * @param board chess board
+     * @return board
+     */
+    private static RectangleBoard checkDimensions(RectangleBoard board) {
+        if (board.getRanks() != 8 || board.getFiles() != 8)
+            throw new IllegalArgumentException("Standard game requires an 8x8 board");
+        return board;
     }
 
     @Override
     protected void initialize() {
         // PAWN
         for (int i = 0; i < 8; i++) {
-            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(PLAYER_A), new RectanglePosition(1, i));
+            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(PLAYER_A), RectanglePosition.of(1, i));
         }
         for (int i = 0; i < 8; i++) {
-            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(PLAYER_B), new RectanglePosition(6, i));
+            board.addPiece(DefaultPiece.PAWN.newPieceWithTag(PLAYER_B), RectanglePosition.of(6, i));
         }
         // KNIGHT
-        board.addPiece(DefaultPiece.KNIGHT.newPieceWithTag(PLAYER_A), new RectanglePosition(0, 1));
-        board.addPiece(DefaultPiece.KNIGHT.newPieceWithTag(PLAYER_A), new RectanglePosition(0, 6));
-        board.addPiece(DefaultPiece.KNIGHT.newPieceWithTag(PLAYER_B), new RectanglePosition(7, 1));
-        board.addPiece(DefaultPiece.KNIGHT.newPieceWithTag(PLAYER_B), new RectanglePosition(7, 6));
+        board.addPiece(DefaultPiece.KNIGHT.newPieceWithTag(PLAYER_A), RectanglePosition.of(0, 1));
+        board.addPiece(DefaultPiece.KNIGHT.newPieceWithTag(PLAYER_A), RectanglePosition.of(0, 6));
+        board.addPiece(DefaultPiece.KNIGHT.newPieceWithTag(PLAYER_B), RectanglePosition.of(7, 1));
+        board.addPiece(DefaultPiece.KNIGHT.newPieceWithTag(PLAYER_B), RectanglePosition.of(7, 6));
 
         // QUEEN
-        board.addPiece(DefaultPiece.QUEEN.newPieceWithTag(PLAYER_A), new RectanglePosition(0, 3));
-        board.addPiece(DefaultPiece.QUEEN.newPieceWithTag(PLAYER_B), new RectanglePosition(7, 3));
+        board.addPiece(DefaultPiece.QUEEN.newPieceWithTag(PLAYER_A), RectanglePosition.of(0, 3));
+        board.addPiece(DefaultPiece.QUEEN.newPieceWithTag(PLAYER_B), RectanglePosition.of(7, 3));
 
         // KING
-        board.addPiece(DefaultPiece.KING.newPieceWithTag(PLAYER_A), new RectanglePosition(0, 4));
-        board.addPiece(DefaultPiece.KING.newPieceWithTag(PLAYER_B), new RectanglePosition(7, 4));
+        board.addPiece(DefaultPiece.KING.newPieceWithTag(PLAYER_A), RectanglePosition.of(0, 4));
+        board.addPiece(DefaultPiece.KING.newPieceWithTag(PLAYER_B), RectanglePosition.of(7, 4));
 
         // BISHOP
-        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(PLAYER_A), new RectanglePosition(0, 2));
-        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(PLAYER_A), new RectanglePosition(0, 5));
-        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(PLAYER_B), new RectanglePosition(7, 2));
-        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(PLAYER_B), new RectanglePosition(7, 5));
+        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(PLAYER_A), RectanglePosition.of(0, 2));
+        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(PLAYER_A), RectanglePosition.of(0, 5));
+        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(PLAYER_B), RectanglePosition.of(7, 2));
+        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(PLAYER_B), RectanglePosition.of(7, 5));
 
         // ROOK
-        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(PLAYER_A), new RectanglePosition(0, 0));
-        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(PLAYER_A), new RectanglePosition(0, 7));
-        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(PLAYER_B), new RectanglePosition(7, 0));
-        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(PLAYER_B), new RectanglePosition(7, 7));
+        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(PLAYER_A), RectanglePosition.of(0, 0));
+        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(PLAYER_A), RectanglePosition.of(0, 7));
+        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(PLAYER_B), RectanglePosition.of(7, 0));
+        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(PLAYER_B), RectanglePosition.of(7, 7));
     }
 
     /**
@@ -67,7 +102,16 @@ public class StandardGame extends Game<RectangleBoard, RectanglePosition> {
      * @return moved
      */
     public boolean stepWithMove(Integer player, int fromX, int fromY, int toX, int toY) {
-        return stepWithMove(player, new RectanglePosition(fromX, fromY), new RectanglePosition(toX, toY));
+        return stepWithMove(player, RectanglePosition.of(fromX, fromY), RectanglePosition.of(toX, toY));
+    }
+
+    /**
+     * Get the player to move; player A opens the game
+     * @return player tag
+     */
+    public int getPlayerToMove() {
+        Integer turn = getPlayerTurn();
+        return turn == null || turn == PLAYER_DEFAULT ? PLAYER_A : turn;
     }
 
     /**
@@ -75,8 +119,60 @@ public class StandardGame extends Game<RectangleBoard, RectanglePosition> {
      */
     @Override
     public void updateTurn() {
-        Integer lastPlayer = getLastMove().player;
+        Integer lastPlayer = getLastPlayer();
         setPlayerTurn(-lastPlayer);
     }
 
+    /**
+     * Get the Zobrist hash of the position, including the player in turn.
+     * The opening turn (PLAYER_DEFAULT) hashes as PLAYER_A, whom it stands for, so
+     * a position reached again after undo hashes the same.
+     * @return position hash
+     */
+    @Override
+    public long getPositionHash() {
+        Integer turn = getPlayerTurn();
+        return board.getPositionHash() ^ Zobrist.turnKey(turn == null || turn == PLAYER_DEFAULT ? PLAYER_A : turn);
+    }
+
+    /**
+     * Make an independent game at the same position and turn, without history,
+     * on a copy of the board (RectangleBoard.copy)
+     * @return game
+     */
+    public StandardGame copy() {
+        StandardGame copy = new StandardGame(board.copy(), false);
+        copy.setPlayerTurn(getPlayerTurn());
+        return copy;
+    }
+
+    /**
+     * Publish a board snapshot after every move, undo and restart, for getSnapshot
+     * @param snapshotPublishing publish or not
+     */
+    public void setSnapshotPublishing(boolean snapshotPublishing) {
+        this.snapshotPublishing = snapshotPublishing;
+        if (snapshotPublishing) publishSnapshot();
+    }
+
+    /**
+     * Publish a snapshot of the board now, e.g. after changing the board directly.
+     * Must be called by the thread playing the game.
+     */
+    public void publishSnapshot() {
+        snapshot = board.getSnapshot();
+    }
+
+    /**
+     * Get the last published board snapshot; safe to call from any thread
+     * @return snapshot, or null if none was published
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    protected void onPositionChanged() {
+        if (snapshotPublishing) publishSnapshot();
+    }
 }
@@ -0,0 +1,253 @@
+package edu.xwei12.chess;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared, lock-free transposition table
+ * @author Xinran Wei
+ *
+ * Fixed-size table of search results keyed by position hash (Game.getPositionHash).
+ * Each slot is two longs, (key XOR data, data), in one flat array. A reader only
+ * accepts a slot whose two words XOR back to its key, so a slot torn by a concurrent
+ * writer reads as a miss rather than as a wrong entry, and no locks are needed.
+ *
+ * Entry data layout:
+ *     bits  0-31  best move (PackedMove)
+ *     bits 32-47  score (signed)
+ *     bits 48-55  depth
+ *     bits 56-57  bound type
+ *     bits 58-63  search generation
+ *
+ * Replacement is by depth: a slot holding another position is only overwritten by a
+ * search at least as deep, or by any search of a newer generation (see newSearch).
+ */
+public class TranspositionTable {
+
+    /** Score is exact **/
+    public static final int BOUND_EXACT = 1;
+
+    /** Score is a lower bound (fail high) **/
+    public static final int BOUND_LOWER = 2;
+
+    /** Score is an upper bound (fail low) **/
+    public static final int BOUND_UPPER = 3;
+
+    /** Bytes per slot **/
+    private static final int SLOT_BYTES = 16;
+
+    /** Number of slots sampled by getOccupancy **/
+    private static final int OCCUPANCY_SAMPLE = 4096;
+
+    /** Slots, two longs each **/
+    private final AtomicLongArray slots;
+
+    /** Number of slots - 1 **/
+    private final int mask;
+
+    /** Current search generation **/
+    private volatile int generation;
+
+    /** Statistics **/
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * Construct a table with a number of slots
+     * @param capacity number of slots, rounded down to a power of two
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity < 1 || capacity > (1 << 29))
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        int slotCount = Integer.highestOneBit(capacity);
+        slots = new AtomicLongArray(slotCount * 2);
+        mask = slotCount - 1;
+    }
+
+    /**
+     * Construct a table of a given size
+     * @param megabytes size in megabytes
+     * @return table
+     */
+    public static TranspositionTable ofMegabytes(int megabytes) {
+        return new TranspositionTable((int) Math.min((long) megabytes * (1 << 20) / SLOT_BYTES, 1 << 29));
+    }
+
+    /**
+     * Look up a position
+     * @param key position hash
+     * @return entry data, or 0 if not found
+     */
+    public long probe(long key) {
+        probes.increment();
+        int index = ((int) key & mask) << 1;
+        long data = slots.get(index + 1);
+        if (data == 0 || (slots.get(index) ^ data) != key) return 0;
+        hits.increment();
+        return data;
+    }
+
+    /**
+     * Store a search result, subject to replace-by-depth
+     * @param key position hash
+     * @param depth remaining search depth (0-255)
+     * @param score score (-32768 to 32767)
+     * @param bound BOUND_EXACT, BOUND_LOWER or BOUND_UPPER
+     * @param move best move (PackedMove), or 0
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        if (bound < BOUND_EXACT || bound > BOUND_UPPER)
+            throw new IllegalArgumentException("Unknown bound type: " + bound);
+
+        int index = ((int) key & mask) << 1;
+        long old = slots.get(index + 1);
+        if (old != 0) {
+            boolean samePosition = (slots.get(index) ^ old) == key;
+            boolean stale = getGeneration(old) != generation;
+            if (!samePosition && !stale && depth < getDepth(old)) return;
+            // Keep the known best move of a shallower re-search
+            if (samePosition && move == 0) move = getMove(old);
+        }
+
+        long data = pack(depth, score, bound, move, generation);
+        slots.lazySet(index, key ^ data);
+        slots.lazySet(index + 1, data);
+        stores.increment();
+    }
+
+    /**
+     * Start a new search generation, so entries of older searches get replaced first
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0x3f;
+    }
+
+    /**
+     * Remove all entries and reset statistics
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++)
+            slots.lazySet(i, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    /**
+     * Get number of slots
+     * @return capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Get number of probes
+     * @return probes
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * Get number of probes that found their position
+     * @return hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get number of stores
+     * @return stores
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * Get fraction of probes that found their position
+     * @return hit rate in [0, 1]
+     */
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0 : (double) hits.sum() / probeCount;
+    }
+
+    /**
+     * Estimate the fraction of slots in use by the current generation, from a sample of slots
+     * @return occupancy in [0, 1]
+     */
+    public double getOccupancy() {
+        int sample = Math.min(OCCUPANCY_SAMPLE, getCapacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = slots.get((i << 1) + 1);
+            if (data != 0 && getGeneration(data) == generation) used++;
+        }
+        return (double) used / sample;
+    }
+
+    /**
+     * Pack entry data
+     * @param depth depth
+     * @param score score
+     * @param bound bound type
+     * @param move packed move
+     * @param generation search generation
+     * @return entry data
+     */
+    private static long pack(int depth, int score, int bound, int move, int generation) {
+        return (move & 0xffffffffL)
+                | ((long) (score & 0xffff) << 32)
+                | ((long) (depth & 0xff) << 48)
+                | ((long) (bound & 0x3) << 56)
+                | ((long) (generation & 0x3f) << 58);
+    }
+
+    /**
+     * Get best move of an entry
+     * @param entry entry data
+     * @return packed move, or 0
+     */
+    public static int getMove(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Get score of an entry
+     * @param entry entry data
+     * @return score
+     */
+    public static int getScore(long entry) {
+        return (short) (entry >>> 32);
+    }
+
+    /**
+     * Get depth of an entry
+     * @param entry entry data
+     * @return depth
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> 48) & 0xff;
+    }
+
+    /**
+     * Get bound type of an entry
+     * @param entry entry data
+     * @return BOUND_EXACT, BOUND_LOWER or BOUND_UPPER
+     */
+    public static int getBound(long entry) {
+        return (int) (entry >>> 56) & 0x3;
+    }
+
+    /**
+     * Get search generation of an entry
+     * @param entry entry data
+     * @return generation
+     */
+    private static int getGeneration(long entry) {
+        return (int) (entry >>> 58) & 0x3f;
+    }
+}
@@ -0,0 +1,64 @@
+package edu.xwei12.chess;
+
+/**
+ * Zobrist keys
+ * @author Xinran Wei
+ *
+ * A position hash is the XOR of the keys of all (piece kind, player, square)
+ * placements, and of the key of the player in turn. Keys are derived from their
+ * inputs with the SplitMix64 finalizer rather than drawn from a table, so any piece
+ * kind gets stable keys without registration, and hashes agree across boards.
+ */
+public final class Zobrist {
+
+    /** 64-bit golden ratio, SplitMix64 increment **/
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Seed for turn keys **/
+    private static final long TURN_SEED = 0x2545f4914f6cdd1dL;
+
+    /** Not instantiable **/
+    private Zobrist() {}
+
+    /**
+     * Key of a piece placed on a square
+     * @param kind piece kind
+     * @param tag player tag
+     * @param square square index
+     * @return key
+     */
+    public static long pieceKey(String kind, int tag, int square) {
+        long piece = mix(((long) kind.hashCode() << 32) ^ (tag & 0xffffffffL));
+        return mix(piece + (square + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Key of a piece placed on a square
+     * @param piece piece
+     * @param square square index
+     * @return key
+     */
+    public static long pieceKey(Piece<?, ?> piece, int square) {
+        return pieceKey(piece.getKind(), piece.getTag(), square);
+    }
+
+    /**
+     * Key of the player in turn
+     * @param player player tag
+     * @return key
+     */
+    public static long turnKey(int player) {
+        return mix(TURN_SEED + (player & 0xffffffffL) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * SplitMix64 finalizer
+     * @param z input
+     * @return mixed bits
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
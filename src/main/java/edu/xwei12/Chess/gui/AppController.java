@@ -181,10 +181,10 @@ public class AppController extends Application implements GameObserver<Rectangle
      * Add custom pieces to the board
      */
     void addCustomPieces() {
-        board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(2, 2));
-        board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(5, 2));
-        board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(2, 5));
-        board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(5, 5));
+        board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_A), RectanglePosition.of(2, 2));
+        board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), RectanglePosition.of(5, 2));
+        board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_A), RectanglePosition.of(2, 5));
+        board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_B), RectanglePosition.of(5, 5));
     }
 
     /**
@@ -441,7 +441,7 @@ public class AppController extends Application implements GameObserver<Rectangle
         int unitHeight = (int) (boardView.getFitHeight() / board.getRanks());
         int rank = (int)(boardView.getFitHeight() - pos.getY()) / unitHeight - 1;
         int file = (int)pos.getX() / unitHeight;
-        return new RectanglePosition(rank, file);
+        return RectanglePosition.of(rank, file);
     }
 
     /**
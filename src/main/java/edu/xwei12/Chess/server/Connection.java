@@ -0,0 +1,205 @@
+package edu.xwei12.chess.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client connection of a game server
+ * @author Xinran Wei
+ *
+ * Splits the bytes read into lines and queues lines to write, flushing as much as
+ * the socket takes. Replies may complete out of order on the game actors, so they
+ * wait in a queue and are sent from its head as they complete, keeping replies in
+ * request order. Only the server's selector thread uses a connection.
+ */
+class Connection {
+
+    /** Longest line accepted, in bytes **/
+    static final int MAX_LINE_BYTES = 4096;
+
+    /** Most bytes queued for writing before the client counts as too slow **/
+    static final int MAX_PENDING_BYTES = 1 << 20;
+
+    /** Channel and its key **/
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    /** Bytes read, and the part of a line read so far **/
+    private final ByteBuffer input = ByteBuffer.allocate(8192);
+    private byte[] line = new byte[128];
+    private int lineLength;
+
+    /** Buffers waiting to be written, and their remaining bytes **/
+    private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+    private int pendingBytes;
+
+    /** Replies in request order, sent once complete **/
+    private final ArrayDeque<CompletableFuture<String>> replies = new ArrayDeque<>();
+
+    /** Games watched **/
+    private final List<GameSession> watched = new ArrayList<>();
+
+    /** Close once the output is written **/
+    private boolean closing;
+
+    /** Quit requested; close once the replies are sent **/
+    private boolean quitting;
+
+    /**
+     * Constructor
+     * @param channel non-blocking channel
+     * @param key key of the channel
+     */
+    Connection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Read what is available and split it into lines
+     * @param lines list to add complete lines to
+     * @return false at end of stream
+     * @throws IOException if reading fails or a line is too long
+     */
+    boolean read(List<String> lines) throws IOException {
+        int count = channel.read(input);
+        if (count < 0) return false;
+        input.flip();
+        while (input.hasRemaining()) {
+            byte b = input.get();
+            if (b == '\n') {
+                int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                lines.add(new String(line, 0, length, StandardCharsets.UTF_8));
+                lineLength = 0;
+            } else {
+                if (lineLength == MAX_LINE_BYTES) throw new IOException("Line too long");
+                if (lineLength == line.length) line = Arrays.copyOf(line, line.length * 2);
+                line[lineLength++] = b;
+            }
+        }
+        input.clear();
+        return true;
+    }
+
+    /**
+     * Queue a line and write what the socket takes
+     * @param text line, without terminator
+     * @throws IOException if writing fails or too much output is pending
+     */
+    void send(String text) throws IOException {
+        byte[] bytes = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        if (pendingBytes + bytes.length > MAX_PENDING_BYTES)
+            throw new IOException("Client too slow");
+        output.add(ByteBuffer.wrap(bytes));
+        pendingBytes += bytes.length;
+        flush();
+    }
+
+    /**
+     * Queue a reply, to be sent after the replies before it
+     * @param reply future reply line
+     */
+    void addReply(CompletableFuture<String> reply) {
+        replies.add(reply);
+    }
+
+    /**
+     * Send the replies completed at the head of the queue
+     * @throws IOException if writing fails or too much output is pending
+     */
+    void sendReplies() throws IOException {
+        CompletableFuture<String> reply;
+        while ((reply = replies.peek()) != null && reply.isDone()) {
+            replies.poll();
+            String line;
+            try {
+                line = reply.join();
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                line = "ERR " + cause;
+            }
+            send(line);
+        }
+        if (quitting && replies.isEmpty()) closeAfterFlush();
+    }
+
+    /**
+     * Determine whether the client quit
+     * @return quitting or not
+     */
+    boolean isQuitting() {
+        return quitting;
+    }
+
+    /**
+     * Close once the replies queued so far are sent
+     */
+    void quit() {
+        quitting = true;
+    }
+
+    /**
+     * Write queued output until done or the socket is full
+     * @throws IOException if writing fails
+     */
+    void flush() throws IOException {
+        while (!output.isEmpty()) {
+            ByteBuffer buffer = output.peek();
+            pendingBytes -= channel.write(buffer);
+            if (buffer.hasRemaining()) break;
+            output.poll();
+        }
+        if (!key.isValid()) return;
+        if (output.isEmpty()) {
+            key.interestOps(SelectionKey.OP_READ);
+            if (closing) close();
+        } else {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Close once the queued output is written
+     * @throws IOException if writing fails
+     */
+    void closeAfterFlush() throws IOException {
+        closing = true;
+        flush();
+    }
+
+    /**
+     * Close at once
+     */
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    /**
+     * Get the games watched
+     * @return sessions
+     */
+    List<GameSession> getWatched() {
+        return watched;
+    }
+
+    /**
+     * Determine whether the connection is open
+     * @return open or not
+     */
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+}
@@ -0,0 +1,189 @@
+package edu.xwei12.chess.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Blocking client of a game server, for tests and tools
+ * @author Xinran Wei
+ *
+ * Sends one request at a time and waits for its reply. Update and CLOSED lines
+ * pushed by the server in the meantime are queued for nextUpdate. A client is
+ * used by one thread.
+ */
+public class GameClient implements Closeable {
+
+    /** Socket and its streams **/
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final Writer writer;
+
+    /** Pushed lines not yet taken **/
+    private final Queue<String> updates = new ArrayDeque<>();
+
+    /**
+     * Connect to a server
+     * @param address server address
+     * @throws IOException if connecting fails
+     */
+    public GameClient(InetSocketAddress address) throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(address);
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Connect to a server on this machine
+     * @param port server port
+     * @throws IOException if connecting fails
+     */
+    public GameClient(int port) throws IOException {
+        this(new InetSocketAddress("localhost", port));
+    }
+
+    /**
+     * Determine whether a line is pushed by the server rather than a reply
+     * @param line line
+     * @return pushed or not
+     */
+    private static boolean isPushed(String line) {
+        return line.startsWith("UPDATE ") || line.startsWith("CLOSED ");
+    }
+
+    /**
+     * Send a request and wait for its reply
+     * @param request request line
+     * @return reply, OK ... or ERR ...
+     * @throws IOException if the connection fails or closes
+     */
+    public String request(String request) throws IOException {
+        writer.write(request);
+        writer.write('\n');
+        writer.flush();
+        while (true) {
+            String line = reader.readLine();
+            if (line == null) throw new IOException("Connection closed");
+            if (!isPushed(line)) return line;
+            updates.add(line);
+        }
+    }
+
+    /**
+     * Send a request that must succeed
+     * @param request request line
+     * @return reply after "OK", possibly empty
+     * @throws IOException if the connection fails or the server replies ERR
+     */
+    private String expectOk(String request) throws IOException {
+        String reply = request(request);
+        if (reply.equals("OK")) return "";
+        if (!reply.startsWith("OK ")) throw new IOException(reply);
+        return reply.substring(3);
+    }
+
+    /**
+     * Create a game at the standard position
+     * @return game id
+     * @throws IOException if the request fails
+     */
+    public long newGame() throws IOException {
+        return Long.parseLong(expectOk("NEW"));
+    }
+
+    /**
+     * Create a game at a position
+     * @param fen position
+     * @return game id
+     * @throws IOException if the request fails
+     */
+    public long newGame(String fen) throws IOException {
+        return Long.parseLong(expectOk("NEW " + fen));
+    }
+
+    /**
+     * Make a move for the player to move
+     * @param game game id
+     * @param move move, such as "e2e4"
+     * @return whether the move was made
+     * @throws IOException if the connection fails
+     */
+    public boolean move(long game, String move) throws IOException {
+        return request("MOVE " + game + " " + move).startsWith("OK ");
+    }
+
+    /**
+     * Take back the last move
+     * @param game game id
+     * @return whether a move was taken back
+     * @throws IOException if the connection fails
+     */
+    public boolean undo(long game) throws IOException {
+        return request("UNDO " + game).startsWith("OK ");
+    }
+
+    /**
+     * Get the state of a game
+     * @param game game id
+     * @return id, plies, state, last move and position, as in update lines
+     * @throws IOException if the request fails
+     */
+    public String show(long game) throws IOException {
+        return expectOk("SHOW " + game);
+    }
+
+    /**
+     * Receive the updates of a game
+     * @param game game id
+     * @throws IOException if the request fails
+     */
+    public void watch(long game) throws IOException {
+        expectOk("WATCH " + game);
+    }
+
+    /**
+     * Get the next pushed line, waiting for it if needed
+     * @return UPDATE or CLOSED line
+     * @throws IOException if the connection fails or closes
+     */
+    public String nextUpdate() throws IOException {
+        if (!updates.isEmpty()) return updates.poll();
+        String line = reader.readLine();
+        if (line == null) throw new IOException("Connection closed");
+        if (!isPushed(line)) throw new IOException("Unexpected reply " + line);
+        return line;
+    }
+
+    /**
+     * Get the number of pushed lines queued
+     * @return count
+     */
+    public int getQueuedUpdates() {
+        return updates.size();
+    }
+
+    /**
+     * Say goodbye and close
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!socket.isClosed()) request("QUIT");
+        } catch (IOException e) {
+            // Closing anyway
+        } finally {
+            socket.close();
+        }
+    }
+}
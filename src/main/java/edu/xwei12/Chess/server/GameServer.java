@@ -0,0 +1,394 @@
+package edu.xwei12.chess.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless server hosting many games over a line protocol
+ * @author Xinran Wei
+ *
+ * One thread multiplexes all connections with a selector (non-blocking NIO), so
+ * idle games and idle clients cost no threads. Requests are one line each, words
+ * separated by spaces, and get exactly one reply line, in order:
+ *     NEW [position]       OK <id>               new game, standard or from a FEN position
+ *     MOVE <id> <move>     OK <id> <state>       move of the player to move, such as e2e4
+ *     UNDO <id>            OK <id>
+ *     RESTART <id>         OK <id>
+ *     SHOW <id>            OK <id> <plies> ...   current state, as in update lines
+ *     WATCH <id>           OK <id>               push updates of a game to this connection
+ *     UNWATCH <id>         OK <id>
+ *     CLOSE <id>           OK <id>               end a game; watchers get CLOSED <id>
+ *     GAMES                OK <count>
+ *     QUIT                 OK                    then the server closes the connection
+ * Failed requests get ERR <message>. Updates (see GameSession) may arrive between
+ * replies at any time, through each game's GameObserver.
+ *
+ * Requests on a game's state (MOVE, UNDO, RESTART, SHOW) go to the game's actor
+ * (GameActor) and run on a shared worker pool, so a slow game never holds up the
+ * selector or other games. Workers hand replies and updates back to the selector
+ * thread through a task queue; each connection still gets its replies in order.
+ */
+public class GameServer implements Closeable {
+
+    /** Default port **/
+    public static final int DEFAULT_PORT = 7878;
+
+    /** Selector and listening channel **/
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    /** Games by id; used by the selector thread only **/
+    private final Map<Long, GameSession> sessions = new HashMap<>();
+    private long nextId = 1;
+
+    /** Workers running the game actors **/
+    private final ExecutorService workers;
+
+    /** Tasks for the selector thread, posted by workers **/
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /** Selector thread **/
+    private Thread thread;
+    private volatile boolean running;
+
+    /** Scratch list of lines read **/
+    private final List<String> lines = new ArrayList<>();
+
+    /**
+     * Open a server on an address, with a worker per processor; call start to serve
+     * @param address address to bind, port 0 for any free port
+     * @throws IOException if binding fails
+     */
+    public GameServer(InetSocketAddress address) throws IOException {
+        this(address, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Open a server on an address; call start to serve
+     * @param address address to bind, port 0 for any free port
+     * @param threads number of worker threads running the games
+     * @throws IOException if binding fails
+     */
+    public GameServer(InetSocketAddress address, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address, 1024);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread worker = new Thread(r, "chess-worker");
+            worker.setDaemon(true);
+            return worker;
+        });
+    }
+
+    /**
+     * Get the port listened on
+     * @return port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Start serving on a new thread
+     * @return this server
+     */
+    public synchronized GameServer start() {
+        if (thread != null) throw new IllegalStateException("Server already started");
+        running = true;
+        thread = new Thread(this::run, "chess-server-" + getPort());
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Stop serving, and close all connections
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        Thread thread;
+        synchronized (this) {
+            thread = this.thread;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys())
+            if (key.attachment() instanceof Connection)
+                ((Connection) key.attachment()).close();
+        serverChannel.close();
+        selector.close();
+        workers.shutdown();
+    }
+
+    /**
+     * Selector loop
+     */
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                break;
+            }
+            Runnable task;
+            while ((task = tasks.poll()) != null)
+                task.run();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isWritable()) connection.flush();
+                    if (key.isValid() && key.isReadable()) read(connection);
+                } catch (IOException e) {
+                    disconnect(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accept pending connections
+     */
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(channel, key));
+            }
+        } catch (IOException e) {
+            // Keep serving the others
+        }
+    }
+
+    /**
+     * Read and handle the lines available from a connection
+     * @param connection connection
+     * @throws IOException if the connection fails
+     */
+    private void read(Connection connection) throws IOException {
+        lines.clear();
+        boolean open = connection.read(lines);
+        for (String line : lines) {
+            if (connection.isQuitting()) break;
+            String request = line.trim();
+            CompletableFuture<String> reply;
+            try {
+                reply = handle(connection, request);
+            } catch (RuntimeException e) {
+                reply = reply("ERR " + e);
+            }
+            connection.addReply(reply);
+            if (request.equalsIgnoreCase("QUIT")) {
+                unwatchAll(connection);
+                connection.quit();
+            }
+            if (!reply.isDone())
+                reply.whenComplete((r, e) -> post(() -> sendReplies(connection)));
+        }
+        connection.sendReplies();
+        if (!open) disconnect(connection);
+    }
+
+    /**
+     * Run a task on the selector thread
+     * @param task task
+     */
+    private void post(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Send the completed replies of a connection, dropping it if that fails
+     * @param connection connection
+     */
+    private void sendReplies(Connection connection) {
+        if (!connection.isOpen()) return;
+        try {
+            connection.sendReplies();
+        } catch (IOException e) {
+            disconnect(connection);
+        }
+    }
+
+    /**
+     * Send an update line to the watchers of a game; callable from any thread
+     * @param session game
+     * @param line line
+     */
+    void publish(GameSession session, String line) {
+        post(() -> {
+            for (Connection watcher : new ArrayList<>(session.getWatchers()))
+                send(watcher, line);
+        });
+    }
+
+    /**
+     * Send a line to a connection, dropping the connection if it fails
+     * @param connection connection
+     * @param line line
+     */
+    void send(Connection connection, String line) {
+        if (!connection.isOpen()) return;
+        try {
+            connection.send(line);
+        } catch (IOException e) {
+            disconnect(connection);
+        }
+    }
+
+    /**
+     * Close a connection and forget what it watched
+     * @param connection connection
+     */
+    private void disconnect(Connection connection) {
+        unwatchAll(connection);
+        connection.close();
+    }
+
+    /**
+     * Stop sending updates to a connection
+     * @param connection connection
+     */
+    private void unwatchAll(Connection connection) {
+        for (GameSession session : new ArrayList<>(connection.getWatched()))
+            session.unwatch(connection);
+    }
+
+    /**
+     * Handle a request; requests on a game's state go to its actor
+     * @param connection requesting connection
+     * @param line request
+     * @return future reply
+     */
+    private CompletableFuture<String> handle(Connection connection, String line) {
+        String[] words = line.split(" +", 3);
+        String command = words[0].toUpperCase();
+        switch (command) {
+            case "NEW":
+                return reply(newGame(line.length() > 3 ? line.substring(3).trim() : null));
+            case "GAMES":
+                return reply("OK " + sessions.size());
+            case "QUIT":
+                return reply("OK");
+            case "":
+                return reply("ERR Empty request");
+            default:
+                break;
+        }
+
+        // Requests on a game
+        if (words.length < 2) return reply("ERR Missing game id");
+        GameSession session;
+        try {
+            session = sessions.get(Long.parseLong(words[1]));
+        } catch (NumberFormatException e) {
+            return reply("ERR Bad game id " + words[1]);
+        }
+        if (session == null) return reply("ERR No game " + words[1]);
+        long id = session.getId();
+
+        switch (command) {
+            case "MOVE":
+                if (words.length < 3) return reply("ERR Missing move");
+                return session.move(words[2].trim());
+            case "UNDO":
+                return session.undo();
+            case "RESTART":
+                return session.restart();
+            case "SHOW":
+                return session.show();
+            case "WATCH":
+                session.watch(connection);
+                return reply("OK " + id);
+            case "UNWATCH":
+                session.unwatch(connection);
+                return reply("OK " + id);
+            case "CLOSE":
+                sessions.remove(id);
+                for (Connection watcher : new ArrayList<>(session.getWatchers())) {
+                    session.unwatch(watcher);
+                    if (watcher != connection) send(watcher, "CLOSED " + id);
+                }
+                return reply("OK " + id);
+            default:
+                return reply("ERR Unknown command " + words[0]);
+        }
+    }
+
+    /**
+     * Wrap a reply known at once
+     * @param line reply
+     * @return completed future reply
+     */
+    private static CompletableFuture<String> reply(String line) {
+        return CompletableFuture.completedFuture(line);
+    }
+
+    /**
+     * Create a game
+     * @param fen starting position, or null for the standard one
+     * @return reply
+     */
+    private String newGame(String fen) {
+        GameSession session;
+        try {
+            session = new GameSession(nextId, fen == null || fen.isEmpty() ? null : fen, this, workers);
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        }
+        sessions.put(nextId, session);
+        return "OK " + nextId++;
+    }
+
+    /**
+     * Run a server until the process ends
+     * @param args [port]
+     * @throws IOException if binding fails
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(new InetSocketAddress(port)).start();
+        System.out.println("Serving games on port " + server.getPort());
+    }
+}
@@ -0,0 +1,172 @@
+package edu.xwei12.chess.server;
+
+import edu.xwei12.chess.Fen;
+import edu.xwei12.chess.Game;
+import edu.xwei12.chess.GameActor;
+import edu.xwei12.chess.Notation;
+import edu.xwei12.chess.PackedMove;
+import edu.xwei12.chess.RectangleBoard;
+import edu.xwei12.chess.RectanglePosition;
+import edu.xwei12.chess.StandardGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Game hosted by a game server
+ * @author Xinran Wei
+ *
+ * The game lives in an actor (GameActor), which applies the requests of all
+ * connections in order on the server's worker pool. Each request that changes the
+ * game also hands an update line to the server for the connections watching, so
+ * nothing but the requests themselves runs on the actor:
+ *     UPDATE <id> <plies> <state> <last move or -> <position>
+ * The position is in FEN (Fen), ending with the player to move.
+ */
+class GameSession {
+
+    /** Session id **/
+    private final long id;
+
+    /** Game, touched by the actor only **/
+    private final StandardGame game;
+
+    /** Actor applying requests to the game **/
+    private final GameActor<RectangleBoard, RectanglePosition> actor;
+
+    /** Starting position, or null for the standard one **/
+    private final String startFen;
+
+    /** Connections watching; used by the selector thread only **/
+    private final List<Connection> watchers = new ArrayList<>();
+
+    /** Whether anyone watches, read by the actor **/
+    private volatile boolean watched;
+
+    /** Server, which sends the updates **/
+    private final GameServer server;
+
+    /**
+     * Constructor
+     * @param id session id
+     * @param startFen starting position, or null for the standard one
+     * @param server server
+     * @param executor executor running the game's actor
+     */
+    GameSession(long id, String startFen, GameServer server, Executor executor) {
+        this.id = id;
+        this.startFen = startFen;
+        this.server = server;
+        this.game = startFen == null ? new StandardGame() : Fen.parseGame(startFen);
+        this.actor = new GameActor<>(game, executor);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    List<Connection> getWatchers() {
+        return watchers;
+    }
+
+    /**
+     * Add a watcher; selector thread only
+     * @param connection connection
+     */
+    void watch(Connection connection) {
+        if (watchers.contains(connection)) return;
+        watchers.add(connection);
+        connection.getWatched().add(this);
+        watched = true;
+    }
+
+    /**
+     * Remove a watcher; selector thread only
+     * @param connection connection
+     */
+    void unwatch(Connection connection) {
+        watchers.remove(connection);
+        connection.getWatched().remove(this);
+        watched = !watchers.isEmpty();
+    }
+
+    /**
+     * Play a move for the player to move
+     * @param text move, such as "e2e4"
+     * @return future reply
+     */
+    CompletableFuture<String> move(String text) {
+        return actor.ask(g -> {
+            if (game.getState() == Game.State.CHECKMATE) return "ERR Game is over";
+            RectangleBoard board = game.getBoard();
+            int move = Notation.parseMove(text, 0, text.length(), board.getRanks(), board.getFiles());
+            if (move < 0) return "ERR Bad move " + text;
+            int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+            boolean moved = game.stepWithMove(game.getPlayerToMove(), board.getRank(source), board.getFile(source),
+                    board.getRank(destination), board.getFile(destination));
+            if (!moved) return "ERR Illegal move " + text;
+            publishUpdate();
+            return "OK " + id + " " + game.getState();
+        });
+    }
+
+    /**
+     * Take back the last move
+     * @return future reply
+     */
+    CompletableFuture<String> undo() {
+        return actor.ask(g -> {
+            if (!game.undo()) return "ERR Nothing to undo";
+            publishUpdate();
+            return "OK " + id;
+        });
+    }
+
+    /**
+     * Go back to the starting position
+     * @return future reply
+     */
+    CompletableFuture<String> restart() {
+        return actor.ask(g -> {
+            if (startFen == null) game.restart();
+            else Fen.load(startFen, game);
+            publishUpdate();
+            return "OK " + id;
+        });
+    }
+
+    /**
+     * Get the current state
+     * @return future reply
+     */
+    CompletableFuture<String> show() {
+        return actor.ask(g -> "OK " + describe());
+    }
+
+    /**
+     * Describe the game as in update lines; actor only
+     * @return id, plies, state, last move and position
+     */
+    private String describe() {
+        StringBuilder builder = new StringBuilder(128);
+        builder.append(id).append(' ').append(game.getMoveCount()).append(' ')
+                .append(game.getState()).append(' ');
+        int count = game.getMoveCount();
+        if (count == 0)
+            builder.append('-');
+        else
+            Notation.appendMove(game.getPackedMove(count - 1), game.getBoard().getFiles(), builder);
+        builder.append(' ');
+        Fen.appendFen(game.getBoard(), game.getPlayerToMove(), builder);
+        return builder.toString();
+    }
+
+    /**
+     * Send an update to the watchers, if any; actor only
+     */
+    private void publishUpdate() {
+        if (watched) server.publish(this, "UPDATE " + describe());
+    }
+}
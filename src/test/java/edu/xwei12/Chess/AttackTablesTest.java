@@ -0,0 +1,61 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Attack table tests
+ * @author Xinran Wei
+ */
+public class AttackTablesTest {
+
+    /**
+     * Reference scan of RectangleBoard.findNearestLeap
+     */
+    private static int scan(RectangleBoard board, int x1, int y1, int x2, int y2) {
+        if (x1 == x2)
+            for (int y = y1 + 1; y < y2; y++)
+                if (board.isOccupied(x1, y)) return board.getSquare(x1, y);
+        if (y1 == y2)
+            for (int x = x1 + 1; x < x2; x++)
+                if (board.isOccupied(x, y1)) return board.getSquare(x, y1);
+        if (Math.abs(x2 - x1) == Math.abs(y2 - y1) && x1 != x2 && y1 != y2)
+            for (int x = x1 + 1, y = y1 + 1; x < x2 && x < board.getFiles() && y < board.getRanks(); x++, y++)
+                if (board.isOccupied(x, y)) return board.getSquare(x, y);
+        return -1;
+    }
+
+    @Test
+    public void testLeapPaths() throws Exception {
+        Random random = new Random(42);
+        for (int size : new int[]{8, 12}) {
+            RectangleBoard board = new RectangleBoard(size, size);
+            Assert.assertTrue(board.getAttackTables().hasLeapPaths());
+            for (int i = 0; i < size; i++)
+                for (int j = 0; j < size; j++)
+                    if (random.nextInt(3) == 0)
+                        board.addPiece(DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(i, j));
+
+            for (int from = 0; from < size * size; from++)
+                for (int to = 0; to < size * size; to++) {
+                    int x1 = board.getRank(from), y1 = board.getFile(from);
+                    int x2 = board.getRank(to), y2 = board.getFile(to);
+                    Assert.assertEquals(scan(board, x1, y1, x2, y2), board.findNearestLeap(x1, y1, x2, y2));
+                }
+        }
+    }
+
+    @Test
+    public void testTargets() throws Exception {
+        AttackTables tables = AttackTables.forSize(8, 8);
+        Assert.assertSame(tables, AttackTables.forSize(8, 8));
+        Assert.assertEquals(2, tables.getKnightTargets(0).length);
+        Assert.assertEquals(8, tables.getKnightTargets(27).length);
+        Assert.assertEquals(3, tables.getKingTargets(63).length);
+        Assert.assertEquals(7, tables.getRay(0, 0).length);
+        Assert.assertEquals(0, tables.getRay(0, 1).length);
+        Assert.assertArrayEquals(new int[]{9, 18, 27, 36, 45, 54, 63}, tables.getRay(0, 4));
+    }
+}
@@ -0,0 +1,123 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Bitboard board tests
+ * @author Xinran Wei
+ */
+public class BitboardBoardTest {
+
+    StandardGame game;
+    StandardGame bitboardGame;
+
+    @Before
+    public void setUp() throws Exception {
+        game = new StandardGame();
+        bitboardGame = new StandardGame(new BitboardBoard());
+    }
+
+    /**
+     * Assert that both boards hold the same pieces
+     */
+    private void assertSameBoards() {
+        RectangleBoard board = game.getBoard();
+        RectangleBoard bitboard = bitboardGame.getBoard();
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                Piece p = board.getPiece(i, j);
+                Piece q = bitboard.getPiece(i, j);
+                if (p == null) {
+                    Assert.assertNull(q);
+                } else {
+                    Assert.assertEquals(p.getKind(), q.getKind());
+                    Assert.assertEquals(p.getTag(), q.getTag());
+                }
+            }
+        }
+        Assert.assertEquals(board.getPositionHash(), bitboard.getPositionHash());
+        for (String kind : board.getAllPieceKinds())
+            Assert.assertEquals(board.getPiecesByKind(kind).size(), bitboard.getPiecesByKind(kind).size());
+    }
+
+    @Test
+    public void testInitialize() throws Exception {
+        BitboardBoard bitboard = (BitboardBoard) bitboardGame.getBoard();
+        Assert.assertEquals(32, Long.bitCount(bitboard.getOccupancy()));
+        Assert.assertEquals(0xFF00L, bitboard.getBitboard(DefaultPiece.PAWN.getKind(), StandardGame.PLAYER_A));
+        Assert.assertEquals(1L << 60, bitboard.getBitboard(DefaultPiece.KING.getKind(), StandardGame.PLAYER_B));
+        assertSameBoards();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testKindsReadOnly() throws Exception {
+        bitboardGame.getBoard().getAllPieceKinds().clear();
+    }
+
+    @Test
+    public void testStepWithMove() throws Exception {
+        int[][] moves = {
+                {StandardGame.PLAYER_A, 1, 4, 3, 4},
+                {StandardGame.PLAYER_B, 6, 3, 4, 3},
+                {StandardGame.PLAYER_A, 3, 4, 4, 3}, // Pawn attacks pawn
+                {StandardGame.PLAYER_B, 7, 1, 5, 2},
+                {StandardGame.PLAYER_A, 0, 6, 2, 5},
+        };
+        for (int[] m : moves) {
+            boolean moved = game.stepWithMove(m[0], m[1], m[2], m[3], m[4]);
+            Assert.assertEquals(moved, bitboardGame.stepWithMove(m[0], m[1], m[2], m[3], m[4]));
+            Assert.assertEquals(game.getState(), bitboardGame.getState());
+            assertSameBoards();
+        }
+        Assert.assertEquals(15, bitboardGame.getBoard().getPiecesByKind(DefaultPiece.PAWN.getKind()).size());
+
+        // Undo restores the victim
+        while (bitboardGame.undo()) game.undo();
+        assertSameBoards();
+        Assert.assertEquals(16, bitboardGame.getBoard().getPiecesByKind(DefaultPiece.PAWN.getKind()).size());
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        Assert.assertTrue(bitboardGame.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4));
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4));
+        bitboardGame = bitboardGame.copy();
+        Assert.assertTrue(bitboardGame.getBoard() instanceof BitboardBoard);
+        assertSameBoards();
+
+        BitboardBoard copy = (BitboardBoard) bitboardGame.getBoard().copy();
+        copy.removeAllPieces();
+        assertSameBoards();
+        bitboardGame.getBoard().copyInto(copy);
+        Assert.assertEquals(bitboardGame.getBoard().getPositionHash(), copy.getPositionHash());
+        Assert.assertEquals(32, Long.bitCount(copy.getOccupancy()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCopyIntoOtherClass() throws Exception {
+        bitboardGame.getBoard().copyInto(game.getBoard());
+    }
+
+    @Test
+    public void testMovers() throws Exception {
+        RectangleBoard board = game.getBoard();
+        RectangleBoard bitboard = bitboardGame.getBoard();
+        board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(3, 3));
+        bitboard.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(3, 3));
+
+        for (int i = 0; i < 8; i++)
+            for (int j = 0; j < 8; j++)
+                for (int d = 1; d < 8; d++) {
+                    RectanglePosition pos = new RectanglePosition(i, j);
+                    if (!board.pieceExists(pos)) continue;
+                    Assert.assertEquals(board.getPossibleMoves(pos, d).size(), bitboard.getPossibleMoves(pos, d).size());
+                }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLarge() throws Exception {
+        new BitboardBoard(9, 8);
+    }
+}
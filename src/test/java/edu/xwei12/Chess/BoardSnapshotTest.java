@@ -0,0 +1,108 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Board snapshot tests
+ * @author Xinran Wei
+ */
+public class BoardSnapshotTest {
+
+    /**
+     * Compute the position hash of a snapshot from its pieces
+     * @param snapshot snapshot
+     * @return position hash
+     */
+    private long hashOf(BoardSnapshot snapshot) {
+        long hash = 0;
+        for (int square = 0; square < snapshot.getRanks() * snapshot.getFiles(); square++)
+            if (snapshot.getPiece(square) != null)
+                hash ^= Zobrist.pieceKey(snapshot.getPiece(square), square);
+        return hash;
+    }
+
+    @Test
+    public void testImmutable() throws Exception {
+        StandardGame game = new StandardGame();
+        RectangleBoard board = game.getBoard();
+        BoardSnapshot before = board.getSnapshot();
+        Assert.assertSame(before, board.getSnapshot());
+        Assert.assertEquals(32, before.getPieceCount());
+
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4));
+        BoardSnapshot after = board.getSnapshot();
+        Assert.assertTrue(before != after);
+        Assert.assertEquals(DefaultPiece.PAWN.getKind(), before.getPiece(1, 4).getKind());
+        Assert.assertNull(before.getPiece(3, 4));
+        Assert.assertNull(after.getPiece(1, 4));
+        Assert.assertEquals(board.getPositionHash(), after.getPositionHash());
+        Assert.assertEquals(hashOf(after), after.getPositionHash());
+
+        game.undo();
+        Assert.assertEquals(before.getPositionHash(), board.getSnapshot().getPositionHash());
+        Assert.assertEquals(before.getPositionHash(), before.toBoard().getPositionHash());
+    }
+
+    @Test
+    public void testBitboard() throws Exception {
+        StandardGame game = new StandardGame(new BitboardBoard());
+        BoardSnapshot snapshot = game.getBoard().getSnapshot();
+        Assert.assertEquals(32, snapshot.getPieceCount());
+        Assert.assertEquals(hashOf(snapshot), snapshot.getPositionHash());
+        Assert.assertEquals(new StandardGame().getBoard().getPositionHash(), snapshot.getPositionHash());
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        StandardGame game = new StandardGame();
+        Assert.assertNull(game.getSnapshot());
+        game.setSnapshotPublishing(true);
+        Assert.assertNotNull(game.getSnapshot());
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger reads = new AtomicInteger();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                while (!done.get() || reads.get() == 0) {
+                    BoardSnapshot snapshot = game.getSnapshot();
+                    if (hashOf(snapshot) != snapshot.getPositionHash()) failure.set("Torn snapshot");
+                    if (snapshot.getPieceCount() > 32) failure.set("Too many pieces");
+                    reads.incrementAndGet();
+                }
+            });
+            readers[i].start();
+        }
+
+        // Play and undo random games meanwhile
+        Random random = new Random(1);
+        MoveBuffer moves = new MoveBuffer();
+        for (int n = 0; n < 2000; n++) {
+            if (game.getState() == Game.State.CHECKMATE || random.nextInt(10) == 0) {
+                game.undo();
+                continue;
+            }
+            int player = game.getPlayerToMove();
+            moves.clear();
+            game.getBoard().generatePlayerMoves(player, moves);
+            int move = moves.get(random.nextInt(moves.size()));
+            int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+            Assert.assertTrue(game.stepWithMove(player, source / 8, source % 8, destination / 8, destination % 8));
+            Assert.assertEquals(game.getBoard().getPositionHash(), game.getSnapshot().getPositionHash());
+        }
+        done.set(true);
+        for (Thread reader : readers) reader.join();
+        Assert.assertNull(failure.get());
+        Assert.assertTrue(reads.get() > 0);
+
+        game.restart();
+        Assert.assertEquals(32, game.getSnapshot().getPieceCount());
+    }
+}
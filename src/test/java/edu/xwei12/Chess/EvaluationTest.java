@@ -0,0 +1,108 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Evaluation tests
+ * @author Xinran Wei
+ */
+public class EvaluationTest {
+
+    /**
+     * Score a board by walking all squares
+     * @param board board
+     * @param evaluation evaluation
+     * @return score from PLAYER_A's side
+     */
+    private int fullScore(RectangleBoard board, Evaluation evaluation) {
+        int score = 0;
+        for (RectanglePosition position : board.getAllPieces())
+            score += evaluation.score(board.getPiece(position), board.indexOf(position));
+        return score;
+    }
+
+    /**
+     * Play random moves with undos, checking the incremental score after each
+     * @param game game
+     * @param evaluation evaluation set on the game's board
+     */
+    private void playRandom(StandardGame game, Evaluation evaluation) {
+        Random random = new Random(22);
+        RectangleBoard board = game.getBoard();
+        for (int n = 0; n < 1500; n++) {
+            if (game.getState() == Game.State.CHECKMATE || random.nextInt(8) == 0) {
+                game.undo();
+            } else {
+                int player = game.getPlayerToMove();
+                MoveBuffer moves = board.getAllLegalMoves(player);
+                int move = moves.get(random.nextInt(moves.size()));
+                int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+                game.stepWithMove(player, board.getRank(source), board.getFile(source),
+                        board.getRank(destination), board.getFile(destination));
+            }
+            Assert.assertEquals(fullScore(board, evaluation), board.getEvaluationScore());
+        }
+    }
+
+    @Test
+    public void testIncremental() throws Exception {
+        Evaluation evaluation = Evaluation.standard(8, 8);
+        StandardGame game = PerftPosition.EXTENDED.newGame();
+        game.getBoard().setEvaluation(evaluation);
+        playRandom(game, evaluation);
+
+        StandardGame copyMake = PerftPosition.MIDDLEGAME.newGame();
+        copyMake.getBoard().setEvaluation(evaluation);
+        copyMake.setCopyMake(true);
+        playRandom(copyMake, evaluation);
+
+        StandardGame bitboard = new StandardGame(new BitboardBoard());
+        bitboard.getBoard().setEvaluation(evaluation);
+        playRandom(bitboard, evaluation);
+        Assert.assertEquals(bitboard.getBoard().getEvaluationScore(), bitboard.copy().getBoard().getEvaluationScore());
+    }
+
+    @Test
+    public void testStandardPosition() throws Exception {
+        RectangleBoard board = new StandardGame().getBoard();
+        Assert.assertEquals(0, board.getEvaluationScore());
+        board.setEvaluation(Evaluation.standard(8, 8));
+        Assert.assertEquals(0, board.getEvaluationScore());
+
+        // Losing a knight costs its value and its square
+        Evaluation evaluation = board.getEvaluation();
+        board.addPiece(DefaultPiece.PAWN.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(7, 1));
+        Assert.assertEquals(100 + 35 + evaluation.score(DefaultPiece.KNIGHT.newPieceWithTag(StandardGame.PLAYER_A), 1),
+                board.getEvaluationScore());
+
+        board.removeAllPieces();
+        Assert.assertEquals(0, board.getEvaluationScore());
+        board.setEvaluation(null);
+        board.addPiece(DefaultPiece.QUEEN.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(3, 3));
+        Assert.assertEquals(0, board.getEvaluationScore());
+    }
+
+    @Test
+    public void testCustomKinds() throws Exception {
+        int[] table = new int[64];
+        table[9] = 50;
+        Evaluation evaluation = new Evaluation(8, 8)
+                .setPieceValue(ExtendedPiece.GRASSHOPPER.getKind(), 250)
+                .setPieceSquareTable(ExtendedPiece.GRASSHOPPER.getKind(), table);
+        Assert.assertEquals(250, evaluation.getPieceValue(ExtendedPiece.GRASSHOPPER.getKind()));
+        Assert.assertEquals(0, evaluation.getPieceValue(DefaultPiece.QUEEN.getKind()));
+        Assert.assertEquals(300, evaluation.score(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_A), 9));
+        Assert.assertEquals(-300, evaluation.score(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), 49));
+        Assert.assertEquals(-250, evaluation.score(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), 9));
+
+        try {
+            new RectangleBoard(10, 8).setEvaluation(evaluation);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
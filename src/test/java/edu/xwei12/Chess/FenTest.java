@@ -0,0 +1,98 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * FEN import/export tests
+ * @author Xinran Wei
+ */
+public class FenTest {
+
+    @Test
+    public void testStart() throws Exception {
+        StandardGame game = new StandardGame();
+        Assert.assertEquals(Fen.START, Fen.toFen(game));
+
+        StandardGame parsed = Fen.parseGame(Fen.START);
+        Assert.assertEquals(game.getPositionHash(), parsed.getPositionHash());
+        Assert.assertEquals(PerftPosition.START.getNodeCount(3), new Perft(parsed).perft(3));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (PerftPosition position : PerftPosition.values()) {
+            StandardGame game = position.newGame();
+            String fen = Fen.toFen(game);
+            StandardGame parsed = Fen.parseGame(fen);
+            Assert.assertEquals(fen, Fen.toFen(parsed));
+            Assert.assertEquals(game.getPositionHash(), parsed.getPositionHash());
+            Assert.assertEquals(position.getNodeCount(2), new Perft(parsed).perft(2));
+        }
+        Assert.assertEquals("rnbqkbnr/pppppppp/2g2e2/8/8/2G2E2/PPPPPPPP/RNBQKBNR w",
+                Fen.toFen(PerftPosition.EXTENDED.newGame()));
+    }
+
+    @Test
+    public void testArbitrarySize() throws Exception {
+        String fen = "k11/12/12/3G4e3/12/12/12/12/12/11K b";
+        RectangleBoard board = Fen.parseBoard(fen);
+        Assert.assertEquals(10, board.getRanks());
+        Assert.assertEquals(12, board.getFiles());
+        Assert.assertEquals(ExtendedPiece.GRASSHOPPER.getKind(), board.getPiece(new RectanglePosition(6, 3)).getKind());
+        Assert.assertEquals(StandardGame.PLAYER_B, (int) board.getPiece(new RectanglePosition(6, 8)).getTag());
+        Assert.assertEquals(StandardGame.PLAYER_A, (int) board.getPiece(new RectanglePosition(0, 11)).getTag());
+        Assert.assertEquals(fen, Fen.toFen(board, StandardGame.PLAYER_B));
+    }
+
+    @Test
+    public void testTurn() throws Exception {
+        Assert.assertEquals(StandardGame.PLAYER_B, Fen.parseGame("8/8/8/8/8/8/8/K6k b").getPlayerToMove());
+        Assert.assertEquals(StandardGame.PLAYER_A, Fen.parseGame("8/8/8/8/8/8/8/K6k").getPlayerToMove());
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        // Loading starts the game over: no history to undo, state reset
+        StandardGame game = Fen.parseGame("k7/8/8/8/8/8/8/R6K w");
+        game.setSnapshotPublishing(true);
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 0, 0, 7, 0));
+        Assert.assertEquals(Game.State.CHECKMATE, game.getState());
+        Fen.load(Fen.START, game);
+        Assert.assertEquals(Game.State.NORMAL, game.getState());
+        Assert.assertEquals(0, game.getMoveCount());
+        Assert.assertFalse(game.undo());
+        Assert.assertEquals(new StandardGame().getPositionHash(), game.getPositionHash());
+        Assert.assertSame(game.getBoard().getSnapshot(), game.getSnapshot());
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4));
+
+        // A malformed position leaves the game as it was
+        String before = Fen.toFen(game);
+        String[] malformed = {"rnbqkbnr/ppppXppp/8/8/8/8/PPPPPPPP/RNBQKBNR w", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x"};
+        for (String fen : malformed) {
+            try {
+                Fen.load(fen, game);
+                Assert.fail(fen);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+            Assert.assertEquals(before, Fen.toFen(game));
+            Assert.assertEquals(1, game.getMoveCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPiece() throws Exception {
+        Fen.parseBoard("8/8/8/3X4/8/8/8/8 w");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRaggedRanks() throws Exception {
+        Fen.parseBoard("8/8/8/7/8/8/8/8 w");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongSize() throws Exception {
+        Fen.parseGame("8/8/8/8 w");
+    }
+}
@@ -0,0 +1,141 @@
+package edu.xwei12.chess;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Game actor tests
+ * @author Xinran Wei
+ */
+public class GameActorTest {
+
+    ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSerialized() throws Exception {
+        GameActor<RectangleBoard, RectanglePosition> actor = new GameActor<>(new StandardGame(), executor).setMaxBatch(3);
+        int threads = 8, requests = 2000;
+        int[] counts = new int[threads];
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean(), outOfOrder = new AtomicBoolean();
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int sender = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < requests; i++) {
+                    int expected = i;
+                    actor.tell(g -> {
+                        if (running.incrementAndGet() != 1) overlapped.set(true);
+                        if (counts[sender]++ != expected) outOfOrder.set(true);
+                        running.decrementAndGet();
+                    });
+                }
+            });
+            senders.add(thread);
+            thread.start();
+        }
+        for (Thread thread : senders) thread.join();
+
+        int total = actor.ask(g -> {
+            int sum = 0;
+            for (int count : counts) sum += count;
+            return sum;
+        }).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(threads * requests, total);
+        Assert.assertFalse(overlapped.get());
+        Assert.assertFalse(outOfOrder.get());
+        Assert.assertEquals(0, actor.getQueuedRequests());
+    }
+
+    @Test
+    public void testMovesAndSubscribers() throws Exception {
+        StandardGame game = new StandardGame();
+        GameActor<RectangleBoard, RectanglePosition> actor = new GameActor<>(game, executor);
+        ExecutorService listeners = Executors.newSingleThreadExecutor();
+        List<String> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(3), released = new CountDownLatch(1);
+        actor.subscribe(events -> {
+            throw new IllegalStateException("Listener failure");
+        }, listeners);
+        actor.subscribe(events -> {
+            for (GameEvent<RectangleBoard, RectanglePosition> event : events) {
+                seen.add(event.getPlies() + (event.getMove() == null ? "-" : "+"));
+                delivered.countDown();
+            }
+        }, listeners);
+        // A listener stuck on the shared pool does not hold up the actor
+        actor.subscribe(events -> {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor);
+
+        try {
+            Assert.assertTrue(actor.move(StandardGame.PLAYER_A, RectanglePosition.of(1, 4), RectanglePosition.of(3, 4)).get(10, TimeUnit.SECONDS));
+            Assert.assertFalse(actor.move(StandardGame.PLAYER_A, RectanglePosition.of(0, 0), RectanglePosition.of(2, 0)).get(10, TimeUnit.SECONDS));
+            Assert.assertTrue(actor.undo().get(10, TimeUnit.SECONDS));
+            Assert.assertFalse(actor.undo().get(10, TimeUnit.SECONDS));
+            actor.restart().get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(Integer.valueOf(0), actor.ask(Game::getMoveCount).get(10, TimeUnit.SECONDS));
+
+            Assert.assertTrue(delivered.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals("[1+, 0-, 0-]", seen.toString());
+        } finally {
+            released.countDown();
+            listeners.shutdown();
+            Assert.assertTrue(listeners.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        GameActor<RectangleBoard, RectanglePosition> actor = new GameActor<>(new StandardGame(), executor).setMaxBatch(1);
+        CompletableFuture<Object> failed = actor.ask(g -> {
+            throw new IllegalArgumentException("Bad request");
+        });
+        actor.tell(g -> {
+            throw new IllegalStateException("Bad action");
+        });
+        try {
+            failed.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        Assert.assertEquals(Integer.valueOf(0), actor.ask(Game::getMoveCount).get());
+
+        try {
+            actor.setMaxBatch(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
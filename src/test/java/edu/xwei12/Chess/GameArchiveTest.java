@@ -0,0 +1,166 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Binary game archive tests
+ * @author Xinran Wei
+ */
+public class GameArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Make a record of random moves
+     * @param seed random seed
+     * @return record
+     */
+    private GameRecord randomRecord(long seed) {
+        Random random = new Random(seed);
+        PerftPosition position = PerftPosition.values()[(int) (seed % PerftPosition.values().length)];
+        String fen = position == PerftPosition.START ? null : Fen.toFen(position.newGame());
+        StandardGame game = fen == null ? new StandardGame() : Fen.parseGame(fen);
+        MoveBuffer moves = new MoveBuffer();
+        int plies = random.nextInt(120);
+        for (int i = 0; i < plies && game.getState() != Game.State.CHECKMATE; i++) {
+            int player = game.getPlayerToMove();
+            moves.clear();
+            game.getBoard().generatePlayerMoves(player, moves);
+            if (moves.isEmpty()) break;
+            int move = moves.get(random.nextInt(moves.size()));
+            int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+            game.stepWithMove(player, source / 8, source % 8, destination / 8, destination % 8);
+        }
+        return GameRecord.of(game, fen);
+    }
+
+    /**
+     * Check a read record against the written one
+     * @param expected written record
+     * @param actual read record
+     */
+    private void assertSameRecord(GameRecord expected, GameRecord actual) {
+        Assert.assertEquals(expected.getTag(GameRecord.TAG_FEN), actual.getTag(GameRecord.TAG_FEN));
+        Assert.assertEquals(expected.getResult(), actual.getResult());
+        Assert.assertEquals(expected.getMoves().size(), actual.getMoves().size());
+        for (int i = 0; i < expected.getMoves().size(); i++)
+            Assert.assertEquals(expected.getMoves().get(i), actual.getMoves().get(i));
+    }
+
+    @Test
+    public void testRandomAccess() throws Exception {
+        Path path = folder.newFolder("archive").toPath().resolve("games.bin");
+        List<GameRecord> records = new ArrayList<>();
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            for (int i = 0; i < 50; i++) {
+                records.add(randomRecord(i));
+                Assert.assertEquals(i, writer.append(records.get(i)));
+            }
+        }
+
+        try (GameArchiveReader reader = new GameArchiveReader(path)) {
+            Assert.assertEquals(records.size(), reader.size());
+            Random random = new Random(7);
+            for (int n = 0; n < 100; n++) {
+                int i = random.nextInt(records.size());
+                assertSameRecord(records.get(i), reader.read(i));
+                Assert.assertEquals(records.get(i).getMoves().size(), reader.getMoveCount(i));
+                Assert.assertEquals(records.get(i).replay().getPositionHash(), reader.replay(i).getPositionHash());
+
+                MoveBuffer moves = new MoveBuffer();
+                Assert.assertEquals(records.get(i).getMoves().size(), reader.readMoves(i, moves));
+                Assert.assertEquals(records.get(i).getMoves().size(), moves.size());
+            }
+        }
+    }
+
+    @Test
+    public void testAppendWhileReading() throws Exception {
+        Path path = folder.newFolder("archive").toPath().resolve("games.bin");
+        try (GameArchiveWriter writer = new GameArchiveWriter(path);
+             GameArchiveReader reader = new GameArchiveReader(path)) {
+            Assert.assertEquals(0, reader.size());
+            GameRecord first = randomRecord(1);
+            writer.append(first);
+            Assert.assertEquals(0, reader.size());
+            Assert.assertEquals(1, reader.refresh());
+            assertSameRecord(first, reader.read(0));
+
+            List<GameRecord> more = new ArrayList<>();
+            for (int i = 2; i < 20; i++) {
+                more.add(randomRecord(i));
+                writer.append(more.get(more.size() - 1));
+            }
+            Assert.assertEquals(19, reader.refresh());
+            for (int i = 0; i < more.size(); i++) assertSameRecord(more.get(i), reader.read(i + 1));
+        }
+
+        // Reopened writer continues the archive
+        GameRecord last = randomRecord(20);
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            Assert.assertEquals(19, writer.size());
+            Assert.assertEquals(19, writer.append(last));
+        }
+        try (GameArchiveReader reader = new GameArchiveReader(path)) {
+            Assert.assertEquals(20, reader.size());
+            assertSameRecord(last, reader.read(19));
+        }
+    }
+
+    @Test
+    public void testInterruptedAppend() throws Exception {
+        Path path = folder.newFolder("archive").toPath().resolve("games.bin");
+        GameRecord record = randomRecord(3);
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            writer.append(record);
+        }
+        long size = Files.size(path);
+
+        // A record without its index entry, and half an index entry
+        try (FileChannel data = FileChannel.open(path, StandardOpenOption.APPEND);
+             FileChannel index = FileChannel.open(GameArchive.indexPathOf(path), StandardOpenOption.APPEND)) {
+            data.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 9, 0, 0, 0, 1, 2}));
+            index.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 0}));
+        }
+
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            Assert.assertEquals(1, writer.size());
+            Assert.assertEquals(size, Files.size(path));
+            writer.append(record);
+        }
+        try (GameArchiveReader reader = new GameArchiveReader(path)) {
+            Assert.assertEquals(2, reader.size());
+            assertSameRecord(record, reader.read(1));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAnArchive() throws Exception {
+        Path path = folder.newFile("games.bin").toPath();
+        Files.write(path, "not an archive".getBytes("US-ASCII"));
+        new GameArchiveReader(path).close();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() throws Exception {
+        Path path = folder.newFolder("archive").toPath().resolve("games.bin");
+        new GameArchiveWriter(path).close();
+        try (GameArchiveReader reader = new GameArchiveReader(path)) {
+            reader.read(0);
+        }
+    }
+}
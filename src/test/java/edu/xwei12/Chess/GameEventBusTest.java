@@ -0,0 +1,174 @@
+package edu.xwei12.chess;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Game event bus tests
+ * @author Xinran Wei
+ */
+public class GameEventBusTest {
+
+    ExecutorService executor;
+    GameEventBus<RectangleBoard, RectanglePosition> bus;
+    StandardGame game;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        bus = new GameEventBus<>();
+        game = new StandardGame();
+        game.setObserver(bus);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        bus.close();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Play moves that can repeat forever: knights out and back
+     * @param moves number of moves to add
+     */
+    private void play(int moves) {
+        int[][] cycle = {{0, 1, 2, 2}, {7, 1, 5, 2}, {2, 2, 0, 1}, {5, 2, 7, 1}};
+        for (int n = 0; n < moves; n++) {
+            int[] m = cycle[game.getMoveCount() % cycle.length];
+            Assert.assertTrue(game.stepWithMove(game.getPlayerToMove(), RectanglePosition.of(m[0], m[1]),
+                    RectanglePosition.of(m[2], m[3])));
+        }
+    }
+
+    @Test
+    public void testDeliveryInOrder() throws Exception {
+        int moves = 200;
+        List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> second = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger largestBatch = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(2);
+        bus.subscribe(events -> {
+            largestBatch.accumulateAndGet(events.size(), Math::max);
+            for (GameEvent<RectangleBoard, RectanglePosition> event : events) first.add(event.getPlies());
+            if (first.size() == moves) done.countDown();
+        }, executor).setMaxBatch(8);
+        bus.subscribe(events -> {
+            for (GameEvent<RectangleBoard, RectanglePosition> event : events) second.add(event.getPlies());
+            if (second.size() == moves) done.countDown();
+        }, executor);
+        Assert.assertEquals(2, bus.getSubscriptionCount());
+
+        play(moves);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int n = 0; n < moves; n++) {
+            Assert.assertEquals(Integer.valueOf(n + 1), first.get(n));
+            Assert.assertEquals(Integer.valueOf(n + 1), second.get(n));
+        }
+        Assert.assertTrue(largestBatch.get() <= 8);
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1), release = new CountDownLatch(1);
+        List<GameEvent<RectangleBoard, RectanglePosition>> received = Collections.synchronizedList(new ArrayList<>());
+        GameEventBus<RectangleBoard, RectanglePosition>.Subscription subscription = bus.subscribe(events -> {
+            received.addAll(events);
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor).setCoalescing(true);
+
+        play(1);
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        play(10);
+        Assert.assertEquals(1, subscription.getPending());
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (received.size() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(1);
+        Assert.assertEquals(2, received.size());
+        GameEvent<RectangleBoard, RectanglePosition> last = received.get(1);
+        Assert.assertEquals(11, last.getPlies());
+        Assert.assertEquals(10, last.getCoalesced());
+        Assert.assertSame(game, last.getGame());
+        Assert.assertEquals(RectanglePosition.of(0, 1), last.getMove().destination);
+        Assert.assertSame(game.getBoard().getSnapshot(), last.getSnapshot());
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        // Both subscriptions hold one event in a stuck delivery
+        CountDownLatch blocked = new CountDownLatch(2), release = new CountDownLatch(1);
+        GameEventBus.Listener<RectangleBoard, RectanglePosition> stuck = events -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        // Dropping the oldest is the default, so a stuck subscriber never stalls the game
+        GameEventBus<RectangleBoard, RectanglePosition>.Subscription oldest = bus.subscribe(stuck, executor)
+                .setCapacity(4);
+        GameEventBus<RectangleBoard, RectanglePosition>.Subscription newest = bus.subscribe(stuck, executor)
+                .setCapacity(4).setOverflow(GameEventBus.Overflow.DROP_NEWEST);
+
+        play(1);
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        play(10);
+        Assert.assertEquals(4, oldest.getPending());
+        Assert.assertEquals(4, newest.getPending());
+        Assert.assertTrue(oldest.getDropped() >= 6);
+        Assert.assertTrue(newest.getDropped() >= 6);
+        release.countDown();
+        oldest.cancel();
+        Assert.assertTrue(oldest.isCancelled());
+        Assert.assertEquals(0, oldest.getPending());
+        Assert.assertEquals(1, bus.getSubscriptionCount());
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        int moves = 100;
+        AtomicInteger received = new AtomicInteger(), failures = new AtomicInteger();
+        GameEventBus<RectangleBoard, RectanglePosition>.Subscription slow = bus.subscribe(events -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.addAndGet(events.size());
+        }, executor).setCapacity(3).setMaxBatch(2).setOverflow(GameEventBus.Overflow.BLOCK);
+        bus.subscribe(events -> {
+            failures.incrementAndGet();
+            throw new IllegalStateException("Listener failure");
+        }, executor).setMaxBatch(1);
+
+        // The game waits for room instead of losing events or growing the queue
+        for (int n = 0; n < moves; n++) {
+            play(1);
+            Assert.assertTrue(slow.getPending() <= 3);
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((received.get() < moves || failures.get() < moves) && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+        Assert.assertEquals(moves, received.get());
+        Assert.assertEquals(moves, failures.get());
+        Assert.assertEquals(0, slow.getDropped());
+    }
+}
@@ -0,0 +1,133 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Game record reader and writer tests
+ * @author Xinran Wei
+ */
+public class GameRecordTest {
+
+    /**
+     * Play random moves until the game ends or the ply limit
+     * @param game game
+     * @param plies ply limit
+     * @param seed random seed
+     * @return game
+     */
+    private StandardGame playRandom(StandardGame game, int plies, long seed) {
+        Random random = new Random(seed);
+        MoveBuffer moves = new MoveBuffer();
+        for (int i = 0; i < plies && game.getState() != Game.State.CHECKMATE; i++) {
+            int player = game.getPlayerToMove();
+            moves.clear();
+            game.getBoard().generatePlayerMoves(player, moves);
+            if (moves.size() == 0) break;
+            int move = moves.get(random.nextInt(moves.size()));
+            int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+            Assert.assertTrue(game.stepWithMove(player, source / 8, source % 8, destination / 8, destination % 8));
+        }
+        return game;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<StandardGame> games = new ArrayList<>();
+        List<GameRecord> records = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            PerftPosition position = PerftPosition.values()[i % PerftPosition.values().length];
+            String fen = position == PerftPosition.START ? null : Fen.toFen(position.newGame());
+            StandardGame game = playRandom(fen == null ? new StandardGame() : Fen.parseGame(fen), 200, i);
+            GameRecord record = GameRecord.of(game, fen);
+            record.setTag("Event", "Test \"" + i + "\"");
+            games.add(game);
+            records.add(record);
+        }
+
+        StringWriter text = new StringWriter();
+        try (GameRecordWriter writer = new GameRecordWriter(text)) {
+            for (GameRecord record : records) writer.write(record);
+        }
+        for (String line : text.toString().split("\n"))
+            Assert.assertTrue(line, line.length() <= GameRecordWriter.LINE_WIDTH);
+
+        try (GameRecordReader reader = new GameRecordReader(new StringReader(text.toString()))) {
+            for (int i = 0; i < games.size(); i++) {
+                GameRecord record = reader.next();
+                Assert.assertNotNull(record);
+                Assert.assertEquals(records.get(i).getTags(), record.getTags());
+                Assert.assertEquals(records.get(i).getResult(), record.getResult());
+                Assert.assertEquals(records.get(i).getMoves().size(), record.getMoves().size());
+
+                StandardGame replayed = record.replay();
+                Assert.assertEquals(games.get(i).getPositionHash(), replayed.getPositionHash());
+                Assert.assertEquals(games.get(i).getState(), replayed.getState());
+                Assert.assertEquals(GameRecord.resultOf(games.get(i)), GameRecord.resultOf(replayed));
+            }
+            Assert.assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testLenientInput() throws Exception {
+        String text = "; comment\n"
+                + "[Event \"a\"]\n\n1. e2e4 d7d5 ; comment\n2. e4d5\n"
+                + "[Event \"b\"]\n1... e2e3 *\n"
+                + "e2e4\n";
+        try (GameRecordReader reader = new GameRecordReader(new StringReader(text))) {
+            GameRecord first = reader.next();
+            Assert.assertEquals("a", first.getTag("Event"));
+            Assert.assertEquals(3, first.getMoves().size());
+            Assert.assertEquals(GameRecord.RESULT_UNFINISHED, first.getResult());
+            Assert.assertEquals("e4d5", Notation.toString(first.getMoves().get(2), 8));
+
+            GameRecord second = reader.next();
+            Assert.assertEquals("b", second.getTag("Event"));
+            Assert.assertEquals(1, second.getMoves().size());
+
+            Assert.assertEquals(1, reader.next().getMoves().size());
+            Assert.assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testNotation() throws Exception {
+        Assert.assertEquals(PackedMove.encode(12, 28, 0), Notation.parseMove("e2e4", 0, 4, 8, 8));
+        Assert.assertEquals(PackedMove.encode(56, 0, 0), Notation.parseMove("a8a1", 0, 4, 8, 8));
+        // Ranks off the board, and squares beyond the packed range
+        Assert.assertEquals(-1, Notation.parseMove("a9a1", 0, 4, 8, 8));
+        Assert.assertEquals(-1, Notation.parseMove("a513a1", 0, 6, 8, 8));
+        Assert.assertEquals(-1, Notation.parseMove("a513a1", 0, 6, 1000, 8));
+        Assert.assertEquals(-1, Notation.parseMove("a1z158", 0, 6, 200, 26));
+        Assert.assertEquals(PackedMove.encode(0, 4095, 0), Notation.parseMove("a1h512", 0, 6, 512, 8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalMove() throws Exception {
+        try (GameRecordReader reader = new GameRecordReader(new StringReader("1. e2e5 *\n"))) {
+            reader.next().replay();
+        }
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        String[] texts = {"[Event a]\n", "1. e2e4 x9 *\n", "1. e2e4 * e7e5\n", "[Result \"2-0\"]\n",
+                "1. a513a1 *\n", "1. e2e9 *\n"};
+        for (String text : texts) {
+            try (GameRecordReader reader = new GameRecordReader(new StringReader("\n" + text))) {
+                reader.next();
+                Assert.fail(text);
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2:"));
+            }
+        }
+    }
+}
@@ -4,6 +4,11 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 /**
  * Created by xinranmsn on 2/4/16.
  */
@@ -86,6 +91,234 @@ public class GameTest implements GameObserver<RectangleBoard, RectanglePosition>
         Assert.assertEquals(Game.State.CHECKMATE, game.getState());
     }
 
+    @Test
+    public void testPositionHash() throws Exception {
+        RectangleBoard board = game.getBoard();
+        long initial = board.getPositionHash();
+
+        // Move and undo
+        game.stepWithMove(StandardGame.PLAYER_A, 0, 1, 2, 2);
+        Assert.assertTrue(initial != board.getPositionHash());
+        game.undo();
+        Assert.assertEquals(initial, board.getPositionHash());
+
+        // Capture and undo
+        game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4);
+        game.stepWithMove(StandardGame.PLAYER_B, 6, 3, 4, 3);
+        long beforeCapture = board.getPositionHash();
+        game.stepWithMove(StandardGame.PLAYER_A, 3, 4, 4, 3);
+        game.undo();
+        Assert.assertEquals(beforeCapture, board.getPositionHash());
+
+        // Same placement built from scratch
+        RectangleBoard copy = new RectangleBoard(8, 8);
+        for (RectanglePosition p : board.getAllPieces())
+            copy.addPiece(board.getPiece(p), new RectanglePosition(p.rank, p.file));
+        Assert.assertEquals(board.getPositionHash(), copy.getPositionHash());
+
+        // Transposition
+        StandardGame other = new StandardGame();
+        game.restart();
+        game.stepWithMove(StandardGame.PLAYER_A, 0, 1, 2, 2);
+        game.stepWithMove(StandardGame.PLAYER_B, 7, 1, 5, 2);
+        game.stepWithMove(StandardGame.PLAYER_A, 0, 6, 2, 5);
+        other.stepWithMove(StandardGame.PLAYER_A, 0, 6, 2, 5);
+        other.stepWithMove(StandardGame.PLAYER_B, 7, 1, 5, 2);
+        other.stepWithMove(StandardGame.PLAYER_A, 0, 1, 2, 2);
+        Assert.assertEquals(game.getPositionHash(), other.getPositionHash());
+        other.setPlayerTurn(StandardGame.PLAYER_A);
+        Assert.assertTrue(game.getPositionHash() != other.getPositionHash());
+    }
+
+    @Test
+    public void testRepetition() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            game.stepWithMove(StandardGame.PLAYER_A, 0, 1, 2, 2);
+            game.stepWithMove(StandardGame.PLAYER_B, 7, 1, 5, 2);
+            game.stepWithMove(StandardGame.PLAYER_A, 2, 2, 0, 1);
+            game.stepWithMove(StandardGame.PLAYER_B, 5, 2, 7, 1);
+        }
+        // Initial position, and after 4 and 8 plies
+        Assert.assertEquals(3, game.getRepetitionCount());
+        game.undo();
+        Assert.assertEquals(2, game.getRepetitionCount());
+        for (int i = 0; i < 3; i++) game.undo();
+        Assert.assertEquals(2, game.getRepetitionCount());
+        for (int i = 0; i < 4; i++) game.undo();
+        Assert.assertEquals(1, game.getRepetitionCount());
+    }
+
+    @Test
+    public void testMoveHistory() throws Exception {
+        Assert.assertNull(game.getLastMove());
+        game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4);
+        game.stepWithMove(StandardGame.PLAYER_B, 6, 3, 4, 3);
+        Piece victim = game.getBoard().getPiece(new RectanglePosition(4, 3));
+        game.stepWithMove(StandardGame.PLAYER_A, 3, 4, 4, 3);
+        Assert.assertEquals(3, game.getMoveCount());
+        Assert.assertEquals(PackedMove.encode(12, 28, 0), game.getPackedMove(0));
+
+        StandardGame.Move last = game.getLastMove();
+        Assert.assertEquals(StandardGame.PLAYER_A, (int) last.player);
+        Assert.assertTrue(last.source.sameAs(new RectanglePosition(3, 4)));
+        Assert.assertTrue(last.destination.sameAs(new RectanglePosition(4, 3)));
+        Assert.assertTrue(last.attacks);
+        Assert.assertSame(victim, last.victim);
+        Assert.assertTrue(PackedMove.isCapture(game.getPackedMove(2)));
+
+        // Undo restores the very same victim and the turn
+        Assert.assertTrue(game.undo());
+        Assert.assertSame(victim, game.getBoard().getPiece(new RectanglePosition(4, 3)));
+        Assert.assertEquals(StandardGame.PLAYER_A, (int) game.getPlayerTurn());
+        Assert.assertEquals(StandardGame.PLAYER_B, (int) game.getLastPlayer());
+        Assert.assertFalse(game.getLastMove().attacks);
+        Assert.assertEquals(2, game.getMoveCount());
+    }
+
+    @Test
+    public void testMoveHistoryAcrossRestarts() throws Exception {
+        // More restarts than victim ids: each game must start its tables afresh
+        StandardGame game = new StandardGame();
+        for (int i = 0; i < 0x10000 + 10; i++) {
+            game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4);
+            game.stepWithMove(StandardGame.PLAYER_B, 6, 3, 4, 3);
+            Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 3, 4, 4, 3));
+            game.restart();
+        }
+        game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4);
+        game.stepWithMove(StandardGame.PLAYER_B, 6, 3, 4, 3);
+        Piece victim = game.getBoard().getPiece(RectanglePosition.of(4, 3));
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 3, 4, 4, 3));
+        Assert.assertSame(victim, game.getLastMove().victim);
+        Assert.assertTrue(game.undo());
+        Assert.assertSame(victim, game.getBoard().getPiece(RectanglePosition.of(4, 3)));
+    }
+
+    @Test
+    public void testUndoDefeat() throws Exception {
+        ScoreManager scores = game.getScoreManager();
+
+        // Rook A takes the only B king: the king is back on the square after the undo
+        game.setPosition(board -> {
+            board.addPiece(DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_A), RectanglePosition.of(0, 0));
+            board.addPiece(DefaultPiece.ROOK.newPieceWithTag(StandardGame.PLAYER_A), RectanglePosition.of(1, 7));
+            board.addPiece(DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_B), RectanglePosition.of(7, 7));
+        }, StandardGame.PLAYER_A);
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 1, 7, 7, 7));
+        Assert.assertEquals(Game.State.CHECKMATE, game.getState());
+        Assert.assertEquals(1, (int) scores.getScore(StandardGame.PLAYER_A));
+        Assert.assertEquals(0, (int) scores.getScore(StandardGame.PLAYER_B));
+        Assert.assertTrue(game.undo());
+        Assert.assertEquals(Game.State.NORMAL, game.getState());
+        Assert.assertEquals(0, (int) scores.getScore(StandardGame.PLAYER_A));
+        Assert.assertEquals(0, (int) scores.getScore(StandardGame.PLAYER_B));
+
+        // A single king and no capture: the destination is empty after the undo
+        game.setPosition(board -> {
+            board.addPiece(DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_A), RectanglePosition.of(0, 0));
+            board.addPiece(DefaultPiece.ROOK.newPieceWithTag(StandardGame.PLAYER_A), RectanglePosition.of(1, 7));
+        }, StandardGame.PLAYER_A);
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 1, 7, 5, 7));
+        Assert.assertEquals(Game.State.CHECKMATE, game.getState());
+        Assert.assertEquals(1, (int) scores.getScore(StandardGame.PLAYER_A));
+        Assert.assertTrue(game.undo());
+        Assert.assertEquals(0, (int) scores.getScore(StandardGame.PLAYER_A));
+        Assert.assertEquals(0, (int) scores.getScore(StandardGame.PLAYER_B));
+    }
+
+    @Test
+    public void testCheckDetection() throws Exception {
+        StandardGame game = new StandardGame();
+        RectangleBoard board = game.getBoard();
+        board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(2, 2));
+        board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(5, 5));
+
+        Random random = new Random(7);
+        MoveBuffer buffer = new MoveBuffer();
+        for (int ply = 0; ply < 400; ply++) {
+            // Random move of the player in turn
+            int player = game.getPlayerTurn() == StandardGame.PLAYER_B ? StandardGame.PLAYER_B : StandardGame.PLAYER_A;
+            buffer.clear();
+            for (RectanglePosition p : board.getAllPieces())
+                if (board.getPiece(p).getTag() == player)
+                    for (int d = 1; d < 8; d++)
+                        board.generateMoves(p, d, buffer);
+            if (buffer.isEmpty() || game.getState() == Game.State.CHECKMATE) {
+                if (random.nextBoolean()) game.undo(); else game.restart();
+                continue;
+            }
+            int move = buffer.get(random.nextInt(buffer.size()));
+            Assert.assertTrue(game.stepWithMove(player,
+                    board.getRank(PackedMove.getSource(move)), board.getFile(PackedMove.getSource(move)),
+                    board.getRank(PackedMove.getDestination(move)), board.getFile(PackedMove.getDestination(move))));
+            if (random.nextInt(5) == 0) game.undo();
+
+            // Compare with a full scan
+            for (RectanglePosition king : board.getPiecesByKind(DefaultPiece.KING.getKind())) {
+                List<RectanglePosition> expected = new ArrayList<>();
+                for (RectanglePosition p : board.getAllPieces())
+                    if (board.canMovePiece(p, king))
+                        expected.add(p);
+                Set<RectanglePosition> actual = game.attackersOf(king);
+                Assert.assertEquals(expected.size(), actual.size());
+                for (RectanglePosition p : expected)
+                    Assert.assertTrue(actual.stream().anyMatch(x -> x.sameAs(p)));
+            }
+            boolean checked = false;
+            for (RectanglePosition king : board.getPiecesByKind(DefaultPiece.KING.getKind()))
+                if (board.getPiece(king).getTag() == player)
+                    checked |= game.attackersOf(king).stream().anyMatch(x -> board.getPiece(x).getTag() != player);
+            Assert.assertEquals(checked, game.isInCheck(player));
+        }
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        StandardGame game = PerftPosition.MIDDLEGAME.newGame();
+        RectangleBoard copy = game.getBoard().copy();
+        Assert.assertEquals(game.getBoard().getPositionHash(), copy.getPositionHash());
+        for (String kind : game.getBoard().getAllPieceKinds())
+            Assert.assertEquals(game.getBoard().getPiecesByKind(kind).size(), copy.getPiecesByKind(kind).size());
+
+        // Independent of the original
+        copy.movePiece(new RectanglePosition(0, 1), new RectanglePosition(2, 2));
+        Assert.assertNotNull(game.getBoard().getPiece(new RectanglePosition(0, 1)));
+        Assert.assertTrue(game.getBoard().getPositionHash() != copy.getPositionHash());
+
+        // Overwrite back
+        game.getBoard().copyInto(copy);
+        Assert.assertEquals(game.getBoard().getPositionHash(), copy.getPositionHash());
+        Assert.assertNotNull(copy.getPiece(new RectanglePosition(0, 1)));
+        Assert.assertEquals(PerftPosition.MIDDLEGAME.getNodeCount(2), new Perft(game.copy()).perft(2));
+    }
+
+    @Test
+    public void testCopyMake() throws Exception {
+        for (PerftPosition position : PerftPosition.values()) {
+            StandardGame game = position.newGame();
+            game.setCopyMake(true);
+            Assert.assertTrue(game.isCopyMake());
+            Assert.assertEquals(position.getNodeCount(3), new Perft(game).perft(3));
+
+            StandardGame bitboard = new StandardGame(new BitboardBoard());
+            Fen.load(Fen.toFen(game), bitboard);
+            bitboard.setCopyMake(true);
+            Assert.assertEquals(position.getNodeCount(2), new Perft(bitboard).perft(2));
+        }
+
+        // Moves made before switching are undone by unmake
+        StandardGame game = new StandardGame();
+        long hash = game.getPositionHash();
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4));
+        game.setCopyMake(true);
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_B, 6, 3, 4, 3));
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 3, 4, 4, 3));
+        game.setCopyMake(false);
+        for (int i = 0; i < 3; i++) Assert.assertTrue(game.undo());
+        Assert.assertEquals(hash, game.getPositionHash());
+        Assert.assertEquals(32, game.getBoard().getAllPieces().size());
+    }
+
     @Override
     public void onChessGameStateUpdate(Game<RectangleBoard, RectanglePosition> game, Game<RectangleBoard, RectanglePosition>.Move move) {
         game.getBoard().print();
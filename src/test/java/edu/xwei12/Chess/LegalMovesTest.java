@@ -0,0 +1,110 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * One-pass legal move generation tests
+ * @author Xinran Wei
+ */
+public class LegalMovesTest {
+
+    /**
+     * Fill two boards with the same random pieces of every kind; the second one
+     * gets pieces without a legal move generator, so it probes every distance
+     * @param random random source
+     * @param board board with one-pass generation
+     * @param probing board with per-distance probing
+     */
+    private void fillRandom(Random random, RectangleBoard board, RectangleBoard probing) {
+        for (int square = 0; square < board.getRanks() * board.getFiles(); square++) {
+            if (random.nextInt(3) != 0) continue;
+            int tag = random.nextBoolean() ? StandardGame.PLAYER_A : StandardGame.PLAYER_B;
+            int kind = random.nextInt(DefaultPiece.values().length + ExtendedPiece.values().length);
+            Piece<RectangleBoard, RectanglePosition> piece = kind < DefaultPiece.values().length
+                    ? DefaultPiece.values()[kind].newPieceWithTag(tag)
+                    : ExtendedPiece.values()[kind - DefaultPiece.values().length].newPieceWithTag(tag);
+            RectanglePosition position = board.positionAt(square);
+            board.addPiece(piece, position);
+            probing.addPiece(new Piece<>(piece.getKind(), tag, piece.getMover(), piece.getGenerator()), position);
+        }
+    }
+
+    @Test
+    public void testSameAsProbing() throws Exception {
+        Random random = new Random(19);
+        MoveBuffer expected = new MoveBuffer(), actual = new MoveBuffer();
+        int[][] sizes = {{8, 8}, {10, 9}, {5, 12}};
+        for (int n = 0; n < 60; n++) {
+            int[] size = sizes[n % sizes.length];
+            RectangleBoard board = new RectangleBoard(size[0], size[1]);
+            RectangleBoard probing = new RectangleBoard(size[0], size[1]);
+            fillRandom(random, board, probing);
+
+            for (int square = 0; square < board.getRanks() * board.getFiles(); square++) {
+                expected.clear();
+                actual.clear();
+                probing.generatePieceMoves(square, expected);
+                board.generatePieceMoves(square, actual);
+                Assert.assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++)
+                    Assert.assertTrue(contains(actual, expected.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsCanMovePiece() throws Exception {
+        Random random = new Random(7);
+        for (int n = 0; n < 20; n++) {
+            RectangleBoard board = new RectangleBoard(8, 8);
+            fillRandom(random, board, new RectangleBoard(8, 8));
+            for (RectanglePosition from : board.getAllPieces()) {
+                Set<RectanglePosition> moves = board.getAllLegalMoves(from);
+                for (int square = 0; square < 64; square++) {
+                    RectanglePosition to = board.positionAt(square);
+                    boolean listed = moves.stream().anyMatch(p -> p.sameAs(to));
+                    Assert.assertEquals(board.canMovePiece(from, to), listed);
+                }
+            }
+        }
+        Assert.assertNull(new RectangleBoard(8, 8).getAllLegalMoves(new RectanglePosition(0, 0)));
+    }
+
+    @Test
+    public void testPlayerMoves() throws Exception {
+        StandardGame game = new StandardGame();
+        RectangleBoard board = game.getBoard();
+        MoveBuffer expected = new MoveBuffer();
+        int count = 0;
+        for (RectanglePosition position : board.getAllPieces())
+            if (board.getPiece(position).getTag() == StandardGame.PLAYER_A)
+                count += board.getAllLegalMoves(position).size();
+        board.generatePlayerMoves(StandardGame.PLAYER_A, expected);
+        Assert.assertEquals(count, expected.size());
+
+        board.setMoveCache(new MoveCache(1 << 10));
+        Assert.assertEquals(count, board.getAllLegalMoves(StandardGame.PLAYER_A).size());
+        Assert.assertEquals(count, board.getAllLegalMoves(StandardGame.PLAYER_A).size());
+        Assert.assertEquals(16, board.getMoveCache().getHits());
+
+        // Perft counts stay the same with one-pass generation
+        for (PerftPosition position : PerftPosition.values())
+            Assert.assertEquals(position.getNodeCount(3), new Perft(position.newGame()).perft(3));
+    }
+
+    /**
+     * Determine whether a buffer holds a move
+     * @param buffer buffer
+     * @param move packed move
+     * @return found or not
+     */
+    private boolean contains(MoveBuffer buffer, int move) {
+        for (int i = 0; i < buffer.size(); i++)
+            if (buffer.get(i) == move) return true;
+        return false;
+    }
+}
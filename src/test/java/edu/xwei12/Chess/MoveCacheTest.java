@@ -0,0 +1,76 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+
+/**
+ * Move cache tests
+ * @author Xinran Wei
+ */
+public class MoveCacheTest {
+
+    @Test
+    public void testPerft() throws Exception {
+        for (PerftPosition position : PerftPosition.values()) {
+            StandardGame game = position.newGame();
+            MoveCache cache = new MoveCache(1 << 12);
+            game.getBoard().setMoveCache(cache);
+            Perft perft = new Perft(game);
+            Assert.assertEquals(position.getNodeCount(3), perft.perft(3));
+            long misses = cache.getMisses();
+            Assert.assertTrue(cache.getHits() > 0);
+
+            // Same positions again
+            Assert.assertEquals(position.getNodeCount(3), perft.perft(3));
+            Assert.assertTrue(cache.getMisses() - misses < misses);
+        }
+    }
+
+    @Test
+    public void testPossibleMoves() throws Exception {
+        for (PerftPosition position : PerftPosition.values()) {
+            RectangleBoard board = position.newGame().getBoard();
+            RectangleBoard cached = position.newGame().getBoard();
+            cached.setMoveCache(new MoveCache(1 << 14));
+            for (int pass = 0; pass < 2; pass++) {
+                for (RectanglePosition piece : board.getAllPieces()) {
+                    for (int distance = -1; distance < 8; distance++) {
+                        Set<RectanglePosition> expected = board.getPossibleMoves(piece, distance);
+                        Set<RectanglePosition> actual = cached.getPossibleMoves(piece, distance);
+                        Assert.assertEquals(expected.size(), actual.size());
+                        for (RectanglePosition p : expected)
+                            Assert.assertTrue(actual.stream().anyMatch(x -> x.sameAs(p)));
+                    }
+                }
+            }
+            Assert.assertTrue(cached.getMoveCache().getHitRate() > 0.4);
+        }
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        StandardGame game = new StandardGame();
+        RectangleBoard board = game.getBoard();
+        MoveCache cache = new MoveCache(64);
+        board.setMoveCache(cache);
+
+        // Rook boxed in, then free after the pawn moves
+        RectanglePosition rook = new RectanglePosition(0, 0);
+        Assert.assertFalse(board.canMovePiece(rook, new RectanglePosition(2, 0)));
+        Assert.assertFalse(board.canMovePiece(rook, new RectanglePosition(2, 0)));
+        Assert.assertEquals(1, cache.getHits());
+        board.movePiece(new RectanglePosition(1, 0), new RectanglePosition(3, 0));
+        Assert.assertTrue(board.canMovePiece(rook, new RectanglePosition(2, 0)));
+        board.movePiece(new RectanglePosition(3, 0), new RectanglePosition(1, 0));
+        Assert.assertFalse(board.canMovePiece(rook, new RectanglePosition(2, 0)));
+        Assert.assertEquals(2, cache.getHits());
+
+        cache.clear();
+        cache.resetStatistics();
+        Assert.assertFalse(board.canMovePiece(rook, new RectanglePosition(2, 0)));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+}
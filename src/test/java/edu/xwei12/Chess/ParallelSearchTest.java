@@ -0,0 +1,53 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Parallel search tests
+ * @author Xinran Wei
+ */
+public class ParallelSearchTest {
+
+    @Test
+    public void testCopyGame() throws Exception {
+        StandardGame game = PerftPosition.MIDDLEGAME.newGame();
+        StandardGame copy = game.copy();
+        Assert.assertEquals(game.getPositionHash(), copy.getPositionHash());
+        Assert.assertEquals(new Perft(game).perft(2), new Perft(copy).perft(2));
+    }
+
+    @Test
+    public void testSameScoreAsSingleThread() throws Exception {
+        for (PerftPosition position : PerftPosition.values()) {
+            StandardGame game = position.newGame();
+            long hash = game.getPositionHash();
+
+            SearchEngine engine = new SearchEngine(game, new TranspositionTable(1 << 16));
+            engine.search(3, 0);
+
+            ParallelSearch search = new ParallelSearch(new TranspositionTable(1 << 16));
+            int move = search.search(game, 3, 0, 4);
+            Assert.assertTrue(move != 0);
+            Assert.assertEquals(position.toString(), engine.getBestScore(), search.getBestScore());
+            Assert.assertEquals(engine.getCompletedDepth(), search.getCompletedDepth());
+            Assert.assertEquals(hash, game.getPositionHash());
+            Assert.assertTrue(search.getNodes() > 0);
+        }
+    }
+
+    @Test
+    public void testTimeLimit() throws Exception {
+        StandardGame game = PerftPosition.START.newGame();
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(1 << 16));
+        long start = System.nanoTime();
+        Assert.assertTrue(search.search(game, 64, 100, 2) != 0);
+        Assert.assertTrue(search.getCompletedDepth() >= 1);
+        Assert.assertTrue((System.nanoTime() - start) / 1000000 < 2000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThreadCount() throws Exception {
+        new ParallelSearch(new TranspositionTable(16)).search(new StandardGame(), 1, 0, 0);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Perft tests
+ * @author Xinran Wei
+ */
+public class PerftTest {
+
+    /**
+     * Count leaf nodes by trying every source and destination through the game
+     * @param game game
+     * @param depth depth
+     * @return number of leaf nodes
+     */
+    private long bruteForce(StandardGame game, int depth) {
+        if (depth == 0) return 1;
+        if (game.getState() == Game.State.CHECKMATE) return 0;
+        Integer turn = game.getPlayerTurn();
+        int player = turn == StandardGame.PLAYER_DEFAULT ? StandardGame.PLAYER_A : turn;
+        long nodes = 0;
+        for (int i = 0; i < 64; i++) {
+            Piece piece = game.getBoard().getPiece(new RectanglePosition(i / 8, i % 8));
+            if (piece == null || piece.getTag() != player) continue;
+            for (int j = 0; j < 64; j++) {
+                if (!game.stepWithMove(player, i / 8, i % 8, j / 8, j % 8)) continue;
+                nodes += bruteForce(game, depth - 1);
+                game.undo();
+            }
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testReferencePositions() throws Exception {
+        for (PerftPosition position : PerftPosition.values()) {
+            StandardGame game = position.newGame();
+            Perft perft = new Perft(game);
+            for (int depth = 1; depth <= 3; depth++)
+                Assert.assertEquals(position + " depth " + depth, position.getNodeCount(depth), perft.perft(depth));
+        }
+    }
+
+    @Test
+    public void testBruteForce() throws Exception {
+        for (PerftPosition position : PerftPosition.values()) {
+            StandardGame game = position.newGame();
+            Assert.assertEquals(bruteForce(game, 2), new Perft(game).perft(2));
+        }
+    }
+
+    @Test
+    public void testDivide() throws Exception {
+        StandardGame game = PerftPosition.MIDDLEGAME.newGame();
+        long hash = game.getPositionHash();
+        Perft perft = new Perft(game);
+
+        Map<Integer, Long> divide = perft.divide(2);
+        Assert.assertEquals(PerftPosition.MIDDLEGAME.getNodeCount(1), divide.size());
+        long total = 0;
+        for (long nodes : divide.values()) total += nodes;
+        Assert.assertEquals(PerftPosition.MIDDLEGAME.getNodeCount(2), total);
+
+        // Position is restored
+        Assert.assertEquals(hash, game.getPositionHash());
+        Assert.assertEquals(1, perft.perft(0));
+        Assert.assertEquals("e2e4", Perft.toString(game.getBoard(), PackedMove.encode(12, 28, 0)));
+    }
+}
@@ -0,0 +1,139 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Piece index tests
+ * @author Xinran Wei
+ */
+public class PieceIndexTest {
+
+    /**
+     * Compare the piece lists of a board with a scan of its squares
+     * @param board board
+     */
+    private void assertConsistent(RectangleBoard board) {
+        int total = 0;
+        for (String kind : board.getAllPieceKinds()) {
+            Set<RectanglePosition> set = board.getPiecesByKind(kind);
+            int count = 0;
+            for (int square = 0; square < board.getRanks() * board.getFiles(); square++) {
+                RectanglePosition position = board.positionAt(square);
+                Piece<RectangleBoard, RectanglePosition> piece = board.getPiece(position);
+                boolean ofKind = piece != null && piece.getKind().equals(kind);
+                Assert.assertEquals(ofKind, set.contains(position));
+                if (ofKind) count++;
+            }
+            Assert.assertEquals(count, set.size());
+            for (RectanglePosition position : set)
+                Assert.assertEquals(kind, board.getPiece(position).getKind());
+            total += count;
+        }
+        Assert.assertEquals(total, board.getAllPieces().size());
+        int iterated = 0;
+        for (RectanglePosition position : board.getAllPieces()) {
+            Assert.assertNotNull(board.getPiece(position));
+            iterated++;
+        }
+        Assert.assertEquals(total, iterated);
+    }
+
+    @Test
+    public void testRandomChanges() throws Exception {
+        Random random = new Random(20);
+        RectangleBoard board = new StandardGame().getBoard();
+        DefaultPiece[] kinds = DefaultPiece.values();
+        for (int n = 0; n < 3000; n++) {
+            RectanglePosition a = board.positionAt(random.nextInt(64));
+            RectanglePosition b = board.positionAt(random.nextInt(64));
+            switch (random.nextInt(4)) {
+                case 0:
+                    board.addPiece(kinds[random.nextInt(kinds.length)].newPieceWithTag(StandardGame.PLAYER_A), a);
+                    break;
+                case 1:
+                    if (board.pieceExists(a) && !a.sameAs(b)) board.movePiece(a, b);
+                    break;
+                case 2:
+                    if (random.nextInt(50) == 0) board.removeAllPieces();
+                    break;
+                default:
+                    if (board.pieceExists(a) && !a.sameAs(b)) board.movePiece(a, b);
+            }
+            if (n % 100 == 0) assertConsistent(board);
+        }
+        assertConsistent(board);
+        assertConsistent(board.copy());
+
+        RectangleBoard target = new RectangleBoard(8, 8);
+        target.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(4, 4));
+        board.copyInto(target);
+        assertConsistent(target);
+        Assert.assertEquals(board.getAllPieceKinds(), target.getAllPieceKinds());
+    }
+
+    @Test
+    public void testViews() throws Exception {
+        StandardGame game = new StandardGame();
+        RectangleBoard board = game.getBoard();
+        Assert.assertNull(board.getPiecesByKind(ExtendedPiece.BEROLINA.getKind()));
+        Set<RectanglePosition> pawns = board.getPiecesByKind(DefaultPiece.PAWN.getKind());
+        Assert.assertEquals(16, pawns.size());
+        Assert.assertTrue(pawns.contains(new RectanglePosition(1, 4)));
+
+        // Views are live
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 1, 4, 3, 4));
+        Assert.assertFalse(pawns.contains(new RectanglePosition(1, 4)));
+        Assert.assertTrue(pawns.contains(new RectanglePosition(3, 4)));
+
+        Iterator<RectanglePosition> iterator = board.getAllPieces().iterator();
+        iterator.next();
+        game.undo();
+        try {
+            iterator.next();
+            Assert.fail();
+        } catch (ConcurrentModificationException e) {
+            // Expected
+        }
+
+        board.removeAllPieces();
+        Assert.assertEquals(0, board.getAllPieces().size());
+        Assert.assertEquals(0, pawns.size());
+        Assert.assertTrue(board.getAllPieceKinds().contains(DefaultPiece.PAWN.getKind()));
+        Assert.assertEquals(DefaultPiece.PAWN.newPieceWithTag(1).getKindId(), DefaultPiece.PAWN.newPieceWithTag(-1).getKindId());
+    }
+
+    @Test
+    public void testMoveInPlace() throws Exception {
+        for (RectangleBoard board : new RectangleBoard[] {new StandardGame().getBoard(), new StandardGame(new BitboardBoard()).getBoard()}) {
+            RectanglePosition position = RectanglePosition.of(0, 4);
+            Piece<RectangleBoard, RectanglePosition> king = board.getPiece(position);
+            long hash = board.getPositionHash();
+            board.movePiece(position, position);
+            Assert.assertSame(king, board.getPiece(position));
+            Assert.assertEquals(hash, board.getPositionHash());
+            Assert.assertEquals(32, board.getAllPieces().size());
+            assertConsistent(board);
+        }
+    }
+
+    @Test
+    public void testUnknownKind() throws Exception {
+        RectangleBoard board = new StandardGame().getBoard();
+        String kind = "never placed " + System.nanoTime();
+        Assert.assertNull(board.getPiecesByKind(kind));
+        Assert.assertNull(board.getPiecesByKind(null));
+        Assert.assertEquals(0, new Evaluation(8, 8).getPieceValue(kind));
+        // Looking up does not number the kind
+        Assert.assertEquals(-1, PieceIndex.findKindId(kind));
+        int kindId = PieceIndex.kindIdOf(kind);
+        Assert.assertEquals(kindId, PieceIndex.findKindId(kind));
+        Assert.assertEquals(kind, PieceIndex.kindNameOf(kindId));
+        Assert.assertNull(board.getPiecesByKind(kind));
+    }
+}
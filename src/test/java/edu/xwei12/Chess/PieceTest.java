@@ -4,6 +4,9 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -255,4 +258,47 @@ public class PieceTest {
         Assert.assertTrue(moves.stream().anyMatch(x -> x.sameAs(new RectanglePosition(2, 2))));
 
     }
-}
\ No newline at end of file
+
+    /** Generator tests **/
+
+    @Test
+    public void testGenerators() throws Exception {
+        RectangleBoard board = game.getBoard();
+        board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(2, 2));
+        board.addPiece(ExtendedPiece.GRASSHOPPER.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(5, 2));
+        board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(2, 5));
+        board.addPiece(ExtendedPiece.BEROLINA.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(5, 5));
+        board.addPiece(DefaultPiece.QUEEN.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(4, 4));
+        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(3, 6));
+        board.addPiece(DefaultPiece.BISHOP.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(3, 1));
+        game.stepWithMove(StandardGame.PLAYER_A, 1, 3, 3, 3); // Pawn
+        game.stepWithMove(StandardGame.PLAYER_B, 7, 6, 5, 7); // Knight
+
+        MoveBuffer buffer = new MoveBuffer(4);
+        for (int i = 0; i < board.getRanks(); i++) {
+            for (int j = 0; j < board.getFiles(); j++) {
+                RectanglePosition pos = new RectanglePosition(i, j);
+                if (!board.pieceExists(pos)) continue;
+                for (int d = 0; d < 8; d++) {
+                    // Destinations from the mover
+                    List<Integer> expected = new ArrayList<>();
+                    board.getPossibleMoves(pos, d).forEach(x -> expected.add(board.getSquare(x.rank, x.file)));
+                    // Destinations from the generator
+                    List<Integer> actual = new ArrayList<>();
+                    buffer.clear();
+                    Assert.assertEquals(expected.size(), board.generateMoves(pos, d, buffer));
+                    for (int k = 0; k < buffer.size(); k++) {
+                        int move = buffer.get(k);
+                        Assert.assertEquals(board.getSquare(i, j), PackedMove.getSource(move));
+                        Assert.assertEquals(board.isOccupied(board.getRank(PackedMove.getDestination(move)),
+                                board.getFile(PackedMove.getDestination(move))), PackedMove.isCapture(move));
+                        actual.add(PackedMove.getDestination(move));
+                    }
+                    Collections.sort(expected);
+                    Collections.sort(actual);
+                    Assert.assertEquals(board.getPiece(pos).getKind() + " at " + i + "," + j + " by " + d, expected, actual);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Rectangle position tests
+ * @author Xinran Wei
+ */
+public class RectanglePositionTest {
+
+    @Test
+    public void testEquality() throws Exception {
+        RectanglePosition a = new RectanglePosition(3, 4);
+        Assert.assertEquals(a, new RectanglePosition(3, 4));
+        Assert.assertEquals(a.hashCode(), RectanglePosition.of(3, 4).hashCode());
+        Assert.assertFalse(a.equals(new RectanglePosition(4, 3)));
+        Assert.assertFalse(a.equals(null));
+
+        Set<RectanglePosition> set = new HashSet<>();
+        set.add(a);
+        set.add(RectanglePosition.of(3, 4));
+        Assert.assertEquals(1, set.size());
+        Assert.assertTrue(set.contains(new RectanglePosition(3, 4)));
+    }
+
+    @Test
+    public void testCanonical() throws Exception {
+        Assert.assertSame(RectanglePosition.of(0, 7), RectanglePosition.of(0, 7));
+        Assert.assertEquals(RectanglePosition.of(-1, 2), RectanglePosition.of(-1, 2));
+        Assert.assertEquals(RectanglePosition.of(40, 2), new RectanglePosition(40, 2));
+
+        RectangleBoard board = new RectangleBoard(8, 10);
+        for (int square = 0; square < 80; square++) {
+            RectanglePosition position = board.positionAt(square);
+            Assert.assertSame(RectanglePosition.of(position.rank, position.file), position);
+            Assert.assertEquals(square, board.indexOf(position));
+        }
+        Assert.assertSame(board.positionAt(12), new RectangleBoard(8, 10).positionAt(12));
+    }
+
+    @Test
+    public void testMoveSets() throws Exception {
+        StandardGame game = new StandardGame();
+        Set<RectanglePosition> moves = game.getBoard().getPossibleMoves(new RectanglePosition(1, 4), 2);
+        Assert.assertTrue(moves.contains(new RectanglePosition(3, 4)));
+        Assert.assertTrue(game.getBoard().getAllLegalMoves(new RectanglePosition(0, 6)).contains(new RectanglePosition(2, 5)));
+    }
+}
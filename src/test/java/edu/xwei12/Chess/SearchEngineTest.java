@@ -0,0 +1,95 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Search engine tests
+ * @author Xinran Wei
+ */
+public class SearchEngineTest {
+
+    StandardGame game;
+    RectangleBoard board;
+
+    @Before
+    public void setUp() throws Exception {
+        game = new StandardGame();
+        board = game.getBoard();
+        board.removeAllPieces();
+        board.addPiece(DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(0, 7));
+        board.addPiece(DefaultPiece.ROOK.newPieceWithTag(StandardGame.PLAYER_A), new RectanglePosition(0, 0));
+        board.addPiece(DefaultPiece.KING.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(7, 7));
+    }
+
+    @Test
+    public void testCaptureKing() throws Exception {
+        board.movePiece(new RectanglePosition(7, 7), new RectanglePosition(7, 0));
+        SearchEngine engine = new SearchEngine(game);
+        int move = engine.search(4, 0);
+        Assert.assertEquals(PackedMove.encode(0, 56, PackedMove.FLAG_CAPTURE), move);
+        Assert.assertTrue(engine.getBestScore() >= SearchEngine.MATE_SCORE - 64);
+    }
+
+    @Test
+    public void testWinMaterial() throws Exception {
+        board.addPiece(DefaultPiece.QUEEN.newPieceWithTag(StandardGame.PLAYER_B), new RectanglePosition(5, 0));
+        SearchEngine engine = new SearchEngine(game);
+        Assert.assertEquals(PackedMove.encode(0, 40, PackedMove.FLAG_CAPTURE), engine.search(2, 0));
+        Assert.assertEquals(2, engine.getCompletedDepth());
+        Assert.assertTrue(engine.getBestScore() > 0);
+    }
+
+    @Test
+    public void testGameRestored() throws Exception {
+        StandardGame game = PerftPosition.MIDDLEGAME.newGame();
+        long hash = game.getPositionHash();
+        Game.Move last = game.getLastMove();
+
+        SearchEngine engine = new SearchEngine(game);
+        int move = engine.search(3, 0);
+        Assert.assertEquals(hash, game.getPositionHash());
+        Assert.assertTrue(last.source.sameAs(game.getLastMove().source));
+        Assert.assertTrue(last.destination.sameAs(game.getLastMove().destination));
+        Assert.assertEquals(Game.State.NORMAL, game.getState());
+
+        // The move is one the game accepts
+        RectangleBoard board = game.getBoard();
+        int source = PackedMove.getSource(move), destination = PackedMove.getDestination(move);
+        Assert.assertTrue(game.stepWithMove(game.getPlayerToMove(),
+                board.getRank(source), board.getFile(source), board.getRank(destination), board.getFile(destination)));
+    }
+
+    @Test
+    public void testQuiet() throws Exception {
+        // The search reaches won and lost games, which the game would score
+        int[] updates = new int[1];
+        game.setObserver((g, move) -> updates[0]++);
+        game.setSnapshotPublishing(true);
+        BoardSnapshot snapshot = game.getSnapshot();
+
+        SearchEngine engine = new SearchEngine(game);
+        engine.search(4, 0);
+        Assert.assertEquals(0, updates[0]);
+        Assert.assertEquals(0, (int) game.getScoreManager().getScore(StandardGame.PLAYER_A));
+        Assert.assertEquals(0, (int) game.getScoreManager().getScore(StandardGame.PLAYER_B));
+        Assert.assertSame(snapshot, game.getSnapshot());
+
+        // Moves after the search are reported again
+        Assert.assertTrue(game.stepWithMove(StandardGame.PLAYER_A, 0, 0, 1, 0));
+        Assert.assertEquals(1, updates[0]);
+        Assert.assertNotSame(snapshot, game.getSnapshot());
+    }
+
+    @Test
+    public void testTimeLimit() throws Exception {
+        StandardGame game = PerftPosition.EXTENDED.newGame();
+        SearchEngine engine = new SearchEngine(game);
+        long start = System.nanoTime();
+        int move = engine.search(64, 100);
+        Assert.assertTrue(move != 0);
+        Assert.assertTrue(engine.getCompletedDepth() >= 1);
+        Assert.assertTrue((System.nanoTime() - start) / 1000000 < 2000);
+    }
+}
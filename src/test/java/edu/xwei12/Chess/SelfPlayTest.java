@@ -0,0 +1,70 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Self-play simulator tests
+ * @author Xinran Wei
+ */
+public class SelfPlayTest {
+
+    @Test
+    public void testStatistics() throws Exception {
+        SelfPlay.Statistics statistics = new SelfPlay(MoveChooser.RANDOM).setMaxPlies(60).run(40, 2);
+        Assert.assertEquals(40, statistics.getGames());
+        Assert.assertEquals(40, statistics.getWinsA() + statistics.getWinsB() + statistics.getUnfinished());
+        Assert.assertTrue(statistics.getPlies() > 0 && statistics.getPlies() <= 40 * 60);
+        Assert.assertEquals((double) statistics.getPlies() / 40, statistics.getAveragePlies(), 1e-9);
+        Assert.assertTrue(statistics.getGamesPerSecond() > 0);
+    }
+
+    @Test
+    public void testDeterministic() throws Exception {
+        SelfPlay.Statistics one = new SelfPlay(MoveChooser.GREEDY_CAPTURE, MoveChooser.RANDOM).setSeed(5).run(30, 1);
+        SelfPlay.Statistics three = new SelfPlay(MoveChooser.GREEDY_CAPTURE, MoveChooser.RANDOM).setSeed(5).run(30, 3);
+        Assert.assertEquals(one.getPlies(), three.getPlies());
+        Assert.assertEquals(one.getWinsA(), three.getWinsA());
+        Assert.assertEquals(one.getWinsB(), three.getWinsB());
+    }
+
+    @Test
+    public void testRecords() throws Exception {
+        // The receiver is not thread-safe: calls must not overlap
+        List<GameRecord> records = new ArrayList<>();
+        AtomicInteger receiving = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        String fen = Fen.toFen(PerftPosition.EXTENDED.newGame());
+        SelfPlay.Statistics statistics = new SelfPlay(MoveChooser.GREEDY_CAPTURE)
+                .setStartFen(fen).setRecordConsumer(record -> {
+                    if (receiving.incrementAndGet() != 1) overlapped.set(true);
+                    records.add(record);
+                    receiving.decrementAndGet();
+                }).run(20, 4);
+        Assert.assertFalse(overlapped.get());
+        Assert.assertEquals(20, records.size());
+
+        long plies = 0, winsA = 0;
+        for (GameRecord record : records) {
+            Assert.assertEquals(fen, record.getTag(GameRecord.TAG_FEN));
+            Assert.assertEquals(record.getResult(), GameRecord.resultOf(record.replay()));
+            plies += record.getMoves().size();
+            if (GameRecord.RESULT_A_WINS.equals(record.getResult())) winsA++;
+        }
+        Assert.assertEquals(statistics.getPlies(), plies);
+        Assert.assertEquals(statistics.getWinsA(), winsA);
+    }
+
+    @Test
+    public void testCustomChooser() throws Exception {
+        MoveChooser first = (game, player, moves, random) -> 0;
+        SelfPlay.Statistics a = new SelfPlay(first).setSeed(1).run(3, 1);
+        SelfPlay.Statistics b = new SelfPlay(first).setSeed(2).run(3, 1);
+        Assert.assertEquals(a.getPlies(), b.getPlies());
+    }
+}
@@ -0,0 +1,86 @@
+package edu.xwei12.chess;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transposition table tests
+ * @author Xinran Wei
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreAndProbe() throws Exception {
+        TranspositionTable table = new TranspositionTable(1000);
+        Assert.assertEquals(512, table.getCapacity());
+
+        StandardGame game = new StandardGame();
+        long key = game.getPositionHash();
+        Assert.assertEquals(0, table.probe(key));
+
+        int move = PackedMove.encode(1, 18, 0);
+        table.store(key, 5, -120, TranspositionTable.BOUND_LOWER, move);
+        long entry = table.probe(key);
+        Assert.assertEquals(5, TranspositionTable.getDepth(entry));
+        Assert.assertEquals(-120, TranspositionTable.getScore(entry));
+        Assert.assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.getBound(entry));
+        Assert.assertEquals(move, TranspositionTable.getMove(entry));
+        Assert.assertEquals(0.5, table.getHitRate(), 1e-9);
+        Assert.assertTrue(table.getOccupancy() > 0);
+
+        table.clear();
+        Assert.assertEquals(0, table.probe(key));
+    }
+
+    @Test
+    public void testReplaceByDepth() throws Exception {
+        TranspositionTable table = new TranspositionTable(16);
+        long a = 0x1234L, b = 0x5678L << 16 | 0x34L; // same slot
+
+        table.store(a, 6, 10, TranspositionTable.BOUND_EXACT, 0);
+        table.store(b, 3, 20, TranspositionTable.BOUND_EXACT, 0);
+        Assert.assertEquals(0, table.probe(b));
+        Assert.assertEquals(6, TranspositionTable.getDepth(table.probe(a)));
+
+        table.store(b, 6, 20, TranspositionTable.BOUND_EXACT, 0);
+        Assert.assertEquals(0, table.probe(a));
+        Assert.assertEquals(20, TranspositionTable.getScore(table.probe(b)));
+
+        // Entries of an older search are replaced regardless of depth
+        table.newSearch();
+        table.store(a, 1, 30, TranspositionTable.BOUND_UPPER, 0);
+        Assert.assertEquals(30, TranspositionTable.getScore(table.probe(a)));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        TranspositionTable table = new TranspositionTable(64);
+        AtomicInteger corrupted = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 200000; i++) {
+                    long key = random.nextInt(1024) * 0x9e3779b97f4a7c15L;
+                    // Score is derived from the key, so a mixed-up entry is detectable
+                    int score = (int) (key >>> 50);
+                    if (random.nextBoolean()) {
+                        table.store(key, random.nextInt(10), score, TranspositionTable.BOUND_EXACT, 0);
+                    } else {
+                        long entry = table.probe(key);
+                        if (entry != 0 && TranspositionTable.getScore(entry) != score)
+                            corrupted.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        Assert.assertEquals(0, corrupted.get());
+        Assert.assertTrue(table.getHits() > 0);
+    }
+}
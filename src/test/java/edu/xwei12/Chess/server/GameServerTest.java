@@ -0,0 +1,112 @@
+package edu.xwei12.chess.server;
+
+import edu.xwei12.chess.Fen;
+import edu.xwei12.chess.PerftPosition;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Game server tests
+ * @author Xinran Wei
+ */
+public class GameServerTest {
+
+    GameServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new GameServer(new InetSocketAddress("localhost", 0)).start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testPlay() throws Exception {
+        try (GameClient player = new GameClient(server.getPort()); GameClient viewer = new GameClient(server.getPort())) {
+            long game = player.newGame();
+            viewer.watch(game);
+
+            Assert.assertTrue(player.move(game, "e2e4"));
+            Assert.assertFalse(player.move(game, "e2e4"));
+            Assert.assertTrue(player.request("MOVE " + game + " e9e5").startsWith("ERR "));
+            Assert.assertTrue(player.request("MOVE " + game + " a513a1").startsWith("ERR "));
+            Assert.assertTrue(player.move(game, "e7e5"));
+            Assert.assertTrue(player.undo(game));
+
+            String[] update = viewer.nextUpdate().split(" ", 6);
+            Assert.assertEquals("UPDATE", update[0]);
+            Assert.assertEquals(String.valueOf(game), update[1]);
+            Assert.assertEquals("1", update[2]);
+            Assert.assertEquals("NORMAL", update[3]);
+            Assert.assertEquals("e2e4", update[4]);
+            Assert.assertTrue(viewer.nextUpdate().contains(" 2 NORMAL e7e5 "));
+            Assert.assertTrue(viewer.nextUpdate().contains(" 1 NORMAL e2e4 "));
+
+            String[] shown = player.show(game).split(" ", 5);
+            Assert.assertEquals("1", shown[1]);
+            Assert.assertEquals(update[5], shown[4]);
+
+            Assert.assertEquals("OK " + game, player.request("CLOSE " + game));
+            Assert.assertEquals("CLOSED " + game, viewer.nextUpdate());
+            Assert.assertTrue(player.request("SHOW " + game).startsWith("ERR "));
+        }
+    }
+
+    @Test
+    public void testPositions() throws Exception {
+        try (GameClient client = new GameClient(server.getPort())) {
+            String fen = Fen.toFen(PerftPosition.EXTENDED.newGame());
+            long game = client.newGame(fen);
+            Assert.assertTrue(client.show(game).endsWith(" - " + fen));
+            Assert.assertTrue(client.request("NEW not/a/position").startsWith("ERR "));
+            Assert.assertTrue(client.request("FLY 1").startsWith("ERR "));
+            Assert.assertTrue(client.request("UNDO x").startsWith("ERR "));
+            Assert.assertTrue(client.request("UNDO " + game).startsWith("ERR "));
+            Assert.assertEquals("OK " + game, client.request("RESTART " + game));
+            Assert.assertTrue(client.show(game).endsWith(fen));
+        }
+    }
+
+    @Test
+    public void testManyGames() throws Exception {
+        int clients = 4, gamesPerClient = 500;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Thread thread = new Thread(() -> {
+                try (GameClient client = new GameClient(server.getPort())) {
+                    long[] games = new long[gamesPerClient];
+                    for (int i = 0; i < gamesPerClient; i++)
+                        games[i] = client.newGame();
+                    for (long game : games) {
+                        if (!client.move(game, "g1f3") || !client.move(game, "b8c6"))
+                            throw new AssertionError("Move rejected in game " + game);
+                    }
+                    for (long game : games)
+                        if (!client.show(game).contains(" 2 NORMAL b8c6 "))
+                            throw new AssertionError("Wrong state of game " + game);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        Assert.assertNull(failure.get());
+
+        try (GameClient client = new GameClient(server.getPort())) {
+            Assert.assertEquals("OK " + clients * gamesPerClient, client.request("GAMES"));
+        }
+    }
+}